@@ -3,6 +3,8 @@ plugins {
     id("io.micronaut.crac") version "4.0.4"
     id("io.micronaut.library") version "4.0.4"
     id("io.micronaut.aot") version "4.0.4"
+    id("io.micronaut.graalvm") version "4.0.4"
+    id("me.champeau.jmh") version "0.7.1"
 }
 
 version = "0.1"
@@ -12,6 +14,43 @@ repositories {
     mavenCentral()
 }
 
+// The pooled SDK HTTP clients are only packaged when they are opted into, e.g. -PsdkHttpClients=apache,crt
+val sdkHttpClients = providers.gradleProperty("sdkHttpClients")
+    .map { clients -> clients.split(",").map(String::trim).filter(String::isNotEmpty).toSet() }
+    .getOrElse(emptySet())
+
+// The CRT HTTP client is only compiled in when it is opted into, its sources need the dependency and SDK 2.21
+if ("crt" in sdkHttpClients) {
+    sourceSets.main {
+        java.srcDir("src/crt/java")
+    }
+}
+
+// The bulk loader runs from a workstation, it is kept out of the Lambda artifact built from the main source set
+val bulkLoad: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[bulkLoad.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[bulkLoad.compileOnlyConfigurationName].extendsFrom(configurations.compileOnly.get())
+configurations[bulkLoad.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+configurations[bulkLoad.annotationProcessorConfigurationName].extendsFrom(configurations.annotationProcessor.get())
+
+// The payload capture is only packaged when it is opted into with -PpayloadCapture=true
+val payloadCapture = providers.gradleProperty("payloadCapture").map(String::toBoolean).getOrElse(false)
+
+val capture: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+configurations[capture.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[capture.compileOnlyConfigurationName].extendsFrom(configurations.compileOnly.get())
+configurations[capture.annotationProcessorConfigurationName].extendsFrom(configurations.annotationProcessor.get())
+
+sourceSets.test {
+    compileClasspath += bulkLoad.output + capture.output
+    runtimeClasspath += bulkLoad.output + capture.output
+}
+
 dependencies {
     annotationProcessor("org.projectlombok:lombok")
     annotationProcessor("io.micronaut:micronaut-inject-java")
@@ -23,20 +62,39 @@ dependencies {
     implementation("io.micronaut.aws:micronaut-aws-lambda-events-serde")
     implementation("io.micronaut.crac:micronaut-crac")
     implementation("io.micronaut.serde:micronaut-serde-jackson")
+    implementation("com.fasterxml.jackson.core:jackson-core")
 
     implementation("io.micronaut.aws:micronaut-aws-sdk-v2")
 
     implementation("software.amazon.awssdk:url-connection-client")
     implementation("software.amazon.awssdk:dynamodb")
 
+    compileOnly("software.amazon.awssdk:apache-client")
+    if ("apache" in sdkHttpClients) {
+        runtimeOnly("software.amazon.awssdk:apache-client")
+    }
+    // The sync CRT HTTP client needs SDK 2.21 or later, the SDK is only raised to it when the client is opted into
+    if ("crt" in sdkHttpClients) {
+        implementation(platform("software.amazon.awssdk:bom:2.21.10"))
+        implementation("software.amazon.awssdk:aws-crt-client")
+    }
+
 
     implementation(platform("org.apache.logging.log4j:log4j-bom:2.20.0"))
     implementation("org.apache.logging.log4j:log4j-api")
     implementation("org.apache.logging.log4j:log4j-core")
     implementation("org.apache.logging.log4j:log4j-slf4j2-impl")
+    implementation("org.apache.logging.log4j:log4j-layout-template-json")
 
     compileOnly("org.projectlombok:lombok")
 
+    // The captures are exported to S3, the client is only packaged along with the capture
+    capture.implementationConfigurationName("software.amazon.awssdk:s3")
+    if (payloadCapture) {
+        runtimeOnly(capture.output)
+        runtimeOnly("software.amazon.awssdk:s3")
+    }
+
     testImplementation("org.mockito:mockito-core")
     testImplementation("io.micronaut.aws:micronaut-function-aws-test")
     testImplementation("org.assertj:assertj-core:3.24.2")
@@ -46,11 +104,18 @@ dependencies {
     testImplementation("org.instancio:instancio-core:2.6.0")
     testImplementation("org.instancio:instancio-junit:2.9.0")
     testImplementation("software.amazon.awssdk:eventbridge")
+    testImplementation("software.amazon.awssdk:s3")
 }
 
 configurations.all {
     exclude(group = "software.amazon.awssdk", module = "netty-nio-client")
-    exclude(group = "software.amazon.awssdk", module = "apache-client")
+}
+
+if ("apache" !in sdkHttpClients) {
+    // micronaut-aws-sdk-v2 brings the Apache client along, it is only compiled against unless it is opted into
+    configurations.matching { it.name == "runtimeClasspath" || it.name.endsWith("RuntimeClasspath") }.configureEach {
+        exclude(group = "software.amazon.awssdk", module = "apache-client")
+    }
 }
 
 java {
@@ -58,30 +123,79 @@ java {
     targetCompatibility = JavaVersion.toVersion("17")
 }
 
-//graalvmNative.toolchainDetection.set(false)
+graalvmNative {
+    toolchainDetection.set(false)
+    binaries {
+        named("main") {
+            imageName.set("enricher")
+            mainClass.set("de.roamingthings.runtime.NativeLambdaRuntime")
+            buildArgs.addAll(
+                "--no-fallback",
+                "--enable-url-protocols=http,https",
+                "-H:+ReportExceptionStackTraces"
+            )
+        }
+    }
+}
+
+// Packages the native image with its bootstrap script for the provided.al2 custom runtime
+tasks.register<Zip>("nativeLambdaZip") {
+    dependsOn("nativeCompile")
+    archiveFileName.set("app-${project.version}-lambda.zip")
+    destinationDirectory.set(layout.buildDirectory.dir("libs"))
+    from(layout.buildDirectory.file("native/nativeCompile/enricher")) {
+        fileMode = "755".toInt(radix = 8)
+    }
+    from("src/main/lambda/bootstrap") {
+        fileMode = "755".toInt(radix = 8)
+    }
+}
+
+// The AOT optimizations, each can be overridden with -Paot.<name>=<true|false> to measure its effect on the startup
+val aotFlags = mapOf(
+    "optimizeServiceLoading" to false,
+    "convertYamlToJava" to false,
+    "precomputeOperations" to true,
+    "cacheEnvironment" to true,
+    "optimizeClassLoading" to true,
+    "deduceEnvironment" to true,
+    "optimizeNetty" to true
+).mapValues { (name, default) -> providers.gradleProperty("aot.$name").map(String::toBoolean).getOrElse(default) }
+
 micronaut {
     runtime("lambda_java")
     testRuntime("junit5")
     processing {
         incremental(true)
         annotations("de.roamingthings.*")
+        sourceSets(bulkLoad, capture)
     }
     aot {
         // Please review carefully the optimizations enabled below
         // Check https://micronaut-projects.github.io/micronaut-aot/latest/guide/ for more details
-        optimizeServiceLoading.set(false)
-        convertYamlToJava.set(false)
-        precomputeOperations.set(true)
-        cacheEnvironment.set(true)
-        optimizeClassLoading.set(true)
-        deduceEnvironment.set(true)
-        optimizeNetty.set(true)
+        optimizeServiceLoading.set(aotFlags.getValue("optimizeServiceLoading"))
+        convertYamlToJava.set(aotFlags.getValue("convertYamlToJava"))
+        precomputeOperations.set(aotFlags.getValue("precomputeOperations"))
+        cacheEnvironment.set(aotFlags.getValue("cacheEnvironment"))
+        optimizeClassLoading.set(aotFlags.getValue("optimizeClassLoading"))
+        deduceEnvironment.set(aotFlags.getValue("deduceEnvironment"))
+        optimizeNetty.set(aotFlags.getValue("optimizeNetty"))
     }
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
 tasks.test {
     useJUnitPlatform() {
-        excludeTags("system")
+        excludeTags("system", "emulator", "replay")
     }
 
     testLogging {
@@ -105,3 +219,52 @@ tasks.register<Test>("systemTests") {
         showStackTraces = true
     }
 }
+
+// Bulk loads persons into the person table, e.g. --args="persons.jsonl --table <name> [--endpoint http://localhost:8000]"
+tasks.register<JavaExec>("bulkLoadPersons") {
+    classpath = bulkLoad.runtimeClasspath
+    mainClass.set("de.roamingthings.person.PersonBulkLoadCli")
+}
+
+// Measures the startup of the plain and the AOT optimized jar in fresh JVMs, settings are passed as -Pstartup.<name>=<value>
+tasks.register<JavaExec>("startupBenchmark") {
+    val plainJar = tasks.named<Jar>("shadowJar").flatMap { it.archiveFile }
+    val optimizedJar = tasks.named<Jar>("optimizedJitJarAll").flatMap { it.archiveFile }
+    val label = providers.gradleProperty("startup.label").getOrElse("default")
+    dependsOn("shadowJar", "optimizedJitJarAll")
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("de.roamingthings.benchmark.StartupBenchmarkRunner")
+    outputs.upToDateWhen { false }
+    systemProperties(project.properties.filterKeys { it.startsWith("startup.") })
+    systemProperty("startup.aot-flags", aotFlags.entries.joinToString(",") { "${it.key}=${it.value}" })
+    systemProperty("startup.probe-classpath", sourceSets["jmh"].output.classesDirs.asPath)
+    systemProperty("startup.report", layout.buildDirectory.file("results/startup/$label.json").get().asFile.absolutePath)
+    doFirst {
+        systemProperty("startup.plain-jar", plainJar.get().asFile.absolutePath)
+        systemProperty("startup.optimized-jar", optimizedJar.get().asFile.absolutePath)
+    }
+}
+
+// Runs the in-JVM pipe emulator, settings are passed as -Pemulator.<name>=<value>
+tasks.register<Test>("pipeEmulation") {
+    useJUnitPlatform {
+        includeTags("emulator")
+    }
+    outputs.upToDateWhen { false }
+    systemProperties(project.properties.filterKeys { it.startsWith("emulator.") })
+    testLogging {
+        showStandardStreams = true
+    }
+}
+
+// Replays payloads captured by the PayloadRecorder, settings are passed as -Preplay.<name>=<value>
+tasks.register<Test>("payloadReplay") {
+    useJUnitPlatform {
+        includeTags("replay")
+    }
+    outputs.upToDateWhen { false }
+    systemProperties(project.properties.filterKeys { it.startsWith("replay.") })
+    testLogging {
+        showStandardStreams = true
+    }
+}
@@ -0,0 +1,55 @@
+package de.roamingthings.person;
+
+import io.micronaut.context.ApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+/**
+ * Command line entry point of the {@link PersonBulkLoader}:
+ * <pre>
+ * PersonBulkLoadCli &lt;file&gt; --table &lt;table name&gt; [--writers &lt;n&gt;] [--endpoint &lt;url&gt;]
+ * </pre>
+ * {@code --endpoint} points the DynamoDB client at a local stand-in such as DynamoDB Local.
+ */
+public final class PersonBulkLoadCli {
+
+    private PersonBulkLoadCli() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            usage();
+            return;
+        }
+        var file = Path.of(args[0]);
+        var properties = new HashMap<String, Object>();
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--table" -> properties.put("personTableName", args[i + 1]);
+                case "--writers" -> properties.put("person.bulk-load.writers", args[i + 1]);
+                case "--endpoint" -> properties.put("aws.services.dynamodb.endpoint-override", args[i + 1]);
+                default -> {
+                    usage();
+                    return;
+                }
+            }
+        }
+        if (!properties.containsKey("personTableName")) {
+            usage();
+            return;
+        }
+        try (var applicationContext = ApplicationContext.builder().properties(properties).start();
+             var persons = PersonFileReader.open(file)) {
+            var progress = applicationContext.getBean(PersonBulkLoader.class)
+                    .load(persons, current -> System.out.println("Loaded " + current));
+            System.out.println("Done: " + progress);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: PersonBulkLoadCli <file> --table <table name> [--writers <n>] [--endpoint <url>]");
+        System.exit(2);
+    }
+}
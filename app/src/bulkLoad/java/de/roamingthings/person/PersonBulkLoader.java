@@ -0,0 +1,217 @@
+package de.roamingthings.person;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Writes large numbers of persons into the person table using {@code BatchWriteItem}.
+ * <p>
+ * The persons are consumed as a stream and grouped into batches of {@value #MAX_BATCH_WRITE_ITEMS}, which are written
+ * by {@code person.bulk-load.writers} parallel writers. At most twice as many batches as writers are held in memory.
+ * Unprocessed items are retried with exponential backoff and full jitter. The items expire like the ones written by
+ * {@link PersonRepository#save(Person)}.
+ */
+@Singleton
+@Introspected
+public class PersonBulkLoader {
+
+    /**
+     * Maximum number of items DynamoDB accepts in a single BatchWriteItem request.
+     */
+    public static final int MAX_BATCH_WRITE_ITEMS = 25;
+    private static final int MAX_UNPROCESSED_ITEMS_RETRIES = 8;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final String tableName;
+    private final DynamoDbClient dynamoDbClient;
+    private final Clock systemClock;
+    private final PersonCache personCache;
+    private final int writers;
+    private final Duration progressInterval;
+    private final long baseBackoffMillis;
+
+    public PersonBulkLoader(
+            @Value("${personTableName}") String tableName,
+            DynamoDbClient dynamoDbClient,
+            Clock systemClock,
+            PersonCache personCache,
+            @Value("${person.bulk-load.writers:4}") int writers,
+            @Value("${person.bulk-load.progress-interval:5s}") Duration progressInterval,
+            @Value("${person.bulk-load.base-backoff:50ms}") Duration baseBackoff) {
+        this.tableName = tableName;
+        this.dynamoDbClient = dynamoDbClient;
+        this.systemClock = systemClock;
+        this.personCache = personCache;
+        this.writers = Math.max(1, writers);
+        this.progressInterval = progressInterval;
+        this.baseBackoffMillis = Math.max(1, baseBackoff.toMillis());
+    }
+
+    /**
+     * Writes all persons. Within a batch, a later person replaces an earlier one with the same id, as DynamoDB rejects
+     * batches that write the same key twice.
+     *
+     * @param progressListener is called from the writer threads about every {@code person.bulk-load.progress-interval}
+     * @return the progress after the last batch has been written
+     * @throws UnprocessedItemsException if the items of a batch remain unprocessed after all retries
+     */
+    public Progress load(Iterator<Person> persons, Consumer<Progress> progressListener) {
+        var tracker = new ProgressTracker(progressListener);
+        var maxBatchesInFlight = writers * 2;
+        var batchesInFlight = new Semaphore(maxBatchesInFlight);
+        var failure = new AtomicReference<RuntimeException>();
+        var executor = createWriterExecutor();
+        try {
+            var batch = new LinkedHashMap<String, Person>(MAX_BATCH_WRITE_ITEMS);
+            while (persons.hasNext() && failure.get() == null) {
+                var person = persons.next();
+                batch.put(person.id(), person);
+                if (batch.size() == MAX_BATCH_WRITE_ITEMS) {
+                    submit(List.copyOf(batch.values()), executor, batchesInFlight, failure, tracker);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty() && failure.get() == null) {
+                submit(List.copyOf(batch.values()), executor, batchesInFlight, failure, tracker);
+            }
+            acquire(batchesInFlight, maxBatchesInFlight);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        var progress = tracker.progress();
+        progressListener.accept(progress);
+        return progress;
+    }
+
+    private void submit(List<Person> batch, ExecutorService executor, Semaphore batchesInFlight,
+                        AtomicReference<RuntimeException> failure, ProgressTracker tracker) {
+        acquire(batchesInFlight, 1);
+        executor.execute(() -> {
+            try {
+                writeBatch(batch, tracker);
+                tracker.reportIfDue();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                batchesInFlight.release();
+            }
+        });
+    }
+
+    private void writeBatch(List<Person> batch, ProgressTracker tracker) {
+        var expiresAtEpochSecond = systemClock.millis() / 1000 + PersonRepository.EXPIRE_IN_SECONDS;
+        var writeRequests = batch.stream()
+                .map(person -> WriteRequest.builder()
+                        .putRequest(putRequest -> putRequest.item(PersonItemMapper.toItem(person, expiresAtEpochSecond)))
+                        .build())
+                .toList();
+        Map<String, List<WriteRequest>> requestItems = Map.of(tableName, writeRequests);
+        for (int attempt = 0; !requestItems.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                if (attempt > MAX_UNPROCESSED_ITEMS_RETRIES) {
+                    throw new UnprocessedItemsException(requestItems.get(tableName).size(), attempt);
+                }
+                tracker.retries.incrementAndGet();
+                backoff(attempt);
+            }
+            var pendingItems = requestItems;
+            var response = dynamoDbClient.batchWriteItem(request -> request.requestItems(pendingItems));
+            requestItems = response.hasUnprocessedItems() ? response.unprocessedItems() : Map.of();
+            var unprocessed = requestItems.getOrDefault(tableName, List.of()).size();
+            tracker.itemsWritten.addAndGet(pendingItems.get(tableName).size() - unprocessed);
+        }
+        tracker.batchesWritten.incrementAndGet();
+        batch.forEach(person -> personCache.invalidate(person.id()));
+    }
+
+    private ExecutorService createWriterExecutor() {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(writers, runnable -> {
+            var thread = new Thread(runnable, "person-bulk-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the writers", e);
+        }
+    }
+
+    private void backoff(int attempt) {
+        var maxDelay = Math.min(baseBackoffMillis << Math.min(attempt - 1, 16), MAX_BACKOFF_MILLIS);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry unprocessed items", e);
+        }
+    }
+
+    /**
+     * @param retries the number of BatchWriteItem requests that retried unprocessed items
+     */
+    public record Progress(long itemsWritten, long batchesWritten, long retries, Duration elapsed) {
+
+        public double itemsPerSecond() {
+            return elapsed.isZero() ? 0 : itemsWritten * 1_000_000_000.0 / elapsed.toNanos();
+        }
+
+        @Override
+        public String toString() {
+            return "%d items in %d batches (%d retries) in %.1fs, %.0f items/s"
+                    .formatted(itemsWritten, batchesWritten, retries, elapsed.toMillis() / 1000.0, itemsPerSecond());
+        }
+    }
+
+    private class ProgressTracker {
+
+        private final Consumer<Progress> listener;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong lastReportNanos = new AtomicLong(startNanos);
+        private final AtomicLong itemsWritten = new AtomicLong();
+        private final AtomicLong batchesWritten = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+
+        ProgressTracker(Consumer<Progress> listener) {
+            this.listener = listener;
+        }
+
+        Progress progress() {
+            return new Progress(itemsWritten.get(), batchesWritten.get(), retries.get(), Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+
+        void reportIfDue() {
+            var now = System.nanoTime();
+            var last = lastReportNanos.get();
+            if (now - last >= progressInterval.toNanos() && lastReportNanos.compareAndSet(last, now)) {
+                listener.accept(progress());
+            }
+        }
+    }
+}
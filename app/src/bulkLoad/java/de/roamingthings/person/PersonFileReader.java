@@ -0,0 +1,180 @@
+package de.roamingthings.person;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams persons from a file, one person per line.
+ * <p>
+ * Files ending in {@code .csv} need a header line naming the columns {@code id}, {@code firstName} and
+ * {@code lastName}, fields may be quoted. All other files are read as JSON lines
+ * ({@code {"id": ..., "firstName": ..., "lastName": ...}}). Blank lines are skipped.
+ */
+public class PersonFileReader implements Iterator<Person>, Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final BufferedReader reader;
+    private final String source;
+    private final boolean csv;
+    private int[] csvColumns;
+    private int lineNumber;
+    private Person next;
+
+    PersonFileReader(Reader reader, String source, boolean csv) {
+        this.reader = new BufferedReader(reader);
+        this.source = source;
+        this.csv = csv;
+    }
+
+    public static PersonFileReader open(Path path) throws IOException {
+        return new PersonFileReader(Files.newBufferedReader(path, StandardCharsets.UTF_8), path.toString(),
+                path.getFileName().toString().toLowerCase().endsWith(".csv"));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Person next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var person = next;
+        next = null;
+        return person;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Person readNext() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!csv) {
+                    return parseJson(line);
+                }
+                if (csvColumns == null) {
+                    csvColumns = parseCsvHeader(line);
+                } else {
+                    return parseCsv(line);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Person parseJson(String line) throws IOException {
+        String id = null;
+        String firstName = null;
+        String lastName = null;
+        try (var parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw invalidLine("expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "id" -> id = parser.getValueAsString();
+                    case "firstName" -> firstName = parser.getValueAsString();
+                    case "lastName" -> lastName = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw invalidLine(e.getOriginalMessage());
+        }
+        return toPerson(id, firstName, lastName);
+    }
+
+    private int[] parseCsvHeader(String line) {
+        var header = splitCsv(line);
+        var columns = new int[]{header.indexOf("id"), header.indexOf("firstName"), header.indexOf("lastName")};
+        for (int column : columns) {
+            if (column < 0) {
+                throw invalidLine("the header must name the columns id, firstName and lastName");
+            }
+        }
+        return columns;
+    }
+
+    private Person parseCsv(String line) {
+        var fields = splitCsv(line);
+        return toPerson(field(fields, csvColumns[0]), field(fields, csvColumns[1]), field(fields, csvColumns[2]));
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column) : null;
+    }
+
+    private List<String> splitCsv(String line) {
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            var c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw invalidLine("unterminated quote");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private Person toPerson(String id, String firstName, String lastName) {
+        if (id == null || id.isEmpty() || firstName == null || lastName == null) {
+            throw invalidLine("id, firstName and lastName are required");
+        }
+        return new Person(id, firstName, lastName);
+    }
+
+    private IllegalArgumentException invalidLine(String reason) {
+        return new IllegalArgumentException("Invalid person in line %d of %s: %s".formatted(lineNumber, source, reason));
+    }
+}
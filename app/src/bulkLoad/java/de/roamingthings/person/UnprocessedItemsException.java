@@ -0,0 +1,8 @@
+package de.roamingthings.person;
+
+public class UnprocessedItemsException extends IllegalStateException {
+
+    public UnprocessedItemsException(int unprocessedItems, int attempts) {
+        super("%d items remained unprocessed after %d attempts".formatted(unprocessedItems, attempts));
+    }
+}
@@ -0,0 +1,99 @@
+package de.roamingthings.capture;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Format of captured payloads: a gzip compressed stream of JSON objects, one per invocation, of the form
+ * {@code {"i": "<instance id>", "t": <offset in ms>, "bodies": ["<body>", ...]}}. The offsets are relative to the first
+ * invocation captured by the same function instance, so they only order the batches of one instance.
+ */
+public final class CaptureFile {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String INSTANCE = "i";
+    private static final String OFFSET = "t";
+    private static final String BODIES = "bodies";
+
+    private CaptureFile() {
+    }
+
+    static JsonGenerator createGenerator(OutputStream output) throws IOException {
+        return JSON_FACTORY.createGenerator(output).setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    static void write(JsonGenerator generator, CapturedBatch batch) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField(INSTANCE, batch.instanceId());
+        generator.writeNumberField(OFFSET, batch.offsetMillis());
+        generator.writeArrayFieldStart(BODIES);
+        for (var body : batch.bodies()) {
+            generator.writeString(body);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Reads a capture file, or all capture files of a directory, e.g. one that the uploads were synced into.
+     */
+    public static List<CapturedBatch> read(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            var batches = new ArrayList<CapturedBatch>();
+            try (var files = Files.walk(path)) {
+                for (var file : files.filter(Files::isRegularFile).sorted().toList()) {
+                    batches.addAll(read(file));
+                }
+            }
+            return batches;
+        }
+        try (var input = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return read(input);
+        }
+    }
+
+    static List<CapturedBatch> read(InputStream input) throws IOException {
+        var batches = new ArrayList<CapturedBatch>();
+        try (var parser = JSON_FACTORY.createParser(input)) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batches.add(readBatch(parser));
+            }
+        }
+        return batches;
+    }
+
+    private static CapturedBatch readBatch(JsonParser parser) throws IOException {
+        var instanceId = "";
+        long offsetMillis = 0;
+        var bodies = new ArrayList<String>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var fieldName = parser.getCurrentName();
+            var valueToken = parser.nextToken();
+            if (INSTANCE.equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                instanceId = parser.getText();
+            } else if (OFFSET.equals(fieldName)) {
+                offsetMillis = parser.getLongValue();
+            } else if (BODIES.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                    bodies.add(parser.getText());
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new CapturedBatch(instanceId, offsetMillis, bodies);
+    }
+}
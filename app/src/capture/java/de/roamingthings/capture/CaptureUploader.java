@@ -0,0 +1,18 @@
+package de.roamingthings.capture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Exports the capture files out of the function instance, see {@link S3CaptureUploader}.
+ */
+@FunctionalInterface
+public interface CaptureUploader {
+
+    /**
+     * Uploads a complete capture file.
+     *
+     * @param key the name of the upload, unique per function instance and part
+     */
+    void upload(Path file, String key) throws IOException;
+}
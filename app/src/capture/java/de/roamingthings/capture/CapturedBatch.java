@@ -0,0 +1,12 @@
+package de.roamingthings.capture;
+
+import java.util.List;
+
+/**
+ * The message bodies of one invocation.
+ *
+ * @param instanceId   the function instance that captured the invocation
+ * @param offsetMillis the time of the invocation relative to the first invocation captured by the same instance
+ */
+public record CapturedBatch(String instanceId, long offsetMillis, List<String> bodies) {
+}
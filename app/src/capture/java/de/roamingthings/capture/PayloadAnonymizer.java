@@ -0,0 +1,70 @@
+package de.roamingthings.capture;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Replaces the string values at the given JSON pointers with pseudonyms.
+ * <p>
+ * A pseudonym is derived from the salted SHA-256 hash of the value, so equal values get equal pseudonyms and the id
+ * distribution is preserved. It replaces the characters between the quotes in place, so everything else of the body,
+ * including its whitespace, is kept and the body keeps its length in characters. Escaped values are replaced by as
+ * many characters as their escaped form has. Bodies that are no valid JSON are replaced by a placeholder of the same
+ * length.
+ */
+public class PayloadAnonymizer {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Set<String> pointers;
+    private final byte[] salt;
+
+    public PayloadAnonymizer(Set<String> pointers, String salt) {
+        this.pointers = Set.copyOf(pointers);
+        this.salt = salt.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String anonymize(String body) {
+        StringBuilder anonymized = null;
+        try (var parser = JSON_FACTORY.createParser(body)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_STRING && pointers.contains(parser.getParsingContext().pathAsPointer().toString())) {
+                    var value = parser.getText();
+                    // The value is read completely, so the location is behind its closing quote
+                    var start = (int) parser.currentTokenLocation().getCharOffset() + 1;
+                    var end = (int) parser.currentLocation().getCharOffset() - 1;
+                    if (anonymized == null) {
+                        anonymized = new StringBuilder(body);
+                    }
+                    anonymized.replace(start, end, pseudonym(value, end - start));
+                }
+            }
+        } catch (IOException e) {
+            return "x".repeat(body.length());
+        }
+        return anonymized != null ? anonymized.toString() : body;
+    }
+
+    String pseudonym(String value, int length) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            var hex = HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+            var pseudonym = new StringBuilder(length);
+            while (pseudonym.length() < length) {
+                pseudonym.append(hex, 0, Math.min(hex.length(), length - pseudonym.length()));
+            }
+            return pseudonym.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
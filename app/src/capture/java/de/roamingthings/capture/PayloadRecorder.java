@@ -0,0 +1,143 @@
+package de.roamingthings.capture;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Captures the anonymised message bodies of each invocation into a {@link CaptureFile} to replay them locally.
+ * <p>
+ * Only packaged with {@code -PpayloadCapture=true} and disabled by default. The values at the pointers of {@code capture.anonymize} are replaced by pseudonyms, see
+ * {@link PayloadAnonymizer}. Set {@code capture.salt} to get the same pseudonyms across function instances, otherwise
+ * a random salt is used. At most {@code capture.max-batches} invocations are captured.
+ * <p>
+ * Each batch is recorded with the id of the function instance and its offset to the first batch of that instance. The
+ * id is created with the first batch, so instances restored from the same SnapStart snapshot get different ids. With
+ * an {@link CaptureUploader}, e.g. when {@code capture.bucket} is set, the capture file is uploaded and started anew
+ * every {@code capture.upload-batches} batches and when the recorder is closed. The upload runs within the invocation
+ * that completes the part, a failed upload is retried with the next part.
+ */
+@Slf4j
+@Singleton
+@Introspected
+@Requires(property = "capture.enabled", value = "true", defaultValue = "false")
+public class PayloadRecorder implements PayloadCapture, Closeable {
+
+    private final Path file;
+    private final int maxBatches;
+    private final int uploadBatches;
+    private final PayloadAnonymizer anonymizer;
+    private final Clock systemClock;
+    private final CaptureUploader uploader;
+
+    private JsonGenerator generator;
+    private String instanceId;
+    private long firstCapture = -1;
+    private int capturedBatches;
+    private int pendingBatches;
+    private int uploadedParts;
+
+    public PayloadRecorder(
+            @Value("${capture.file:/tmp/capture.json.gz}") String file,
+            @Value("${capture.max-batches:10000}") int maxBatches,
+            @Value("${capture.upload-batches:100}") int uploadBatches,
+            @Value("${capture.anonymize:/detail/id,/account}") String anonymizedPointers,
+            @Value("${capture.salt:}") String salt,
+            Clock systemClock,
+            @Nullable CaptureUploader uploader) {
+        this.file = Path.of(file);
+        this.maxBatches = maxBatches;
+        this.uploadBatches = uploadBatches;
+        this.anonymizer = new PayloadAnonymizer(Set.of(anonymizedPointers.split(",")), salt.isEmpty() ? UUID.randomUUID().toString() : salt);
+        this.systemClock = systemClock;
+        this.uploader = uploader;
+    }
+
+    /**
+     * Captures the bodies of one invocation. Failures to write or to upload are logged and do not fail the invocation.
+     */
+    @Override
+    public synchronized void record(List<String> bodies) {
+        if (capturedBatches >= maxBatches) {
+            return;
+        }
+        var now = systemClock.millis();
+        if (instanceId == null) {
+            instanceId = UUID.randomUUID().toString();
+            firstCapture = now;
+        }
+        var anonymized = new ArrayList<String>(bodies.size());
+        for (var body : bodies) {
+            anonymized.add(body != null ? anonymizer.anonymize(body) : "");
+        }
+        try {
+            if (generator == null) {
+                generator = CaptureFile.createGenerator(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                        file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)), true));
+                log.info("Capturing payloads of instance {} to {}", instanceId, file);
+            }
+            CaptureFile.write(generator, new CapturedBatch(instanceId, now - firstCapture, anonymized));
+            generator.flush();
+            capturedBatches++;
+            pendingBatches++;
+        } catch (IOException e) {
+            log.warn("Could not capture payloads to {}", file, e);
+        }
+        if (pendingBatches >= uploadBatches || capturedBatches >= maxBatches) {
+            upload();
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        closeFile();
+        upload();
+    }
+
+    private void upload() {
+        if (uploader == null || pendingBatches == 0) {
+            return;
+        }
+        // Each part is a complete gzip file, the next batch starts a new one
+        closeFile();
+        var key = "%s/%05d.json.gz".formatted(instanceId, uploadedParts);
+        try {
+            uploader.upload(file, key);
+            Files.delete(file);
+            uploadedParts++;
+            pendingBatches = 0;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not upload capture file {} as {}", file, key, e);
+        }
+    }
+
+    private void closeFile() {
+        if (generator != null) {
+            try {
+                generator.close();
+            } catch (IOException e) {
+                log.warn("Could not close capture file {}", file, e);
+            }
+            generator = null;
+        }
+    }
+}
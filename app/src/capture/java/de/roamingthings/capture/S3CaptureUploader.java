@@ -0,0 +1,44 @@
+package de.roamingthings.capture;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.nio.file.Path;
+
+/**
+ * Uploads the capture files to the bucket {@code capture.bucket} below {@code capture.prefix}. Without a bucket the
+ * captures stay in the file system of the function instance.
+ */
+@Singleton
+@Introspected
+@Requires(property = "capture.bucket")
+public class S3CaptureUploader implements CaptureUploader {
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String prefix;
+
+    public S3CaptureUploader(
+            S3Client s3Client,
+            @Value("${capture.bucket}") String bucket,
+            @Value("${capture.prefix:captures/}") String prefix) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void upload(Path file, String key) {
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(prefix + key)
+                        .contentType("application/gzip")
+                        .build(),
+                RequestBody.fromFile(file));
+    }
+}
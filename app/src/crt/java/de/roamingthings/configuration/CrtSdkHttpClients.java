@@ -0,0 +1,28 @@
+package de.roamingthings.configuration;
+
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+
+import java.time.Duration;
+
+/**
+ * Builds the AWS CRT HTTP client. It is only compiled into the function with {@code -PsdkHttpClients=crt}, along with
+ * the {@code aws-crt-client} dependency and the SDK version it needs.
+ */
+@Singleton
+@Introspected
+public class CrtSdkHttpClients implements CrtSdkHttpClientBuilder {
+
+    @Override
+    public SdkHttpClient build(int maxConnections, Duration connectionTimeToLive, Duration connectionTimeout,
+                               Duration connectionAcquisitionTimeout) {
+        return AwsCrtHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionMaxIdleTime(connectionTimeToLive)
+                .connectionTimeout(connectionTimeout)
+                .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package de.roamingthings.benchmark;
+
+import de.roamingthings.events.PersonCreatedDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static de.roamingthings.events.AwsEventUnmarshaller.DETAIL_ID;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AwsEventUnmarshallerBenchmark {
+
+    @Param({"small", "large"})
+    public String envelope;
+
+    private EnrichmentFixture fixture;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new EnrichmentFixture();
+        json = "small".equals(envelope)
+                ? BenchmarkEvents.smallEnvelope(EnrichmentFixture.personId(1))
+                : BenchmarkEvents.largeEnvelope(EnrichmentFixture.personId(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public String fullBinding() {
+        return fixture.awsEventUnmarshaller.unmarshall(json, PersonCreatedDetails.class).getDetail().id();
+    }
+
+    @Benchmark
+    public Optional<String> detailIdExtraction() {
+        return fixture.awsEventUnmarshaller.extractText(json, DETAIL_ID);
+    }
+}
@@ -0,0 +1,65 @@
+package de.roamingthings.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+final class BenchmarkEvents {
+
+    private BenchmarkEvents() {
+    }
+
+    static String smallEnvelope(String personId) {
+        return """
+                {
+                  "version": "0",
+                  "id": "a7e4d8b5-0f3d-4e6d-9cdc-2b2c0e0fe83c",
+                  "detail-type": "PersonCreated",
+                  "source": "de.roamingthings.person",
+                  "account": "123456789012",
+                  "time": "2021-08-01T12:34:56Z",
+                  "region": "eu-central-1",
+                  "resources": [],
+                  "detail": {
+                    "id": "%s"
+                  }
+                }
+                """.formatted(personId);
+    }
+
+    /**
+     * An envelope with many resources and detail attributes in front of the id, as seen for events of other producers.
+     */
+    static String largeEnvelope(String personId) {
+        var resources = IntStream.range(0, 50)
+                .mapToObj(i -> "\"arn:aws:dynamodb:eu-central-1:123456789012:table/person-%d\"".formatted(i))
+                .collect(Collectors.joining(","));
+        var attributes = IntStream.range(0, 50)
+                .mapToObj(i -> "\"attribute%d\": {\"value\": \"%s\", \"tags\": [\"a\", \"b\", \"c\"]}".formatted(i, "x".repeat(64)))
+                .collect(Collectors.joining(","));
+        return """
+                {
+                  "version": "0",
+                  "id": "a7e4d8b5-0f3d-4e6d-9cdc-2b2c0e0fe83c",
+                  "detail-type": "PersonCreated",
+                  "source": "de.roamingthings.person",
+                  "account": "123456789012",
+                  "time": "2021-08-01T12:34:56Z",
+                  "region": "eu-central-1",
+                  "resources": [%s],
+                  "detail": {
+                    %s,
+                    "id": "%s"
+                  }
+                }
+                """.formatted(resources, attributes, personId);
+    }
+
+    static SQSEvent.SQSMessage sqsMessage(int index, String body) {
+        var message = new SQSEvent.SQSMessage();
+        message.setMessageId("message-" + index);
+        message.setBody(body);
+        return message;
+    }
+}
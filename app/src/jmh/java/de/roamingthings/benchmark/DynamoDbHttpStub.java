@@ -0,0 +1,99 @@
+package de.roamingthings.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micronaut.serde.ObjectMapper;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal DynamoDB endpoint on the loopback interface that answers {@code GetItem} and {@code BatchGetItem} with a
+ * person for every key, so the function can be started with its real SDK client but without AWS.
+ */
+final class DynamoDbHttpStub implements AutoCloseable {
+
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.0";
+    private static final Duration ITEM_TTL = Duration.ofDays(1);
+
+    private final ObjectMapper objectMapper = ObjectMapper.getDefault();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+
+    DynamoDbHttpStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            var target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            var operation = target == null ? "" : target.substring(target.lastIndexOf('.') + 1);
+            Map<String, Object> request = objectMapper.readValue(exchange.getRequestBody().readAllBytes(), Map.class);
+            Map<String, Object> response = switch (operation) {
+                case "GetItem" -> Map.of("Item", item((Map<String, Object>) request.get("Key")));
+                case "BatchGetItem" -> batchGetItem((Map<String, Map<String, Object>>) request.get("RequestItems"));
+                default -> null;
+            };
+            if (response == null) {
+                respond(exchange, 400, """
+                        {"__type":"com.amazonaws.dynamodb.v20120810#UnknownOperationException","message":"%s"}"""
+                        .formatted(operation).getBytes(StandardCharsets.UTF_8));
+            } else {
+                respond(exchange, 200, objectMapper.writeValueAsBytes(response));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> batchGetItem(Map<String, Map<String, Object>> requestItems) {
+        var responses = new LinkedHashMap<String, Object>();
+        requestItems.forEach((tableName, keysAndAttributes) -> responses.put(tableName,
+                ((List<Map<String, Object>>) keysAndAttributes.get("Keys")).stream()
+                        .map(DynamoDbHttpStub::item)
+                        .toList()));
+        return Map.of("Responses", responses, "UnprocessedKeys", Map.of());
+    }
+
+    /**
+     * The item of a person, in the schema of {@code PersonItemMapper}.
+     */
+    private static Map<String, Object> item(Map<String, Object> key) {
+        var item = new LinkedHashMap<>(key);
+        item.put("firstName", Map.of("S", "Startup"));
+        item.put("lastName", Map.of("S", "Benchmark"));
+        item.put("expiresAt", Map.of("N", Long.toString(Instant.now().plus(ITEM_TTL).getEpochSecond())));
+        return item;
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
@@ -0,0 +1,55 @@
+package de.roamingthings.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end enrichment of a batch as done by {@code ThirdPartyApiRequestEnricherHandler.execute}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnrichmentBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    private EnrichmentFixture fixture;
+    private List<SQSEvent.SQSMessage> messages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new EnrichmentFixture();
+        fixture.savePersons(batchSize);
+        messages = IntStream.range(0, batchSize)
+                .mapToObj(i -> BenchmarkEvents.sqsMessage(i, BenchmarkEvents.smallEnvelope(EnrichmentFixture.personId(i))))
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<ThirdPartyApiRequestDetails> execute() {
+        var extracted = messages.stream()
+                .map(message -> fixture.enricher.extract(message.getMessageId(), message.getBody()))
+                .toList();
+        return fixture.enricher.enrich(extracted);
+    }
+}
@@ -0,0 +1,87 @@
+package de.roamingthings.benchmark;
+
+import de.roamingthings.ThirdPartyApiRequestEnricher;
+import de.roamingthings.configuration.ConnectionPoolMetricPublisher;
+import de.roamingthings.deadline.InvocationDeadline;
+import de.roamingthings.enrichment.EventEnricherRegistry;
+import de.roamingthings.enrichment.PersonCreatedEnricher;
+import de.roamingthings.events.AwsEventUnmarshaller;
+import de.roamingthings.failure.FailurePolicy;
+import de.roamingthings.failure.MessageFailureHandler;
+import de.roamingthings.idempotency.DynamoDbIdempotencyStore;
+import de.roamingthings.idempotency.IdempotencyGuard;
+import de.roamingthings.idempotency.LocalIdempotencyStore;
+import de.roamingthings.logging.ErrorLogLimiter;
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.person.AdaptiveConcurrencyLimiter;
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonCache;
+import de.roamingthings.person.PersonRepository;
+import de.roamingthings.person.ReadHedger;
+import io.micronaut.serde.ObjectMapper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wires the enrichment hot path by hand, backed by an {@link InMemoryDynamoDbClient}, so benchmarks measure the code
+ * and not the start of an application context.
+ */
+final class EnrichmentFixture implements AutoCloseable {
+
+    static final String TABLE_NAME = "benchmark-person-table";
+
+    final ObjectMapper objectMapper = ObjectMapper.getDefault();
+    final AwsEventUnmarshaller awsEventUnmarshaller = new AwsEventUnmarshaller(objectMapper);
+    final InMemoryDynamoDbClient dynamoDbClient = new InMemoryDynamoDbClient();
+    final ExecutorService lookupExecutor = Executors.newSingleThreadExecutor();
+    final InvocationMetrics invocationMetrics = new InvocationMetrics(
+            false, "Benchmark", "benchmark", new ConnectionPoolMetricPublisher(), line -> {
+    }, Clock.systemUTC());
+    final InvocationDeadline invocationDeadline = new InvocationDeadline(false, Duration.ZERO, Duration.ZERO,
+            Duration.ofSeconds(5), Duration.ofSeconds(1), Clock.systemUTC());
+    final PersonRepository personRepository = new PersonRepository(
+            TABLE_NAME,
+            dynamoDbClient,
+            Clock.systemUTC(),
+            new PersonCache(false, 0, Duration.ZERO, Duration.ZERO, Clock.systemUTC()),
+            1,
+            lookupExecutor,
+            invocationMetrics,
+            invocationDeadline,
+            new ReadHedger(false, 95, Duration.ZERO, Duration.ZERO, 0, Duration.ZERO, 25, lookupExecutor, invocationMetrics),
+            new AdaptiveConcurrencyLimiter(false, AdaptiveConcurrencyLimiter.Mode.WAIT, 1, 1, 1, 2, 0.9, Duration.ZERO, Duration.ZERO, invocationMetrics));
+    final ErrorLogLimiter errorLogLimiter = new ErrorLogLimiter(5, Duration.ofSeconds(60), Clock.systemUTC());
+    final MessageFailureHandler messageFailureHandler = new MessageFailureHandler(FailurePolicy.FAIL_BATCH, invocationMetrics, errorLogLimiter);
+    final ThirdPartyApiRequestEnricher enricher = new ThirdPartyApiRequestEnricher(
+            awsEventUnmarshaller,
+            new EventEnricherRegistry(awsEventUnmarshaller, List.of(new PersonCreatedEnricher(personRepository, messageFailureHandler, errorLogLimiter)), errorLogLimiter),
+            messageFailureHandler,
+            invocationMetrics,
+            errorLogLimiter,
+            new IdempotencyGuard(false, false, false,
+                    new LocalIdempotencyStore(Duration.ofMinutes(5), 0, Clock.systemUTC()),
+                    () -> new DynamoDbIdempotencyStore(TABLE_NAME, Duration.ofMinutes(5), dynamoDbClient, objectMapper, Clock.systemUTC(),
+                            lookupExecutor, invocationDeadline),
+                    errorLogLimiter),
+            256);
+
+    static String personId(int index) {
+        return "00000000-0000-0000-0000-%012d".formatted(index);
+    }
+
+    void savePersons(int count) {
+        for (int i = 0; i < count; i++) {
+            personRepository.save(new Person(personId(i), "First" + i, "Last" + i));
+        }
+    }
+
+    @Override
+    public void close() {
+        lookupExecutor.shutdownNow();
+        dynamoDbClient.close();
+    }
+}
@@ -0,0 +1,70 @@
+package de.roamingthings.benchmark;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal in-memory stand-in for the person table that supports the calls made by the {@code PersonRepository}.
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+
+    private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest getItemRequest) {
+        var item = items.get(keyOf(getItemRequest.key()));
+        return GetItemResponse.builder()
+                .item(item)
+                .build();
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest batchGetItemRequest) {
+        var responses = new HashMap<String, List<Map<String, AttributeValue>>>();
+        batchGetItemRequest.requestItems().forEach((tableName, keysAndAttributes) -> {
+            var found = new ArrayList<Map<String, AttributeValue>>(keysAndAttributes.keys().size());
+            for (var key : keysAndAttributes.keys()) {
+                var item = items.get(keyOf(key));
+                if (item != null) {
+                    found.add(item);
+                }
+            }
+            responses.put(tableName, found);
+        });
+        return BatchGetItemResponse.builder()
+                .responses(responses)
+                .build();
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest putItemRequest) {
+        items.put(keyOf(putItemRequest.item()), Map.copyOf(putItemRequest.item()));
+        return PutItemResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        items.clear();
+    }
+
+    private static String keyOf(Map<String, AttributeValue> item) {
+        return item.get("PK").s() + "|" + item.get("SK").s();
+    }
+}
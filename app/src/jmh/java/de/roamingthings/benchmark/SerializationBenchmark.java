@@ -0,0 +1,54 @@
+package de.roamingthings.benchmark;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import io.micronaut.core.type.Argument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Serialization of the handler's result list as done for the response of the Lambda function.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    private static final Argument<List<ThirdPartyApiRequestDetails>> RESULT_ARGUMENT = Argument.listOf(ThirdPartyApiRequestDetails.class);
+
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    private EnrichmentFixture fixture;
+    private List<ThirdPartyApiRequestDetails> result;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new EnrichmentFixture();
+        result = IntStream.range(0, batchSize)
+                .mapToObj(i -> new ThirdPartyApiRequestDetails(EnrichmentFixture.personId(i), "First" + i, "Last" + i))
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public byte[] serializeResult() throws IOException {
+        return fixture.objectMapper.writeValueAsBytes(RESULT_ARGUMENT, result);
+    }
+}
@@ -0,0 +1,244 @@
+package de.roamingthings.benchmark;
+
+import de.roamingthings.ThirdPartyApiRequestEnricherHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the startup of the function in fresh JVMs, see {@code ./gradlew :app:startupBenchmark}.
+ * <p>
+ * Each variant combines a jar (the plain shadow jar or the jar optimized by Micronaut AOT) with eager or lazy
+ * singletons, and, if {@code startup.crac-java} points to the {@code java} binary of a CRaC enabled JDK, a restore
+ * from a checkpoint taken after the context was created. Every variant runs {@code startup.runs} times after one
+ * discarded run that warms the file system cache. The {@link StartupProbe} is run against a {@link DynamoDbHttpStub},
+ * so the SDK client is created and connects as in Lambda.
+ * <p>
+ * Settings: {@code startup.report} (required), {@code startup.plain-jar}, {@code startup.optimized-jar},
+ * {@code startup.probe-classpath} (set by the Gradle task), {@code startup.jars} (default {@code plain,optimized}),
+ * {@code startup.runs} (default {@code 5}), {@code startup.invocations} (default {@code 10}),
+ * {@code startup.jvm-args}, {@code startup.crac-java}, {@code startup.label} and {@code startup.aot-flags} (recorded in
+ * the report), {@code startup.baseline} (a previous report; the run fails if a median is more than
+ * {@code startup.max-regression}, default {@code 0.2}, above the one of the baseline).
+ */
+public final class StartupBenchmarkRunner {
+
+    private static final Duration PROCESS_TIMEOUT = Duration.ofMinutes(5);
+    private static final int OUTPUT_LINES_ON_FAILURE = 20;
+
+    private final String probeClasspath;
+    private final List<String> jvmArgs;
+    private final String cracJava;
+    private final int invocations;
+
+    private StartupBenchmarkRunner(String probeClasspath, List<String> jvmArgs, String cracJava, int invocations) {
+        this.probeClasspath = probeClasspath;
+        this.jvmArgs = jvmArgs;
+        this.cracJava = cracJava;
+        this.invocations = invocations;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var reportFile = Path.of(required("startup.report"));
+        var runs = Integer.getInteger("startup.runs", 5);
+        var invocations = Integer.getInteger("startup.invocations", 10);
+        var jvmArgs = System.getProperty("startup.jvm-args", "").isBlank()
+                ? List.<String>of()
+                : Arrays.asList(System.getProperty("startup.jvm-args").trim().split("\\s+"));
+        var cracJava = System.getProperty("startup.crac-java");
+        var runner = new StartupBenchmarkRunner(required("startup.probe-classpath"), jvmArgs, cracJava, invocations);
+
+        var results = new ArrayList<StartupReport.VariantResult>();
+        try (var dynamoDb = new DynamoDbHttpStub()) {
+            for (var variant : variants(cracJava != null)) {
+                System.out.println("Measuring " + variant.name());
+                results.add(runner.measure(variant, dynamoDb.endpoint(), runs));
+            }
+        }
+        var report = new StartupReport(
+                System.getProperty("startup.label", "default"),
+                System.getProperty("startup.aot-flags", ""),
+                Runtime.version().toString(),
+                runs,
+                invocations,
+                results);
+        report.write(reportFile);
+        System.out.print(report.summary());
+        System.out.println("Report written to " + reportFile);
+
+        var baseline = System.getProperty("startup.baseline");
+        if (baseline != null) {
+            var maxRegression = Double.parseDouble(System.getProperty("startup.max-regression", "0.2"));
+            var regressions = report.regressionsAgainst(StartupReport.readMedians(Path.of(baseline)), maxRegression);
+            if (!regressions.isEmpty()) {
+                System.err.println("Startup regressions against " + baseline + ":");
+                regressions.forEach(regression -> System.err.println("  " + regression));
+                System.exit(1);
+            }
+        }
+    }
+
+    private static List<Variant> variants(boolean withCrac) {
+        var selected = List.of(System.getProperty("startup.jars", "plain,optimized").split(","));
+        var variants = new ArrayList<Variant>();
+        for (var jarName : selected) {
+            var jar = Path.of(required("startup." + jarName.trim() + "-jar"));
+            variants.add(new Variant(jarName.trim() + "-eager", jar, true, false));
+            variants.add(new Variant(jarName.trim() + "-lazy", jar, false, false));
+            if (withCrac) {
+                variants.add(new Variant(jarName.trim() + "-eager-crac", jar, true, true));
+            }
+        }
+        return variants;
+    }
+
+    private StartupReport.VariantResult measure(Variant variant, URI endpoint, int runs) throws IOException, InterruptedException {
+        var checkpoint = variant.crac() ? Files.createTempDirectory("startup-checkpoint") : null;
+        try {
+            if (checkpoint != null) {
+                takeCheckpoint(variant, endpoint, checkpoint);
+            }
+            run(command(variant, endpoint, checkpoint, false));
+            var samples = new ArrayList<Sample>(runs);
+            for (int i = 0; i < runs; i++) {
+                samples.add(run(command(variant, endpoint, checkpoint, false)));
+            }
+            return StartupReport.VariantResult.of(variant, samples);
+        } catch (IllegalStateException e) {
+            System.err.println(variant.name() + " failed: " + e.getMessage());
+            return StartupReport.VariantResult.failed(variant, e.getMessage());
+        } finally {
+            if (checkpoint != null) {
+                delete(checkpoint);
+            }
+        }
+    }
+
+    private void takeCheckpoint(Variant variant, URI endpoint, Path checkpoint) throws IOException, InterruptedException {
+        var process = new ProcessBuilder(command(variant, endpoint, checkpoint, true))
+                .redirectErrorStream(true)
+                .start();
+        var output = tail(process);
+        awaitExit(process);
+        try (var files = Files.list(checkpoint)) {
+            if (files.findAny().isEmpty()) {
+                throw new IllegalStateException("No checkpoint was written, exit code %d:%n%s".formatted(process.exitValue(), output));
+            }
+        }
+    }
+
+    private Sample run(List<String> command) throws IOException, InterruptedException {
+        var launchedAtMillis = System.currentTimeMillis();
+        var process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        String result = null;
+        var output = new ArrayDeque<String>();
+        try (var reader = process.inputReader()) {
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith(StartupProbe.RESULT_PREFIX)) {
+                    result = line.substring(StartupProbe.RESULT_PREFIX.length());
+                } else {
+                    keepTail(output, line);
+                }
+            }
+        }
+        awaitExit(process);
+        if (result == null) {
+            throw new IllegalStateException("The probe reported no result, exit code %d:%n%s".formatted(process.exitValue(), String.join(System.lineSeparator(), output)));
+        }
+        var values = result.split(" ");
+        return new Sample(
+                Long.parseLong(values[0]) - launchedAtMillis,
+                Double.parseDouble(values[1]),
+                Double.parseDouble(values[2]),
+                Double.parseDouble(values[3]));
+    }
+
+    private List<String> command(Variant variant, URI endpoint, Path checkpoint, boolean takeCheckpoint) {
+        var command = new ArrayList<String>();
+        command.add(variant.crac() ? cracJava : Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (variant.crac() && !takeCheckpoint) {
+            // A restored JVM keeps the arguments of the checkpointed one
+            command.add("-XX:CRaCRestoreFrom=" + checkpoint);
+            return command;
+        }
+        if (takeCheckpoint) {
+            command.add("-XX:CRaCCheckpointTo=" + checkpoint);
+        }
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(variant.jar() + File.pathSeparator + probeClasspath);
+        command.add("-D" + ThirdPartyApiRequestEnricherHandler.EAGER_INIT_PROPERTY + "=" + variant.eagerInit());
+        command.add("-DpersonTableName=startup-benchmark");
+        command.add("-Daws.region=eu-central-1");
+        command.add("-Daws.accessKeyId=startup-benchmark");
+        command.add("-Daws.secretAccessKey=startup-benchmark");
+        command.add("-Daws.services.dynamodb.endpoint-override=" + endpoint);
+        command.add("-Dstartup.invocations=" + invocations);
+        command.add("-Dstartup.checkpoint=" + takeCheckpoint);
+        command.add(StartupProbe.class.getName());
+        return command;
+    }
+
+    private static String tail(Process process) throws IOException {
+        var output = new ArrayDeque<String>();
+        try (var reader = process.inputReader()) {
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                keepTail(output, line);
+            }
+        }
+        return String.join(System.lineSeparator(), output);
+    }
+
+    private static void keepTail(ArrayDeque<String> output, String line) {
+        if (output.size() == OUTPUT_LINES_ON_FAILURE) {
+            output.removeFirst();
+        }
+        output.addLast(line);
+    }
+
+    private static void awaitExit(Process process) throws InterruptedException {
+        if (!process.waitFor(PROCESS_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("The probe did not finish within " + PROCESS_TIMEOUT);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static String required(String property) {
+        var value = System.getProperty(property);
+        if (value == null) {
+            throw new IllegalArgumentException("Set " + property);
+        }
+        return value;
+    }
+
+    record Variant(String name, Path jar, boolean eagerInit, boolean crac) {
+    }
+
+    /**
+     * @param readyMillis   from launching the JVM until the handler was created or restored
+     * @param contextMillis creating the handler and its application context, {@code -1} after a restore
+     */
+    record Sample(double readyMillis, double contextMillis, double firstInvocationMillis, double lastInvocationMillis) {
+    }
+}
@@ -0,0 +1,72 @@
+package de.roamingthings.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import de.roamingthings.ThirdPartyApiRequestEnricherHandler;
+import org.crac.Core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Started in a fresh JVM by the {@link StartupBenchmarkRunner}: creates the handler the way the Lambda runtime does and
+ * invokes it {@code startup.invocations} times with a batch of {@code startup.batch-size} events of persons that are
+ * not cached yet.
+ * <p>
+ * With {@code startup.checkpoint=true} a CRaC checkpoint is taken after the handler has been created, and the
+ * invocations run in the restored JVM.
+ */
+public final class StartupProbe {
+
+    /**
+     * Prefix of the result line: the time the handler was ready in epoch milliseconds, and the time to create the
+     * handler ({@code -1} after a restore), of the first and of the last invocation in milliseconds.
+     */
+    static final String RESULT_PREFIX = "startup-probe-result ";
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var invocations = Integer.getInteger("startup.invocations", 10);
+        var batchSize = Integer.getInteger("startup.batch-size", 10);
+
+        var contextStart = System.nanoTime();
+        var handler = new ThirdPartyApiRequestEnricherHandler();
+        var contextMillis = (System.nanoTime() - contextStart) / 1_000_000d;
+        if (Boolean.getBoolean("startup.checkpoint")) {
+            Core.checkpointRestore();
+            contextMillis = -1;
+        }
+        var readyAtMillis = System.currentTimeMillis();
+
+        var firstMillis = 0d;
+        var lastMillis = 0d;
+        for (int i = 0; i < invocations; i++) {
+            var batch = batch(batchSize);
+            var start = System.nanoTime();
+            var details = handler.execute(batch);
+            var elapsedMillis = (System.nanoTime() - start) / 1_000_000d;
+            if (details.size() != batch.size()) {
+                throw new IllegalStateException("Expected %d enriched messages but got %d".formatted(batch.size(), details.size()));
+            }
+            if (i == 0) {
+                firstMillis = elapsedMillis;
+            }
+            lastMillis = elapsedMillis;
+        }
+        System.out.println(RESULT_PREFIX + String.format(Locale.ROOT, "%d %.3f %.3f %.3f", readyAtMillis, contextMillis, firstMillis, lastMillis));
+        System.out.flush();
+        handler.close();
+        System.exit(0);
+    }
+
+    private static List<SQSEvent.SQSMessage> batch(int batchSize) {
+        var messages = new ArrayList<SQSEvent.SQSMessage>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            messages.add(BenchmarkEvents.sqsMessage(i, BenchmarkEvents.smallEnvelope(UUID.randomUUID().toString())));
+        }
+        return messages;
+    }
+}
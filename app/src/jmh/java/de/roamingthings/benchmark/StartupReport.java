@@ -0,0 +1,155 @@
+package de.roamingthings.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import io.micronaut.serde.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The result of a run of the {@link StartupBenchmarkRunner}, written as JSON so runs can be compared, e.g.
+ * <pre>
+ * {"label": "default", ..., "variants": [{"name": "optimized-eager", ..., "readyMillis": {"median": 812.0, "min": 790.0, "max": 845.0}, ...}]}
+ * </pre>
+ */
+record StartupReport(String label, String aotFlags, String javaVersion, int runs, int invocations, List<VariantResult> variants) {
+
+    static final List<String> METRICS = List.of("readyMillis", "contextMillis", "firstInvocationMillis", "lastInvocationMillis");
+
+    /**
+     * Differences below this are noise even if they exceed the allowed regression.
+     */
+    private static final double MIN_REGRESSION_MILLIS = 5;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (var generator = JSON_FACTORY.createGenerator(Files.newBufferedWriter(file))) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("label", label);
+            generator.writeStringField("aotFlags", aotFlags);
+            generator.writeStringField("javaVersion", javaVersion);
+            generator.writeNumberField("runs", runs);
+            generator.writeNumberField("invocations", invocations);
+            generator.writeArrayFieldStart("variants");
+            for (var variant : variants) {
+                generator.writeStartObject();
+                generator.writeStringField("name", variant.name());
+                generator.writeStringField("jar", variant.jar());
+                generator.writeBooleanField("eagerInit", variant.eagerInit());
+                generator.writeBooleanField("crac", variant.crac());
+                if (variant.error() != null) {
+                    generator.writeStringField("error", variant.error());
+                }
+                for (var metric : variant.metrics().entrySet()) {
+                    generator.writeObjectFieldStart(metric.getKey());
+                    generator.writeNumberField("median", metric.getValue().median());
+                    generator.writeNumberField("min", metric.getValue().min());
+                    generator.writeNumberField("max", metric.getValue().max());
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    String summary() {
+        var summary = new StringBuilder("%-28s %12s %12s %12s %12s%n".formatted("variant (median ms)", "ready", "context", "first", "last"));
+        for (var variant : variants) {
+            if (variant.error() != null) {
+                summary.append("%-28s failed: %s%n".formatted(variant.name(), variant.error().lines().findFirst().orElse("")));
+                continue;
+            }
+            summary.append("%-28s".formatted(variant.name()));
+            for (var metric : METRICS) {
+                var statistics = variant.metrics().get(metric);
+                summary.append(statistics == null ? "%12s".formatted("-") : String.format(Locale.ROOT, " %12.1f", statistics.median()));
+            }
+            summary.append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * @return a description of each median that is more than {@code maxRegression} (e.g. {@code 0.2} for 20 %) above
+     * the one of the same variant in the baseline
+     */
+    List<String> regressionsAgainst(Map<String, Map<String, Double>> baselineMedians, double maxRegression) {
+        var regressions = new ArrayList<String>();
+        for (var variant : variants) {
+            var baseline = baselineMedians.get(variant.name());
+            if (baseline == null) {
+                continue;
+            }
+            variant.metrics().forEach((metric, statistics) -> {
+                var baselineMedian = baseline.get(metric);
+                if (baselineMedian != null
+                        && statistics.median() > baselineMedian * (1 + maxRegression)
+                        && statistics.median() - baselineMedian > MIN_REGRESSION_MILLIS) {
+                    regressions.add(String.format(Locale.ROOT, "%s %s: %.1f ms, was %.1f ms", variant.name(), metric, statistics.median(), baselineMedian));
+                }
+            });
+        }
+        return regressions;
+    }
+
+    /**
+     * Reads the medians of a report, keyed by variant and metric.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Map<String, Double>> readMedians(Path file) throws IOException {
+        Map<String, Object> report = ObjectMapper.getDefault().readValue(Files.readAllBytes(file), Map.class);
+        var medians = new HashMap<String, Map<String, Double>>();
+        for (var variant : (List<Map<String, Object>>) report.get("variants")) {
+            var variantMedians = new HashMap<String, Double>();
+            for (var metric : METRICS) {
+                if (variant.get(metric) instanceof Map<?, ?> statistics && statistics.get("median") instanceof Number median) {
+                    variantMedians.put(metric, median.doubleValue());
+                }
+            }
+            medians.put((String) variant.get("name"), variantMedians);
+        }
+        return medians;
+    }
+
+    /**
+     * @param metrics the statistics per metric, metrics without a value (e.g. the context creation after a restore)
+     *                are left out
+     * @param error   why the variant could not be measured, {@code null} if it was
+     */
+    record VariantResult(String name, String jar, boolean eagerInit, boolean crac, Map<String, Statistics> metrics, String error) {
+
+        static VariantResult failed(StartupBenchmarkRunner.Variant variant, String error) {
+            return new VariantResult(variant.name(), variant.jar().toString(), variant.eagerInit(), variant.crac(), Map.of(), error);
+        }
+
+        static VariantResult of(StartupBenchmarkRunner.Variant variant, List<StartupBenchmarkRunner.Sample> samples) {
+            var metrics = new LinkedHashMap<String, Statistics>();
+            putStatistics(metrics, "readyMillis", samples.stream().map(StartupBenchmarkRunner.Sample::readyMillis).toList());
+            putStatistics(metrics, "contextMillis", samples.stream().map(StartupBenchmarkRunner.Sample::contextMillis).toList());
+            putStatistics(metrics, "firstInvocationMillis", samples.stream().map(StartupBenchmarkRunner.Sample::firstInvocationMillis).toList());
+            putStatistics(metrics, "lastInvocationMillis", samples.stream().map(StartupBenchmarkRunner.Sample::lastInvocationMillis).toList());
+            return new VariantResult(variant.name(), variant.jar().toString(), variant.eagerInit(), variant.crac(), metrics, null);
+        }
+
+        private static void putStatistics(Map<String, Statistics> metrics, String metric, List<Double> values) {
+            var measured = values.stream().filter(value -> value >= 0).sorted().toList();
+            if (!measured.isEmpty()) {
+                metrics.put(metric, new Statistics(measured.get(measured.size() / 2), measured.get(0), measured.get(measured.size() - 1)));
+            }
+        }
+    }
+
+    record Statistics(double median, double min, double max) {
+    }
+}
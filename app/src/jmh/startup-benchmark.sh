@@ -0,0 +1,19 @@
+#!/bin/sh
+# Measures the startup with the AOT optimizations of the build and then with each optimization switched to the
+# opposite setting. The reports are written to app/build/results/startup/<label>.json.
+# Further settings are passed on to Gradle, e.g. -Pstartup.runs=10 or -Pstartup.crac-java=/opt/crac-jdk/bin/java
+set -e
+cd "$(dirname "$0")/../../.."
+
+./gradlew :app:startupBenchmark -Pstartup.label=default "$@"
+
+for toggled in \
+    optimizeServiceLoading=true \
+    convertYamlToJava=true \
+    precomputeOperations=false \
+    cacheEnvironment=false \
+    optimizeClassLoading=false \
+    deduceEnvironment=false \
+    optimizeNetty=false; do
+  ./gradlew :app:startupBenchmark "-Paot.$toggled" "-Pstartup.label=aot-$(echo "$toggled" | tr '=' '-')" -Pstartup.jars=optimized "$@"
+done
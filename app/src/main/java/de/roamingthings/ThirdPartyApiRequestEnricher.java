@@ -0,0 +1,255 @@
+package de.roamingthings;
+
+import de.roamingthings.enrichment.EnrichmentItem;
+import de.roamingthings.enrichment.EventEnricher;
+import de.roamingthings.enrichment.EventEnricherRegistry;
+import de.roamingthings.events.AwsEventUnmarshaller;
+import de.roamingthings.events.EventBody;
+import de.roamingthings.events.UnmarshallingException;
+import de.roamingthings.failure.MessageFailureHandler;
+import de.roamingthings.idempotency.IdempotencyGuard;
+import de.roamingthings.logging.ErrorLogLimiter;
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.metrics.InvocationMetrics.Counter;
+import de.roamingthings.metrics.InvocationMetrics.Stage;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static de.roamingthings.events.AwsEventUnmarshaller.DETAIL_TYPE;
+import static de.roamingthings.events.AwsEventUnmarshaller.ID;
+import static de.roamingthings.events.AwsEventUnmarshaller.SOURCE;
+import static de.roamingthings.events.AwsEventUnmarshaller.TIME;
+import static de.roamingthings.logging.LoggingContext.EVENT_ID;
+import static de.roamingthings.logging.LoggingContext.MESSAGE_ID;
+
+/**
+ * Enriches a batch of messages in two phases: the detail of each message is read first and passed to the
+ * {@link EventEnricher} registered for its {@code detail-type}. Then each enricher enriches all of its messages at
+ * once and the results are emitted in the order of the messages.
+ * <p>
+ * Events of a detail type without an enricher are skipped before they are parsed, see
+ * {@link EventEnricherRegistry#mayHaveEnricher(EventBody)}.
+ * <p>
+ * Shared by the {@link ThirdPartyApiRequestEnricherHandler} and the {@link ThirdPartyApiRequestEnricherStreamHandler}.
+ * <p>
+ * Errors are logged through the {@link ErrorLogLimiter} and with at most {@code logging.body.max-length} characters
+ * of the message body ({@code 0} leaves the body out).
+ * <p>
+ * With {@code idempotency.enabled} the {@link IdempotencyGuard} is asked for events that were already enriched
+ * within the window, their result is returned without enriching them again. Further messages of an event within the
+ * same batch are left out, as the first one already delivers it.
+ */
+@Slf4j
+@Singleton
+@Introspected
+public class ThirdPartyApiRequestEnricher {
+
+    private static final List<String> ROUTING_POINTERS = List.of(ID, DETAIL_TYPE, SOURCE, TIME);
+
+    private final AwsEventUnmarshaller awsEventUnmarshaller;
+    private final EventEnricherRegistry eventEnricherRegistry;
+    private final MessageFailureHandler messageFailureHandler;
+    private final InvocationMetrics invocationMetrics;
+    private final ErrorLogLimiter errorLogLimiter;
+    private final IdempotencyGuard idempotencyGuard;
+    private final int bodyLogMaxLength;
+
+    public ThirdPartyApiRequestEnricher(
+            AwsEventUnmarshaller awsEventUnmarshaller,
+            EventEnricherRegistry eventEnricherRegistry,
+            MessageFailureHandler messageFailureHandler,
+            InvocationMetrics invocationMetrics,
+            ErrorLogLimiter errorLogLimiter,
+            IdempotencyGuard idempotencyGuard,
+            @Value("${logging.body.max-length:256}") int bodyLogMaxLength) {
+        this.awsEventUnmarshaller = awsEventUnmarshaller;
+        this.eventEnricherRegistry = eventEnricherRegistry;
+        this.messageFailureHandler = messageFailureHandler;
+        this.invocationMetrics = invocationMetrics;
+        this.errorLogLimiter = errorLogLimiter;
+        this.idempotencyGuard = idempotencyGuard;
+        this.bodyLogMaxLength = bodyLogMaxLength;
+    }
+
+    public ExtractedMessage extract(String messageId, String body) {
+        if (body == null) {
+            return failed(messageId, null, new UnmarshallingException("Message has no body"));
+        }
+        return extract(messageId, EventBody.of(body));
+    }
+
+    /**
+     * Same as {@link #extract(String, String)} but reads the body from a character buffer without copying it.
+     */
+    public ExtractedMessage extract(String messageId, char[] body, int offset, int length) {
+        return extract(messageId, EventBody.of(body, offset, length));
+    }
+
+    public List<ThirdPartyApiRequestDetails> enrich(List<ExtractedMessage> messages) {
+        var enriched = new ArrayList<ThirdPartyApiRequestDetails>(messages.size());
+        enrich(messages, enriched::add);
+        return enriched;
+    }
+
+    /**
+     * Enriches the messages with their enrichers and passes the request details to the consumer in the order of the
+     * messages. Messages without an enricher, without a detail or without an enrichment result are skipped.
+     */
+    public void enrich(List<ExtractedMessage> messages, Consumer<ThirdPartyApiRequestDetails> consumer) {
+        var enrichStart = System.nanoTime();
+        var results = new ThirdPartyApiRequestDetails[messages.size()];
+        var processed = findProcessed(messages);
+        var eventIdsInBatch = new HashMap<String, Integer>();
+        var itemsByEnricher = new LinkedHashMap<EventEnricher<?>, List<EnrichmentItem<?>>>();
+        var replayed = 0;
+        var duplicates = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            var message = messages.get(i);
+            if (message.enricher() == null || message.detail() == null) {
+                continue;
+            }
+            if (idempotencyGuard.isEnabled() && message.eventId() != null && eventIdsInBatch.putIfAbsent(message.eventId(), i) != null) {
+                duplicates++;
+            } else if (message.eventId() != null && processed.containsKey(message.eventId())) {
+                replayed++;
+                if (!idempotencyGuard.isSkipReplayed()) {
+                    results[i] = processed.get(message.eventId());
+                }
+            } else {
+                itemsByEnricher.computeIfAbsent(message.enricher(), enricher -> new ArrayList<>())
+                        .add(new EnrichmentItem<>(i, message.messageId(), message.detail()));
+            }
+        }
+        invocationMetrics.increment(Counter.REPLAYED, replayed);
+        invocationMetrics.increment(Counter.DUPLICATES, duplicates);
+        itemsByEnricher.forEach((enricher, items) -> {
+            try {
+                enrich(enricher, items, results);
+            } catch (MessageProcessingFailedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (errorLogLimiter.tryAcquire("enrich:" + e.getClass().getName())) {
+                    log.error("Error enriching {} messages with {}", items.size(), enricher.getClass().getSimpleName(), e);
+                }
+                throw new MessageProcessingFailedException(e);
+            }
+        });
+        invocationMetrics.recordSince(Stage.ENRICH, enrichStart);
+        recordProcessed(itemsByEnricher, messages, results);
+        var outputStart = System.nanoTime();
+        var enriched = 0;
+        for (var result : results) {
+            if (result != null) {
+                consumer.accept(result);
+                enriched++;
+            }
+        }
+        invocationMetrics.increment(Counter.ENRICHED, enriched);
+        invocationMetrics.recordSince(Stage.OUTPUT, outputStart);
+    }
+
+    private Map<String, ThirdPartyApiRequestDetails> findProcessed(List<ExtractedMessage> messages) {
+        if (!idempotencyGuard.isEnabled()) {
+            return Map.of();
+        }
+        var eventIds = new LinkedHashSet<String>();
+        for (var message : messages) {
+            if (message.eventId() != null && message.enricher() != null && message.detail() != null) {
+                eventIds.add(message.eventId());
+            }
+        }
+        return idempotencyGuard.findProcessed(eventIds);
+    }
+
+    /**
+     * Remembers the enriched events. Events without a result are not remembered, so a person that is created later
+     * is still found when the event is delivered again.
+     */
+    private void recordProcessed(Map<EventEnricher<?>, List<EnrichmentItem<?>>> itemsByEnricher,
+                                 List<ExtractedMessage> messages, ThirdPartyApiRequestDetails[] results) {
+        if (!idempotencyGuard.isEnabled()) {
+            return;
+        }
+        var enriched = new HashMap<String, ThirdPartyApiRequestDetails>();
+        itemsByEnricher.values().forEach(items -> items.forEach(item -> {
+            var eventId = messages.get(item.index()).eventId();
+            if (eventId != null && results[item.index()] != null) {
+                enriched.put(eventId, results[item.index()]);
+            }
+        }));
+        idempotencyGuard.recordProcessed(enriched);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void enrich(EventEnricher enricher, List items, ThirdPartyApiRequestDetails[] results) {
+        enricher.enrich(items, (item, result) -> results[((EnrichmentItem<?>) item).index()] = (ThirdPartyApiRequestDetails) result);
+    }
+
+    private ExtractedMessage extract(String messageId, EventBody body) {
+        if (messageId != null) {
+            MDC.put(MESSAGE_ID, messageId);
+        }
+        try {
+            if (!eventEnricherRegistry.mayHaveEnricher(body)) {
+                invocationMetrics.increment(Counter.SKIPPED, 1);
+                invocationMetrics.increment(Counter.SKIPPED_UNPARSED, 1);
+                eventEnricherRegistry.recordUnregistered(messageId, null, null);
+                return new ExtractedMessage(messageId, null, null, null);
+            }
+            var routing = awsEventUnmarshaller.extractText(body, ROUTING_POINTERS);
+            if (routing.containsKey(ID)) {
+                MDC.put(EVENT_ID, routing.get(ID));
+            }
+            invocationMetrics.recordEventTime(routing.get(TIME));
+            var registration = eventEnricherRegistry.find(routing.get(DETAIL_TYPE), routing.get(SOURCE));
+            if (registration.isEmpty()) {
+                invocationMetrics.increment(Counter.SKIPPED, 1);
+                eventEnricherRegistry.recordUnregistered(messageId, routing.get(DETAIL_TYPE), routing.get(SOURCE));
+                return new ExtractedMessage(messageId, routing.get(ID), null, null);
+            }
+            return new ExtractedMessage(messageId, routing.get(ID), registration.get().enricher(), registration.get().readDetail(body));
+        } catch (Exception e) {
+            return failed(messageId, body, e);
+        } finally {
+            MDC.remove(MESSAGE_ID);
+            MDC.remove(EVENT_ID);
+        }
+    }
+
+    private ExtractedMessage failed(String messageId, EventBody body, Exception e) {
+        if (messageFailureHandler.shouldDrop(e)) {
+            messageFailureHandler.recordDropped(messageId, null, e);
+            return new ExtractedMessage(messageId, null, null, null);
+        }
+        if (errorLogLimiter.tryAcquire("extract:" + e.getClass().getName())) {
+            log.error("Error processing message {}: {}", messageId, bodyForLog(body), e);
+        }
+        throw new MessageProcessingFailedException(e);
+    }
+
+    private String bodyForLog(EventBody body) {
+        if (body == null || bodyLogMaxLength <= 0) {
+            return "<body not logged>";
+        }
+        return body.preview(bodyLogMaxLength);
+    }
+
+    /**
+     * A message reduced to what is needed for the enrichment. {@code enricher} and {@code detail} are {@code null}
+     * if there is nothing to enrich or the message was dropped. Messages without {@code eventId} are never treated as
+     * duplicates.
+     */
+    public record ExtractedMessage(String messageId, String eventId, EventEnricher<?> enricher, Object detail) {
+    }
+}
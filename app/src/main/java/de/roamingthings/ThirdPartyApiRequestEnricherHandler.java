@@ -1,30 +1,45 @@
 package de.roamingthings;
 
+import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
-import de.roamingthings.events.AwsEvent;
-import de.roamingthings.events.AwsEventUnmarshaller;
-import de.roamingthings.events.PersonCreatedDetails;
-import de.roamingthings.person.PersonRepository;
+import de.roamingthings.capture.PayloadCapture;
+import de.roamingthings.deadline.InvocationDeadline;
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.metrics.InvocationMetrics.Counter;
+import de.roamingthings.metrics.InvocationMetrics.Stage;
 import io.micronaut.context.ApplicationContext;
 import io.micronaut.context.ApplicationContextBuilder;
 import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.function.aws.MicronautRequestHandler;
 import jakarta.inject.Inject;
 import lombok.NoArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 
 import java.util.List;
 import java.util.Optional;
 
-@Slf4j
+import static de.roamingthings.logging.LoggingContext.REQUEST_ID;
+
 @Introspected
 @NoArgsConstructor
 public class ThirdPartyApiRequestEnricherHandler extends MicronautRequestHandler<List<SQSEvent.SQSMessage>, List<ThirdPartyApiRequestDetails>> {
 
+    /**
+     * System property to create the singletons on first use instead of with the context, e.g. to measure the effect
+     * of the eager initialization on the startup.
+     */
+    public static final String EAGER_INIT_PROPERTY = "enricher.eager-init-singletons";
+
+    @Inject
+    private ThirdPartyApiRequestEnricher enricher;
     @Inject
-    private AwsEventUnmarshaller awsEventUnmarshaller;
+    private InvocationMetrics invocationMetrics;
     @Inject
-    private PersonRepository personRepository;
+    @Nullable
+    private PayloadCapture payloadCapture;
+    @Inject
+    private InvocationDeadline invocationDeadline;
 
     public ThirdPartyApiRequestEnricherHandler(ApplicationContext applicationContext) {
         super(applicationContext);
@@ -33,35 +48,39 @@ public ThirdPartyApiRequestEnricherHandler(ApplicationContext applicationContext
     @Override
     protected ApplicationContextBuilder newApplicationContextBuilder() {
         return super.newApplicationContextBuilder()
-                .eagerInitSingletons(true);
+                .eagerInitSingletons(eagerInitSingletons());
     }
 
-    @Override
-    public List<ThirdPartyApiRequestDetails> execute(List<SQSEvent.SQSMessage> input) {
-        return Optional.of(input)
-                .orElseGet(List::of)
-                .stream()
-                .map(this::processMessage)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .toList();
+    static boolean eagerInitSingletons() {
+        return Boolean.parseBoolean(System.getProperty(EAGER_INIT_PROPERTY, "true"));
     }
 
-    private Optional<ThirdPartyApiRequestDetails> processMessage(SQSEvent.SQSMessage message) {
+    @Override
+    public List<ThirdPartyApiRequestDetails> execute(List<SQSEvent.SQSMessage> input) {
+        // The Lambda context of the invocation is registered as a bean before execute is called
+        var context = getApplicationContext().findBean(Context.class).orElse(null);
+        if (context != null && context.getAwsRequestId() != null) {
+            MDC.put(REQUEST_ID, context.getAwsRequestId());
+        }
+        invocationDeadline.start(context);
+        invocationMetrics.startInvocation();
+        if (payloadCapture != null && input != null) {
+            payloadCapture.record(input.stream().map(SQSEvent.SQSMessage::getBody).toList());
+        }
         try {
-            return Optional.of(message)
-                    .map(this::unmarshallEvent)
-                    .map(AwsEvent::getDetail)
-                    .map(PersonCreatedDetails::id)
-                    .flatMap(personRepository::findById)
-                    .map(person -> new ThirdPartyApiRequestDetails(person.id(), person.firstName(), person.lastName()));
-        } catch (Exception e) {
-            log.error("Error processing message: {}", message.getBody(), e);
-            throw new MessageProcessingFailedException(e);
+            var extractStart = System.nanoTime();
+            var messages = Optional.ofNullable(input)
+                    .orElseGet(List::of)
+                    .stream()
+                    .map(message -> enricher.extract(message.getMessageId(), message.getBody()))
+                    .toList();
+            invocationMetrics.increment(Counter.MESSAGES, messages.size());
+            invocationMetrics.recordSince(Stage.EXTRACT, extractStart);
+            return enricher.enrich(messages);
+        } finally {
+            invocationMetrics.flush();
+            invocationDeadline.clear();
+            MDC.remove(REQUEST_ID);
         }
     }
-
-    private AwsEvent<PersonCreatedDetails> unmarshallEvent(SQSEvent.SQSMessage message) {
-        return awsEventUnmarshaller.unmarshall(message.getBody(), PersonCreatedDetails.class);
-    }
 }
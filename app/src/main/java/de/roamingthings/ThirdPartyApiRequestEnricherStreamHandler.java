@@ -0,0 +1,173 @@
+package de.roamingthings;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.roamingthings.ThirdPartyApiRequestEnricher.ExtractedMessage;
+import de.roamingthings.capture.PayloadCapture;
+import de.roamingthings.deadline.InvocationDeadline;
+import de.roamingthings.events.UnmarshallingException;
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.metrics.InvocationMetrics.Counter;
+import de.roamingthings.metrics.InvocationMetrics.Stage;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.env.Environment;
+import io.micronaut.core.type.Argument;
+import io.micronaut.serde.ObjectMapper;
+import org.slf4j.MDC;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.roamingthings.logging.LoggingContext.REQUEST_ID;
+
+/**
+ * Alternative entry point to {@link ThirdPartyApiRequestEnricherHandler} that works on the raw payload of the pipe.
+ * <p>
+ * The array of SQS messages is read incrementally and each body is parsed in place from the parser's text buffer,
+ * so no {@code SQSMessage} objects or body strings are created. The request details are written to the output
+ * stream one by one. The output is the same as the one of {@link ThirdPartyApiRequestEnricherHandler}.
+ * <p>
+ * To use it, set the handler of the function to
+ * {@code de.roamingthings.ThirdPartyApiRequestEnricherStreamHandler::handleRequest}.
+ */
+public class ThirdPartyApiRequestEnricherStreamHandler implements RequestStreamHandler, Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Argument<ThirdPartyApiRequestDetails> DETAILS_ARGUMENT = Argument.of(ThirdPartyApiRequestDetails.class);
+
+    private final ApplicationContext applicationContext;
+    private final ThirdPartyApiRequestEnricher enricher;
+    private final ObjectMapper objectMapper;
+    private final InvocationMetrics invocationMetrics;
+    private final PayloadCapture payloadCapture;
+    private final InvocationDeadline invocationDeadline;
+
+    public ThirdPartyApiRequestEnricherStreamHandler() {
+        this(ApplicationContext.builder()
+                .environments(Environment.FUNCTION)
+                .eagerInitSingletons(ThirdPartyApiRequestEnricherHandler.eagerInitSingletons())
+                .start());
+    }
+
+    public ThirdPartyApiRequestEnricherStreamHandler(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+        this.enricher = applicationContext.getBean(ThirdPartyApiRequestEnricher.class);
+        this.objectMapper = applicationContext.getBean(ObjectMapper.class);
+        this.invocationMetrics = applicationContext.getBean(InvocationMetrics.class);
+        this.payloadCapture = applicationContext.findBean(PayloadCapture.class).orElse(null);
+        this.invocationDeadline = applicationContext.getBean(InvocationDeadline.class);
+    }
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        if (context != null && context.getAwsRequestId() != null) {
+            MDC.put(REQUEST_ID, context.getAwsRequestId());
+        }
+        invocationDeadline.start(context);
+        invocationMetrics.startInvocation();
+        try {
+            var extractStart = System.nanoTime();
+            var capturedBodies = payloadCapture != null ? new ArrayList<String>() : null;
+            var messages = readMessages(input, capturedBodies);
+            if (capturedBodies != null) {
+                payloadCapture.record(capturedBodies);
+            }
+            invocationMetrics.increment(Counter.MESSAGES, messages.size());
+            invocationMetrics.recordSince(Stage.EXTRACT, extractStart);
+            writeDetails(messages, output);
+        } finally {
+            invocationMetrics.flush();
+            invocationDeadline.clear();
+            MDC.remove(REQUEST_ID);
+        }
+    }
+
+    @Override
+    public void close() {
+        applicationContext.close();
+    }
+
+    private void writeDetails(List<ExtractedMessage> messages, OutputStream output) throws IOException {
+        var bufferedOutput = new BufferedOutputStream(output);
+        bufferedOutput.write('[');
+        var first = new boolean[]{true};
+        try {
+            enricher.enrich(messages, details -> {
+                try {
+                    if (!first[0]) {
+                        bufferedOutput.write(',');
+                    }
+                    first[0] = false;
+                    bufferedOutput.write(objectMapper.writeValueAsBytes(DETAILS_ARGUMENT, details));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        bufferedOutput.write(']');
+        bufferedOutput.flush();
+    }
+
+    /**
+     * @param capturedBodies receives the message bodies to capture, {@code null} if nothing is captured
+     */
+    private List<ExtractedMessage> readMessages(InputStream input, List<String> capturedBodies) throws IOException {
+        var messages = new ArrayList<ExtractedMessage>();
+        try (var parser = JSON_FACTORY.createParser(input)) {
+            var token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return messages;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new MessageProcessingFailedException(new UnmarshallingException("Expected an array of SQS messages but found " + token));
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                messages.add(readMessage(parser, capturedBodies));
+            }
+        }
+        return messages;
+    }
+
+    private ExtractedMessage readMessage(JsonParser parser, List<String> capturedBodies) throws IOException {
+        String messageId = null;
+        String bodyBeforeMessageId = null;
+        ExtractedMessage message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var fieldName = parser.getCurrentName();
+            var valueToken = parser.nextToken();
+            if ("messageId".equals(fieldName)) {
+                messageId = parser.getValueAsString();
+            } else if ("body".equals(fieldName)) {
+                if (capturedBodies != null) {
+                    capturedBodies.add(valueToken == JsonToken.VALUE_STRING ? parser.getText() : null);
+                }
+                if (valueToken != JsonToken.VALUE_STRING) {
+                    parser.skipChildren();
+                    message = enricher.extract(messageId, null);
+                } else if (messageId != null) {
+                    message = enricher.extract(messageId, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                } else {
+                    // The message id is needed to record failures, so defer the body until it is known
+                    bodyBeforeMessageId = parser.getText();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (bodyBeforeMessageId != null) {
+            message = enricher.extract(messageId, bodyBeforeMessageId);
+        }
+        return message != null ? message : enricher.extract(messageId, null);
+    }
+}
@@ -0,0 +1,16 @@
+package de.roamingthings.capture;
+
+import java.util.List;
+
+/**
+ * Receives the message bodies of each invocation to capture them. There is no bean unless the capture classes are
+ * packaged with {@code -PpayloadCapture=true} and {@code capture.enabled} is set.
+ */
+@FunctionalInterface
+public interface PayloadCapture {
+
+    /**
+     * Captures the bodies of one invocation. Failures must not fail the invocation.
+     */
+    void record(List<String> bodies);
+}
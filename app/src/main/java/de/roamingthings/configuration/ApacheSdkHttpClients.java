@@ -0,0 +1,31 @@
+package de.roamingthings.configuration;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+
+import java.time.Duration;
+
+/**
+ * Builds the Apache HTTP client. It is kept apart from the {@link SdkHttpClientFactory} so that its classes are only
+ * loaded when the client is chosen, the {@code apache-client} dependency is opt-in.
+ */
+final class ApacheSdkHttpClients {
+
+    static final String CLIENT_CLASS_NAME = "software.amazon.awssdk.http.apache.ApacheHttpClient";
+
+    private ApacheSdkHttpClients() {
+    }
+
+    static SdkHttpClient create(int maxConnections, Duration connectionTimeToLive, Duration connectionTimeout,
+                                Duration connectionAcquisitionTimeout, Duration socketTimeout) {
+        return ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionTimeToLive(connectionTimeToLive)
+                .connectionMaxIdleTime(connectionTimeToLive)
+                .connectionTimeout(connectionTimeout)
+                .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                .socketTimeout(socketTimeout)
+                .tcpKeepAlive(true)
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package de.roamingthings.configuration;
+
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+import java.time.Duration;
+
+/**
+ * Collects the connection pool metrics that the SDK HTTP clients report for each request attempt.
+ * <p>
+ * Only clients with a connection pool ({@code APACHE} and {@code CRT}) report these metrics.
+ */
+@Singleton
+@Introspected
+public class ConnectionPoolMetricPublisher implements MetricPublisher {
+
+    private long acquires;
+    private long acquireNanosTotal;
+    private long acquireNanosMax;
+    private int maxConcurrency;
+    private int leasedConcurrencyMax;
+    private int pendingAcquiresMax;
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        synchronized (this) {
+            record(metricCollection);
+        }
+    }
+
+    /**
+     * @return the statistics collected since the previous call
+     */
+    public synchronized Statistics snapshotAndReset() {
+        var statistics = new Statistics(
+                acquires,
+                acquires == 0 ? Duration.ZERO : Duration.ofNanos(acquireNanosTotal / acquires),
+                Duration.ofNanos(acquireNanosMax),
+                maxConcurrency,
+                leasedConcurrencyMax,
+                pendingAcquiresMax);
+        acquires = 0;
+        acquireNanosTotal = 0;
+        acquireNanosMax = 0;
+        leasedConcurrencyMax = 0;
+        pendingAcquiresMax = 0;
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    private void record(MetricCollection metricCollection) {
+        for (var acquireDuration : metricCollection.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION)) {
+            var nanos = acquireDuration.toNanos();
+            acquires++;
+            acquireNanosTotal += nanos;
+            acquireNanosMax = Math.max(acquireNanosMax, nanos);
+        }
+        for (var value : metricCollection.metricValues(HttpMetric.MAX_CONCURRENCY)) {
+            maxConcurrency = value;
+        }
+        for (var value : metricCollection.metricValues(HttpMetric.LEASED_CONCURRENCY)) {
+            leasedConcurrencyMax = Math.max(leasedConcurrencyMax, value);
+        }
+        for (var value : metricCollection.metricValues(HttpMetric.PENDING_CONCURRENCY_ACQUIRES)) {
+            pendingAcquiresMax = Math.max(pendingAcquiresMax, value);
+        }
+        metricCollection.children().forEach(this::record);
+    }
+
+    /**
+     * @param leasedConcurrencyMax the highest number of connections in use, compared to {@code maxConcurrency} it
+     *                             shows the utilisation of the pool
+     */
+    public record Statistics(
+            long acquires,
+            Duration acquireDurationAverage,
+            Duration acquireDurationMax,
+            int maxConcurrency,
+            int leasedConcurrencyMax,
+            int pendingAcquiresMax) {
+    }
+}
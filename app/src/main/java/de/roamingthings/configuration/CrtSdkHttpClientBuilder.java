@@ -0,0 +1,15 @@
+package de.roamingthings.configuration;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.time.Duration;
+
+/**
+ * Builds the AWS CRT HTTP client. There is no bean unless the client is compiled in with {@code -PsdkHttpClients=crt}.
+ */
+@FunctionalInterface
+public interface CrtSdkHttpClientBuilder {
+
+    SdkHttpClient build(int maxConnections, Duration connectionTimeToLive, Duration connectionTimeout,
+                        Duration connectionAcquisitionTimeout);
+}
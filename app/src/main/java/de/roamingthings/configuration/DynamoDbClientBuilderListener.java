@@ -0,0 +1,60 @@
+package de.roamingthings.configuration;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+
+import java.time.Duration;
+
+/**
+ * Applies the timeouts and the retry mode of DynamoDB calls. The {@link ConnectionPoolMetricPublisher} is only
+ * registered for the HTTP clients with a connection pool, the others would pay for metrics that are never reported.
+ * <p>
+ * {@code dynamodb.retry-mode=ADAPTIVE} backs off throttling errors separately from other retryable errors and
+ * additionally rate limits the client after throttling. {@code LEGACY} keeps the retry policy of the SDK.
+ */
+@Singleton
+@Introspected
+public class DynamoDbClientBuilderListener implements BeanCreatedEventListener<DynamoDbClientBuilder> {
+
+    private final Duration apiCallTimeout;
+    private final Duration apiCallAttemptTimeout;
+    private final RetryMode retryMode;
+    private final SdkHttpClientType httpClientType;
+    private final ConnectionPoolMetricPublisher connectionPoolMetricPublisher;
+
+    public DynamoDbClientBuilderListener(
+            @Value("${dynamodb.api-call-timeout:5s}") Duration apiCallTimeout,
+            @Value("${dynamodb.api-call-attempt-timeout:1s}") Duration apiCallAttemptTimeout,
+            @Value("${dynamodb.retry-mode:LEGACY}") RetryMode retryMode,
+            @Value("${sdk.http-client.type:URL_CONNECTION}") SdkHttpClientType httpClientType,
+            ConnectionPoolMetricPublisher connectionPoolMetricPublisher) {
+        this.apiCallTimeout = apiCallTimeout;
+        this.apiCallAttemptTimeout = apiCallAttemptTimeout;
+        this.retryMode = retryMode;
+        this.httpClientType = httpClientType;
+        this.connectionPoolMetricPublisher = connectionPoolMetricPublisher;
+    }
+
+    @Override
+    public DynamoDbClientBuilder onCreated(BeanCreatedEvent<DynamoDbClientBuilder> event) {
+        var builder = event.getBean();
+        builder.overrideConfiguration(configuration -> {
+            configuration
+                    .apiCallTimeout(apiCallTimeout)
+                    .apiCallAttemptTimeout(apiCallAttemptTimeout);
+            if (httpClientType.hasConnectionPool()) {
+                configuration.addMetricPublisher(connectionPoolMetricPublisher);
+            }
+            if (retryMode != RetryMode.LEGACY) {
+                configuration.retryPolicy(RetryPolicy.forRetryMode(retryMode));
+            }
+        });
+        return builder;
+    }
+}
@@ -0,0 +1,35 @@
+package de.roamingthings.configuration;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Factory
+@Introspected
+public class IdempotencyExecutorFactory {
+
+    public static final String IDEMPOTENCY_WRITE_EXECUTOR = "idempotencyWrite";
+
+    /**
+     * Executor for the conditional puts of the shared idempotency store. The pool size bounds the number of puts in
+     * flight.
+     */
+    @Bean(preDestroy = "shutdownNow")
+    @Singleton
+    @Named(IDEMPOTENCY_WRITE_EXECUTOR)
+    public ExecutorService idempotencyWriteExecutor(@Value("${idempotency.max-writes-in-flight:8}") int maxWritesInFlight) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, maxWritesInFlight), runnable -> {
+            var thread = new Thread(runnable, "idempotency-write-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package de.roamingthings.configuration;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Factory
+@Introspected
+public class PersonLookupExecutorFactory {
+
+    public static final String PERSON_LOOKUP_EXECUTOR = "personLookup";
+    public static final String PERSON_HEDGING_EXECUTOR = "personHedging";
+
+    /**
+     * Executor for concurrent person lookups. The number of requests in flight is bounded by the
+     * {@code PersonRepository} ({@code person.lookup.max-in-flight}), the executor only provides the threads.
+     */
+    @Bean(preDestroy = "shutdownNow")
+    @Singleton
+    @Named(PERSON_LOOKUP_EXECUTOR)
+    public ExecutorService personLookupExecutor() {
+        var threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "person-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Executor for hedged person reads. Reads are started on it so a hedge can be issued while the first request is
+     * still running. The number of hedges is bounded by the {@code ReadHedger}.
+     */
+    @Bean(preDestroy = "shutdownNow")
+    @Singleton
+    @Named(PERSON_HEDGING_EXECUTOR)
+    public ExecutorService personHedgingExecutor() {
+        var threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "person-hedging-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
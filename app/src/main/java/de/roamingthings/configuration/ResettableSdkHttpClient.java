@@ -0,0 +1,49 @@
+package de.roamingthings.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link SdkHttpClient} whose underlying client can be replaced, e.g. to drop connections that went stale while a
+ * SnapStart snapshot was stored.
+ */
+@Slf4j
+public class ResettableSdkHttpClient implements SdkHttpClient {
+
+    private final Supplier<SdkHttpClient> clientFactory;
+    private volatile SdkHttpClient delegate;
+
+    public ResettableSdkHttpClient(Supplier<SdkHttpClient> clientFactory) {
+        this.clientFactory = clientFactory;
+        this.delegate = clientFactory.get();
+    }
+
+    /**
+     * Closes the current client together with its connections and creates a new one for the following requests.
+     */
+    public synchronized void reset() {
+        var previous = delegate;
+        delegate = clientFactory.get();
+        previous.close();
+        log.debug("Replaced SDK HTTP client {}", previous.clientName());
+    }
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+        return delegate.prepareRequest(request);
+    }
+
+    @Override
+    public String clientName() {
+        return delegate.clientName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,73 @@
+package de.roamingthings.configuration;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.reflect.ClassUtils;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+import java.time.Duration;
+
+@Slf4j
+@Factory
+@Introspected
+public class SdkHttpClientFactory {
+
+    /**
+     * The HTTP client used by the AWS SDK clients. It can be reset after a CRaC restore.
+     * <p>
+     * The pool settings only apply to the clients that have a connection pool ({@code APACHE} and {@code CRT}). Their
+     * dependencies are only packaged when they are opted into with {@code -PsdkHttpClients=apache,crt}, the CRT client
+     * is only compiled in then, see {@link CrtSdkHttpClientBuilder}.
+     */
+    @Bean(preDestroy = "close")
+    @Singleton
+    @Replaces(SdkHttpClient.class)
+    public ResettableSdkHttpClient sdkHttpClient(
+            @Value("${sdk.http-client.type:URL_CONNECTION}") SdkHttpClientType type,
+            @Value("${sdk.http-client.max-connections:50}") int maxConnections,
+            @Value("${sdk.http-client.connection-time-to-live:60s}") Duration connectionTimeToLive,
+            @Value("${sdk.http-client.connection-timeout:2s}") Duration connectionTimeout,
+            @Value("${sdk.http-client.connection-acquisition-timeout:1s}") Duration connectionAcquisitionTimeout,
+            @Value("${sdk.http-client.socket-timeout:5s}") Duration socketTimeout,
+            @Nullable CrtSdkHttpClientBuilder crtClientBuilder) {
+        log.debug("Using {} SDK HTTP client with at most {} connections", type, maxConnections);
+        switch (type) {
+            case APACHE -> requireOnClasspath(type, ApacheSdkHttpClients.CLIENT_CLASS_NAME, "apache");
+            case CRT -> {
+                if (crtClientBuilder == null) {
+                    throw notPackaged(type, "crt");
+                }
+            }
+            default -> {
+            }
+        }
+        return new ResettableSdkHttpClient(() -> switch (type) {
+            case URL_CONNECTION -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(connectionTimeout)
+                    .socketTimeout(socketTimeout)
+                    .build();
+            case APACHE -> ApacheSdkHttpClients.create(maxConnections, connectionTimeToLive, connectionTimeout,
+                    connectionAcquisitionTimeout, socketTimeout);
+            case CRT -> crtClientBuilder.build(maxConnections, connectionTimeToLive, connectionTimeout,
+                    connectionAcquisitionTimeout);
+        });
+    }
+
+    private static void requireOnClasspath(SdkHttpClientType type, String clientClassName, String optIn) {
+        if (!ClassUtils.isPresent(clientClassName, SdkHttpClientFactory.class.getClassLoader())) {
+            throw notPackaged(type, optIn);
+        }
+    }
+
+    private static IllegalStateException notPackaged(SdkHttpClientType type, String optIn) {
+        return new IllegalStateException("The %s SDK HTTP client is not packaged, build with -PsdkHttpClients=%s to use it"
+                .formatted(type, optIn));
+    }
+}
@@ -0,0 +1,24 @@
+package de.roamingthings.configuration;
+
+public enum SdkHttpClientType {
+    /**
+     * {@code HttpURLConnection} of the JDK. Small and fast to initialize, but without control over the connection
+     * pool.
+     */
+    URL_CONNECTION,
+    /**
+     * Apache HttpClient with a configurable connection pool.
+     */
+    APACHE,
+    /**
+     * AWS Common Runtime HTTP client with a configurable connection pool.
+     */
+    CRT;
+
+    /**
+     * @return whether the client has a connection pool and reports its metrics
+     */
+    public boolean hasConnectionPool() {
+        return this != URL_CONNECTION;
+    }
+}
@@ -0,0 +1,124 @@
+package de.roamingthings.crac;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import de.roamingthings.ThirdPartyApiRequestEnricher;
+import de.roamingthings.events.AwsEventUnmarshaller;
+import de.roamingthings.events.PersonCreatedDetails;
+import de.roamingthings.person.PersonCache;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.type.Argument;
+import io.micronaut.crac.OrderedResource;
+import io.micronaut.serde.ObjectMapper;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Context;
+import org.crac.Resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primes the enrichment path before a CRaC/SnapStart checkpoint is taken.
+ * <p>
+ * Synthetic {@code PersonCreated} events are run through the unmarshaller, the enricher and the response serializer
+ * {@code priming.iterations} times. With the default of 2000 the hot path passes the thresholds of the C1 compiler
+ * (tier 3), but not reliably those of the C2 compiler (tier 4), which needs several thousand more invocations. The
+ * person table is queried for a person that does not exist, so the SDK client, the credentials and the TLS connection
+ * are initialized as well. The HTTP client is reset after restore by the {@link SdkHttpClientResetResource}.
+ */
+@Slf4j
+@Singleton
+@Introspected
+@Requires(property = "priming.enabled", value = "true", defaultValue = "true")
+public class EnricherPrimingResource implements OrderedResource {
+
+    static final String PRIMING_PERSON_ID = "00000000-0000-0000-0000-000000000000";
+    private static final Argument<List<ThirdPartyApiRequestDetails>> RESULT_ARGUMENT = Argument.listOf(ThirdPartyApiRequestDetails.class);
+
+    private final ThirdPartyApiRequestEnricher enricher;
+    private final AwsEventUnmarshaller awsEventUnmarshaller;
+    private final ObjectMapper objectMapper;
+    private final PersonCache personCache;
+    private final int iterations;
+    private final int lookups;
+
+    public EnricherPrimingResource(
+            ThirdPartyApiRequestEnricher enricher,
+            AwsEventUnmarshaller awsEventUnmarshaller,
+            ObjectMapper objectMapper,
+            PersonCache personCache,
+            @Value("${priming.iterations:2000}") int iterations,
+            @Value("${priming.lookups:3}") int lookups) {
+        this.enricher = enricher;
+        this.awsEventUnmarshaller = awsEventUnmarshaller;
+        this.objectMapper = objectMapper;
+        this.personCache = personCache;
+        this.iterations = iterations;
+        this.lookups = lookups;
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        var start = System.nanoTime();
+        primeParsingAndSerialization();
+        primeLookups();
+        personCache.clear();
+        log.info("Primed enrichment path in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+    }
+
+    private void primeParsingAndSerialization() {
+        var body = primingEvent(PRIMING_PERSON_ID);
+        var details = List.of(new ThirdPartyApiRequestDetails(PRIMING_PERSON_ID, "Priming", "Priming"));
+        for (int i = 0; i < iterations; i++) {
+            enricher.extract("priming-" + i, body);
+            awsEventUnmarshaller.unmarshall(body, PersonCreatedDetails.class);
+            try {
+                objectMapper.writeValueAsBytes(RESULT_ARGUMENT, details);
+            } catch (IOException e) {
+                log.warn("Priming of the response serialization failed", e);
+                return;
+            }
+        }
+    }
+
+    private void primeLookups() {
+        var messages = new ArrayList<ThirdPartyApiRequestEnricher.ExtractedMessage>();
+        var message = enricher.extract("priming", primingEvent(PRIMING_PERSON_ID));
+        // Without an event id the priming event is neither taken from nor written to the idempotency stores
+        messages.add(new ThirdPartyApiRequestEnricher.ExtractedMessage(message.messageId(), null, message.enricher(), message.detail()));
+        for (int i = 0; i < lookups; i++) {
+            personCache.clear();
+            try {
+                enricher.enrich(messages);
+            } catch (Exception e) {
+                log.warn("Priming of the person lookup failed", e);
+                return;
+            }
+        }
+    }
+
+    private static String primingEvent(String personId) {
+        return """
+                {
+                  "version": "0",
+                  "id": "00000000-0000-0000-0000-000000000000",
+                  "detail-type": "%s",
+                  "source": "%s",
+                  "account": "000000000000",
+                  "time": "2023-10-14T08:45:30Z",
+                  "region": "eu-central-1",
+                  "resources": [],
+                  "detail": {
+                    "id": "%s"
+                  }
+                }
+                """.formatted(PersonCreatedDetails.DETAIL_TYPE, PersonCreatedDetails.SOURCE, personId);
+    }
+}
@@ -0,0 +1,33 @@
+package de.roamingthings.crac;
+
+import de.roamingthings.configuration.ResettableSdkHttpClient;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.crac.OrderedResource;
+import jakarta.inject.Singleton;
+import org.crac.Context;
+import org.crac.Resource;
+
+/**
+ * Resets the SDK HTTP client after a CRaC/SnapStart restore, so the first invocation does not run into connections
+ * that went stale while the snapshot was stored. Unlike the {@link EnricherPrimingResource} it is always active, the
+ * connections of the snapshot are stale whether the enrichment path was primed or not.
+ */
+@Singleton
+@Introspected
+public class SdkHttpClientResetResource implements OrderedResource {
+
+    private final ResettableSdkHttpClient sdkHttpClient;
+
+    public SdkHttpClientResetResource(ResettableSdkHttpClient sdkHttpClient) {
+        this.sdkHttpClient = sdkHttpClient;
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        sdkHttpClient.reset();
+    }
+}
@@ -0,0 +1,8 @@
+package de.roamingthings.deadline;
+
+public class DeadlineExceededException extends IllegalStateException {
+
+    public DeadlineExceededException(String operation, long remainingMillis) {
+        super("Not starting %s, only %d ms of the invocation are left".formatted(operation, remainingMillis));
+    }
+}
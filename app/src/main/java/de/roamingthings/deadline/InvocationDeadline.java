@@ -0,0 +1,125 @@
+package de.roamingthings.deadline;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * The time left of the current invocation, taken from the remaining time of the Lambda {@link Context} minus
+ * {@code deadline.safety-margin} that is kept for returning the response.
+ * <p>
+ * Calls are only started with at least {@code deadline.min-call-time} left, otherwise they fail fast with a
+ * {@link DeadlineExceededException}. Started DynamoDB calls get API-call and attempt timeouts that end at the deadline
+ * at the latest. Without a Lambda context, e.g. in tests, there is no deadline.
+ * <p>
+ * Invocations of a function instance do not overlap, so the deadline is set by {@link #start(Context)} and read by
+ * the lookup threads.
+ */
+@Singleton
+@Introspected
+public class InvocationDeadline {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final boolean enabled;
+    private final Duration safetyMargin;
+    private final Duration minCallTime;
+    private final Duration apiCallTimeout;
+    private final Duration apiCallAttemptTimeout;
+    private final Clock systemClock;
+
+    private volatile long deadlineEpochMillis = NO_DEADLINE;
+
+    public InvocationDeadline(
+            @Value("${deadline.enabled:true}") boolean enabled,
+            @Value("${deadline.safety-margin:500ms}") Duration safetyMargin,
+            @Value("${deadline.min-call-time:100ms}") Duration minCallTime,
+            @Value("${dynamodb.api-call-timeout:5s}") Duration apiCallTimeout,
+            @Value("${dynamodb.api-call-attempt-timeout:1s}") Duration apiCallAttemptTimeout,
+            Clock systemClock) {
+        this.enabled = enabled;
+        this.safetyMargin = safetyMargin;
+        this.minCallTime = minCallTime;
+        this.apiCallTimeout = apiCallTimeout;
+        this.apiCallAttemptTimeout = apiCallAttemptTimeout;
+        this.systemClock = systemClock;
+    }
+
+    /**
+     * Sets the deadline of the invocation, a {@code null} context clears it.
+     */
+    public void start(Context context) {
+        deadlineEpochMillis = enabled && context != null
+                ? systemClock.millis() + context.getRemainingTimeInMillis() - safetyMargin.toMillis()
+                : NO_DEADLINE;
+    }
+
+    public void clear() {
+        deadlineEpochMillis = NO_DEADLINE;
+    }
+
+    public boolean hasDeadline() {
+        return deadlineEpochMillis != NO_DEADLINE;
+    }
+
+    /**
+     * @return the milliseconds left until the deadline, {@link Long#MAX_VALUE} without a deadline
+     */
+    public long remainingMillis() {
+        var deadline = deadlineEpochMillis;
+        return deadline == NO_DEADLINE ? Long.MAX_VALUE : deadline - systemClock.millis();
+    }
+
+    /**
+     * @throws DeadlineExceededException if less than {@code deadline.min-call-time} is left
+     */
+    public void ensureTimeFor(String operation) {
+        checkTimeLeft(operation);
+    }
+
+    /**
+     * Checks that there is time left for a DynamoDB call and limits its timeouts to the time left.
+     *
+     * @return the configuration to override the one of the client with, {@code null} without a deadline
+     * @throws DeadlineExceededException if less than {@code deadline.min-call-time} is left
+     */
+    public AwsRequestOverrideConfiguration callConfiguration(String operation) {
+        var remaining = checkTimeLeft(operation);
+        if (remaining == Long.MAX_VALUE) {
+            return null;
+        }
+        var remainingDuration = Duration.ofMillis(remaining);
+        return AwsRequestOverrideConfiguration.builder()
+                .apiCallTimeout(min(apiCallTimeout, remainingDuration))
+                .apiCallAttemptTimeout(min(apiCallAttemptTimeout, remainingDuration))
+                .build();
+    }
+
+    /**
+     * Limits a pause before a call, e.g. the backoff of a retry, so that the call can still be started after it.
+     *
+     * @return the pause, at most the time left minus {@code deadline.min-call-time}
+     * @throws DeadlineExceededException if less than {@code deadline.min-call-time} is left
+     */
+    public long limitPause(String operation, long pauseMillis) {
+        var remaining = checkTimeLeft(operation);
+        return remaining == Long.MAX_VALUE ? pauseMillis : Math.min(pauseMillis, remaining - minCallTime.toMillis());
+    }
+
+    private long checkTimeLeft(String operation) {
+        var remaining = remainingMillis();
+        if (remaining < minCallTime.toMillis()) {
+            throw new DeadlineExceededException(operation, Math.max(remaining, 0));
+        }
+        return remaining;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
@@ -0,0 +1,9 @@
+package de.roamingthings.enrichment;
+
+/**
+ * The detail of one message of a batch.
+ *
+ * @param index the position of the message in the batch
+ */
+public record EnrichmentItem<D>(int index, String messageId, D detail) {
+}
@@ -0,0 +1,44 @@
+package de.roamingthings.enrichment;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Enriches the events of one {@code detail-type} (and optionally one {@code source}).
+ * <p>
+ * Implementations are Micronaut beans and are picked up by the {@link EventEnricherRegistry}. All events of a batch
+ * that belong to an enricher are passed to it at once, so it can batch its own lookups.
+ *
+ * @param <D> the type of the event's detail
+ */
+public interface EventEnricher<D> {
+
+    String detailType();
+
+    /**
+     * @return the source of the events or {@code null} to handle the detail type of any source
+     */
+    default String source() {
+        return null;
+    }
+
+    Class<D> detailClass();
+
+    /**
+     * Reads the detail of an event. By default the whole event is bound; enrichers that only need a few values can
+     * extract them with {@link EventReader#extractText(String)} instead.
+     *
+     * @return the detail or {@code null} if there is nothing to enrich
+     */
+    default D readDetail(EventReader<D> reader) {
+        return reader.readEvent().getDetail();
+    }
+
+    /**
+     * Enriches the items and passes the result of each enriched item to {@code results}. Items without a result are
+     * skipped in the output.
+     */
+    void enrich(List<EnrichmentItem<D>> items, BiConsumer<EnrichmentItem<D>, ThirdPartyApiRequestDetails> results);
+}
@@ -0,0 +1,133 @@
+package de.roamingthings.enrichment;
+
+import de.roamingthings.events.AwsEvent;
+import de.roamingthings.events.AwsEventUnmarshaller;
+import de.roamingthings.events.EventBody;
+import de.roamingthings.logging.ErrorLogLimiter;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.type.Argument;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the {@link EventEnricher} of an event by its {@code detail-type} and {@code source}.
+ * <p>
+ * The enrichers and the arguments to bind their events are resolved once at startup, so finding the enricher of a
+ * message is a map lookup. Events that cannot have an enricher are recognized by {@link #mayHaveEnricher(EventBody)}
+ * without binding them.
+ */
+@Slf4j
+@Singleton
+@Introspected
+public class EventEnricherRegistry {
+
+    private final AwsEventUnmarshaller awsEventUnmarshaller;
+    private final ErrorLogLimiter errorLogLimiter;
+    private final LongAdder unregisteredCount = new LongAdder();
+    private final Map<String, Map<String, Registration<?>>> registrationsByDetailType = new HashMap<>();
+    private final List<String> quotedDetailTypes = new ArrayList<>();
+    private boolean alwaysParse;
+
+    public EventEnricherRegistry(AwsEventUnmarshaller awsEventUnmarshaller, List<EventEnricher<?>> enrichers, ErrorLogLimiter errorLogLimiter) {
+        this.awsEventUnmarshaller = awsEventUnmarshaller;
+        this.errorLogLimiter = errorLogLimiter;
+        enrichers.forEach(this::register);
+    }
+
+    /**
+     * @return the enricher registered for the detail type and source or, if there is none, the one registered for
+     * the detail type and any source
+     */
+    public Optional<Registration<?>> find(String detailType, String source) {
+        var registrationsBySource = registrationsByDetailType.get(detailType);
+        if (registrationsBySource == null) {
+            return Optional.empty();
+        }
+        var registration = registrationsBySource.get(source);
+        return Optional.ofNullable(registration != null ? registration : registrationsBySource.get(null));
+    }
+
+    /**
+     * Checks the text of an event for the registered detail types as JSON strings. Only if none of them occurs and the
+     * text is a well-formed JSON object, the event cannot have an enricher. Texts that are no JSON object, are
+     * malformed or truncated, or contain escapes, in which a detail type could be hidden, are left to the parser, so
+     * they are failed or dropped like any other unparseable message.
+     *
+     * @return {@code false} if the event certainly has no enricher
+     */
+    public boolean mayHaveEnricher(EventBody body) {
+        if (alwaysParse || !body.startsWithObject() || body.contains("\\")) {
+            return true;
+        }
+        for (var quotedDetailType : quotedDetailTypes) {
+            if (body.contains(quotedDetailType)) {
+                return true;
+            }
+        }
+        return !awsEventUnmarshaller.isWellFormed(body);
+    }
+
+    /**
+     * Counts a message whose event has no enricher and logs it, rate limited per detail type and source. The detail
+     * type and source are {@code null} if the message was skipped without parsing it.
+     */
+    public void recordUnregistered(String messageId, String detailType, String source) {
+        unregisteredCount.increment();
+        if (errorLogLimiter.tryAcquire("unregistered:" + detailType + ":" + source)) {
+            if (detailType == null && source == null) {
+                log.warn("No registered detail-type in message {}, skipped without parsing it", messageId);
+            } else {
+                log.warn("No enricher for detail-type '{}' and source '{}' of message {}, skipped", detailType, source, messageId);
+            }
+        }
+    }
+
+    public long unregisteredCount() {
+        return unregisteredCount.sum();
+    }
+
+    private <D> void register(EventEnricher<D> enricher) {
+        var registration = new Registration<>(enricher, AwsEventUnmarshaller.eventArgument(enricher.detailClass()));
+        var previous = registrationsByDetailType
+                .computeIfAbsent(enricher.detailType(), detailType -> new HashMap<>())
+                .putIfAbsent(enricher.source(), registration);
+        if (previous != null) {
+            throw new IllegalStateException("Enrichers %s and %s are both registered for detail-type '%s' and source '%s'"
+                    .formatted(previous.enricher().getClass().getName(), enricher.getClass().getName(), enricher.detailType(), enricher.source()));
+        }
+        var quotedDetailType = '"' + enricher.detailType() + '"';
+        if (enricher.detailType() == null || enricher.detailType().chars().anyMatch(c -> c == '"' || c == '\\' || c < 0x20)) {
+            // The detail type would be escaped in the JSON text
+            alwaysParse = true;
+        } else if (!quotedDetailTypes.contains(quotedDetailType)) {
+            quotedDetailTypes.add(quotedDetailType);
+        }
+        log.debug("Registered {} for detail-type '{}' and source '{}'", enricher.getClass().getSimpleName(), enricher.detailType(), enricher.source());
+    }
+
+    public final class Registration<D> {
+
+        private final EventEnricher<D> enricher;
+        private final Argument<AwsEvent<D>> eventArgument;
+
+        private Registration(EventEnricher<D> enricher, Argument<AwsEvent<D>> eventArgument) {
+            this.enricher = enricher;
+            this.eventArgument = eventArgument;
+        }
+
+        public EventEnricher<D> enricher() {
+            return enricher;
+        }
+
+        public D readDetail(EventBody body) {
+            return enricher.readDetail(new EventReader<>(awsEventUnmarshaller, body, eventArgument));
+        }
+    }
+}
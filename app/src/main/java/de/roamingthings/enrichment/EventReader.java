@@ -0,0 +1,33 @@
+package de.roamingthings.enrichment;
+
+import de.roamingthings.events.AwsEvent;
+import de.roamingthings.events.AwsEventUnmarshaller;
+import de.roamingthings.events.EventBody;
+import io.micronaut.core.type.Argument;
+
+import java.util.Optional;
+
+/**
+ * Gives an {@link EventEnricher} access to the body of a message, either by binding the whole event with the
+ * pre-built argument of the enricher or by extracting single values.
+ */
+public class EventReader<D> {
+
+    private final AwsEventUnmarshaller awsEventUnmarshaller;
+    private final EventBody body;
+    private final Argument<AwsEvent<D>> eventArgument;
+
+    EventReader(AwsEventUnmarshaller awsEventUnmarshaller, EventBody body, Argument<AwsEvent<D>> eventArgument) {
+        this.awsEventUnmarshaller = awsEventUnmarshaller;
+        this.body = body;
+        this.eventArgument = eventArgument;
+    }
+
+    public AwsEvent<D> readEvent() {
+        return awsEventUnmarshaller.unmarshall(body, eventArgument);
+    }
+
+    public Optional<String> extractText(String pointer) {
+        return awsEventUnmarshaller.extractText(body, pointer);
+    }
+}
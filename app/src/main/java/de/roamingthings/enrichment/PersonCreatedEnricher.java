@@ -0,0 +1,114 @@
+package de.roamingthings.enrichment;
+
+import de.roamingthings.MessageProcessingFailedException;
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import de.roamingthings.events.PersonCreatedDetails;
+import de.roamingthings.failure.MessageFailureHandler;
+import de.roamingthings.logging.ErrorLogLimiter;
+import de.roamingthings.person.PersonLookupResult;
+import de.roamingthings.person.PersonMappingException;
+import de.roamingthings.person.PersonRepository;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static de.roamingthings.events.AwsEventUnmarshaller.DETAIL_ID;
+
+/**
+ * Enriches {@code PersonCreated} events with the name of the person. All persons of a batch are looked up at once.
+ */
+@Slf4j
+@Singleton
+@Introspected
+@RequiredArgsConstructor
+public class PersonCreatedEnricher implements EventEnricher<PersonCreatedDetails> {
+
+    private final PersonRepository personRepository;
+    private final MessageFailureHandler messageFailureHandler;
+    private final ErrorLogLimiter errorLogLimiter;
+
+    @Override
+    public String detailType() {
+        return PersonCreatedDetails.DETAIL_TYPE;
+    }
+
+    @Override
+    public String source() {
+        return PersonCreatedDetails.SOURCE;
+    }
+
+    @Override
+    public Class<PersonCreatedDetails> detailClass() {
+        return PersonCreatedDetails.class;
+    }
+
+    /**
+     * Only the id of the person is needed, so it is extracted without binding the event.
+     */
+    @Override
+    public PersonCreatedDetails readDetail(EventReader<PersonCreatedDetails> reader) {
+        return reader.extractText(DETAIL_ID)
+                .map(PersonCreatedDetails::new)
+                .orElse(null);
+    }
+
+    @Override
+    public void enrich(List<EnrichmentItem<PersonCreatedDetails>> items, BiConsumer<EnrichmentItem<PersonCreatedDetails>, ThirdPartyApiRequestDetails> results) {
+        var lookup = findPersons(items);
+        for (var item : items) {
+            lookup.get(item.detail().id()).ifPresent(person ->
+                    results.accept(item, new ThirdPartyApiRequestDetails(person.id(), person.firstName(), person.lastName())));
+        }
+    }
+
+    /**
+     * Looks up all persons of the batch in a single lookup. Items that could not be mapped either fail the whole
+     * batch or, if the failure policy drops them, are recorded as dropped and get no result.
+     */
+    private PersonLookupResult findPersons(List<EnrichmentItem<PersonCreatedDetails>> items) {
+        var personIds = items.stream()
+                .map(item -> item.detail().id())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        PersonLookupResult lookup;
+        try {
+            lookup = personRepository.findAllByIds(personIds);
+        } catch (Exception e) {
+            throw lookupFailed(personIds, e);
+        }
+        for (var failure : lookup.failures()) {
+            if (!messageFailureHandler.shouldDrop(failure)) {
+                throw lookupFailed(personIds, failure);
+            }
+            recordDroppedItemsOfPerson(items, failure);
+        }
+        return lookup;
+    }
+
+    /**
+     * A failure without a person id belongs to an item with an unusable partition key. It cannot be attributed to
+     * a message, but none of the messages gets a result for it, so it is recorded once without a message id.
+     */
+    private void recordDroppedItemsOfPerson(List<EnrichmentItem<PersonCreatedDetails>> items, PersonMappingException e) {
+        if (e.getPersonId() == null) {
+            messageFailureHandler.recordDropped(null, null, e);
+            return;
+        }
+        items.stream()
+                .filter(item -> e.getPersonId().equals(item.detail().id()))
+                .forEach(item -> messageFailureHandler.recordDropped(item.messageId(), e.getPersonId(), e));
+    }
+
+    private MessageProcessingFailedException lookupFailed(Collection<String> personIds, Exception e) {
+        if (errorLogLimiter.tryAcquire("lookup:" + e.getClass().getName())) {
+            log.error("Error looking up {} persons: {}", personIds.size(), personIds, e);
+        }
+        return new MessageProcessingFailedException(e);
+    }
+}
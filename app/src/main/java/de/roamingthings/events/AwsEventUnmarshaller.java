@@ -1,16 +1,40 @@
 package de.roamingthings.events;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
 import io.micronaut.core.annotation.Introspected;
 import io.micronaut.core.type.Argument;
 import io.micronaut.serde.ObjectMapper;
 import jakarta.inject.Singleton;
 import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Singleton
 @Introspected
 @RequiredArgsConstructor
 public class AwsEventUnmarshaller {
 
+    public static final String ID = "/id";
+    public static final String DETAIL_ID = "/detail/id";
+    public static final String DETAIL_TYPE = "/detail-type";
+    public static final String SOURCE = "/source";
+    public static final String TIME = "/time";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Map<String, String[]> POINTER_SEGMENTS = new ConcurrentHashMap<>();
+
     private final ObjectMapper objectMapper;
 
     public <T> AwsEvent<T> unmarshall(String json, Class<T> detailType) {
@@ -20,4 +44,181 @@ public <T> AwsEvent<T> unmarshall(String json, Class<T> detailType) {
             throw new UnmarshallingException(e);
         }
     }
+
+    /**
+     * Binds the whole event with a pre-built argument, e.g. one created by {@link #eventArgument(Class)}.
+     */
+    public <T> AwsEvent<T> unmarshall(EventBody body, Argument<AwsEvent<T>> eventArgument) {
+        try {
+            return objectMapper.readValue(body.text(), eventArgument);
+        } catch (Exception e) {
+            throw new UnmarshallingException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Argument<AwsEvent<T>> eventArgument(Class<T> detailType) {
+        return (Argument<AwsEvent<T>>) (Argument<?>) Argument.of(AwsEvent.class, detailType);
+    }
+
+    /**
+     * Reads the scalar value at the given JSON pointer (e.g. {@link #DETAIL_ID}) without binding the event.
+     *
+     * @return the value as text or empty if the value is missing or {@code null}
+     */
+    public Optional<String> extractText(String json, String pointer) {
+        return extractText(EventBody.of(json), pointer);
+    }
+
+    public Optional<String> extractText(EventBody body, String pointer) {
+        return Optional.ofNullable(extractText(body, Set.of(pointer)).get(pointer));
+    }
+
+    /**
+     * Reads the scalar values at the given JSON pointers with the streaming parser.
+     * <p>
+     * Everything that is not on the path to one of the pointers is skipped. Once all values have been found, the rest
+     * of the event is only tokenized, so an event that is malformed after the values is still rejected. Use
+     * {@link #unmarshall(String, Class)} if the full event is needed.
+     *
+     * @return the values as text keyed by their pointer. Missing and {@code null} values are absent from the map.
+     */
+    public Map<String, String> extractText(String json, Collection<String> pointers) {
+        return extractText(EventBody.of(json), pointers);
+    }
+
+    public Map<String, String> extractText(EventBody body, Collection<String> pointers) {
+        try (var parser = body.createParser(JSON_FACTORY)) {
+            return extractText(parser, pointers);
+        } catch (IOException e) {
+            throw new UnmarshallingException(e);
+        }
+    }
+
+    /**
+     * Tokenizes the whole text without reading any value, which checks its syntax without allocating strings.
+     *
+     * @return whether the text is a single well-formed JSON value
+     */
+    public boolean isWellFormed(EventBody body) {
+        try (var parser = body.createParser(JSON_FACTORY)) {
+            if (parser.nextToken() == null) {
+                return false;
+            }
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Map<String, String> extractText(JsonParser parser, Collection<String> pointers) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new UnmarshallingException("Event is not a JSON object");
+        }
+        var remainingPointers = new ArrayList<String>(pointers);
+        var values = new HashMap<String, String>(remainingPointers.size());
+        while (!remainingPointers.isEmpty() && nextTokenOfEvent(parser) != null) {
+            if (parser.currentToken() != JsonToken.FIELD_NAME) {
+                continue;
+            }
+            var context = parser.getParsingContext();
+            var depth = depth(context);
+            var valueToken = parser.nextToken();
+            var pointer = findPointer(context, depth, remainingPointers);
+            if (pointer != null) {
+                remainingPointers.remove(pointer);
+                if (valueToken.isStructStart()) {
+                    throw new UnmarshallingException("Expected a scalar value at " + pointer + " but found " + valueToken);
+                }
+                if (valueToken != JsonToken.VALUE_NULL) {
+                    values.put(pointer, parser.getValueAsString());
+                }
+            } else if (valueToken.isStructStart() && !isOnPathToAny(context, depth, remainingPointers)) {
+                parser.skipChildren();
+            }
+        }
+        // The rest of the event is only tokenized to check its syntax
+        while (nextTokenOfEvent(parser) != null) {
+            parser.skipChildren();
+        }
+        if (parser.nextToken() != null) {
+            throw new UnmarshallingException("Unexpected content after the event");
+        }
+        return values;
+    }
+
+    /**
+     * @return the next token, {@code null} once the event is closed
+     */
+    private static JsonToken nextTokenOfEvent(JsonParser parser) throws IOException {
+        if (parser.getParsingContext().inRoot()) {
+            return null;
+        }
+        var token = parser.nextToken();
+        if (token == null) {
+            throw new UnmarshallingException("Event is truncated");
+        }
+        return token;
+    }
+
+    private static String findPointer(JsonStreamContext context, int depth, List<String> pointers) {
+        for (var pointer : pointers) {
+            var segments = segments(pointer);
+            if (segments.length == depth && pathEquals(context, segments, depth)) {
+                return pointer;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isOnPathToAny(JsonStreamContext context, int depth, List<String> pointers) {
+        for (var pointer : pointers) {
+            var segments = segments(pointer);
+            if (segments.length > depth && pathEquals(context, segments, depth)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the path of the context with the segments from the leaf up, so no pointer of the path is created.
+     */
+    private static boolean pathEquals(JsonStreamContext context, String[] segments, int depth) {
+        var current = context;
+        for (int i = depth - 1; i >= 0; i--) {
+            var matches = current.inObject()
+                    ? segments[i].equals(current.getCurrentName())
+                    : segments[i].equals(Integer.toString(current.getCurrentIndex()));
+            if (!matches) {
+                return false;
+            }
+            current = current.getParent();
+        }
+        return true;
+    }
+
+    private static int depth(JsonStreamContext context) {
+        var depth = 0;
+        for (var current = context; !current.inRoot(); current = current.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * The pointers are constants of the code, so their segments are compiled once.
+     */
+    private static String[] segments(String pointer) {
+        return POINTER_SEGMENTS.computeIfAbsent(pointer, AwsEventUnmarshaller::compileSegments);
+    }
+
+    private static String[] compileSegments(String pointer) {
+        var segments = new ArrayList<String>();
+        for (var current = JsonPointer.compile(pointer); !current.matches(); current = current.tail()) {
+            segments.add(current.getMatchingProperty());
+        }
+        return segments.toArray(String[]::new);
+    }
 }
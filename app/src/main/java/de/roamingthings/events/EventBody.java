@@ -0,0 +1,103 @@
+package de.roamingthings.events;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * The JSON text of an event, either as a string or as a slice of a character buffer.
+ * <p>
+ * A slice is not copied, so it is only valid as long as the buffer is not reused (e.g. until the parser that owns
+ * the buffer advances).
+ */
+public final class EventBody {
+
+    private final String text;
+    private final char[] chars;
+    private final int offset;
+    private final int length;
+
+    private EventBody(String text, char[] chars, int offset, int length) {
+        this.text = text;
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static EventBody of(String text) {
+        return new EventBody(text, null, 0, text.length());
+    }
+
+    public static EventBody of(char[] chars, int offset, int length) {
+        return new EventBody(null, chars, offset, length);
+    }
+
+    JsonParser createParser(JsonFactory jsonFactory) throws IOException {
+        return text != null
+                ? jsonFactory.createParser(text)
+                : jsonFactory.createParser(chars, offset, length);
+    }
+
+    public String text() {
+        return text != null ? text : new String(chars, offset, length);
+    }
+
+    /**
+     * @return whether the text contains the string, without copying a slice
+     */
+    public boolean contains(String string) {
+        if (text != null) {
+            return text.contains(string);
+        }
+        var end = offset + length - string.length();
+        for (int i = offset; i <= end; i++) {
+            if (regionMatches(i, string)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the first character other than whitespace opens a JSON object
+     */
+    public boolean startsWithObject() {
+        for (int i = 0; i < length; i++) {
+            var c = charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '{';
+            }
+        }
+        return false;
+    }
+
+    private boolean regionMatches(int start, String string) {
+        for (int j = 0; j < string.length(); j++) {
+            if (chars[start + j] != string.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private char charAt(int index) {
+        return text != null ? text.charAt(index) : chars[offset + index];
+    }
+
+    /**
+     * @return at most {@code maxLength} characters of the text, followed by the number of characters left out
+     */
+    public String preview(int maxLength) {
+        if (length <= maxLength) {
+            return text();
+        }
+        var prefix = text != null ? text.substring(0, maxLength) : new String(chars, offset, maxLength);
+        return prefix + "... (" + (length - maxLength) + " more characters)";
+    }
+
+    @Override
+    public String toString() {
+        return text();
+    }
+}
@@ -2,6 +2,12 @@
 
 import io.micronaut.serde.annotation.Serdeable;
 
+import static de.roamingthings.InfraConstants.PERSON_CREATED_DETAIL_TYPE;
+import static de.roamingthings.InfraConstants.PERSON_CREATED_SOURCE;
+
 @Serdeable
 public record PersonCreatedDetails(String id) {
+
+    public static final String DETAIL_TYPE = PERSON_CREATED_DETAIL_TYPE;
+    public static final String SOURCE = PERSON_CREATED_SOURCE;
 }
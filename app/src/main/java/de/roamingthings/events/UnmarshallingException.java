@@ -2,6 +2,10 @@
 
 public class UnmarshallingException extends IllegalStateException {
 
+    public UnmarshallingException(String message) {
+        super(message);
+    }
+
     public UnmarshallingException(Throwable cause) {
         super(cause);
     }
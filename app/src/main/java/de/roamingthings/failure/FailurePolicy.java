@@ -0,0 +1,13 @@
+package de.roamingthings.failure;
+
+public enum FailurePolicy {
+    /**
+     * Any failing message fails the whole batch so that it is retried by the pipe.
+     */
+    FAIL_BATCH,
+    /**
+     * Messages that can never succeed are dropped from the output and recorded. Transient failures still fail the
+     * whole batch.
+     */
+    DROP_PERMANENT
+}
@@ -0,0 +1,67 @@
+package de.roamingthings.failure;
+
+import de.roamingthings.events.UnmarshallingException;
+import de.roamingthings.logging.ErrorLogLimiter;
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.person.PersonMappingException;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a failed message is dropped or fails the batch and records dropped messages.
+ * <p>
+ * Dropped messages are written to the {@code de.roamingthings.DroppedMessages} logger so they can be found (and
+ * replayed) without failing and retrying the messages that have been processed successfully. Like other errors, the
+ * log lines are rate limited per failure type by the {@link ErrorLogLimiter}, so a flood of poison messages does not
+ * flood the logs. The {@code DroppedMessages} metric counts every dropped message.
+ */
+@Singleton
+@Introspected
+public class MessageFailureHandler {
+
+    private static final Logger DROPPED_MESSAGES = LoggerFactory.getLogger("de.roamingthings.DroppedMessages");
+
+    private final FailurePolicy failurePolicy;
+    private final InvocationMetrics invocationMetrics;
+    private final ErrorLogLimiter errorLogLimiter;
+    private final LongAdder droppedCount = new LongAdder();
+
+    public MessageFailureHandler(
+            @Value("${enricher.failure-policy:FAIL_BATCH}") FailurePolicy failurePolicy,
+            InvocationMetrics invocationMetrics,
+            ErrorLogLimiter errorLogLimiter) {
+        this.failurePolicy = failurePolicy;
+        this.invocationMetrics = invocationMetrics;
+        this.errorLogLimiter = errorLogLimiter;
+    }
+
+    /**
+     * @return {@code true} if the message that caused the failure should be dropped instead of failing the batch
+     */
+    public boolean shouldDrop(Throwable failure) {
+        return failurePolicy == FailurePolicy.DROP_PERMANENT && isPermanent(failure);
+    }
+
+    public void recordDropped(String messageId, String personId, Throwable failure) {
+        droppedCount.increment();
+        invocationMetrics.increment(InvocationMetrics.Counter.DROPPED, 1);
+        if (errorLogLimiter.tryAcquire("dropped:" + failure.getClass().getName())) {
+            DROPPED_MESSAGES.warn("Dropped message messageId={} personId={} reason={} detail=\"{}\"",
+                    messageId, personId, failure.getClass().getSimpleName(), failure.getMessage());
+        }
+    }
+
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    static boolean isPermanent(Throwable failure) {
+        return failure instanceof UnmarshallingException
+                || failure instanceof PersonMappingException;
+    }
+}
@@ -0,0 +1,180 @@
+package de.roamingthings.idempotency;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import de.roamingthings.deadline.InvocationDeadline;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.serde.ObjectMapper;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import static de.roamingthings.configuration.IdempotencyExecutorFactory.IDEMPOTENCY_WRITE_EXECUTOR;
+
+/**
+ * {@link IdempotencyStore} in a DynamoDB table that is shared by all function instances.
+ * <p>
+ * The table is {@code idempotency.table-name}, by default the person table. The stack creates a separate table and
+ * grants the function read and write access to it when it is deployed with {@code -c idempotencyShared=true}.
+ * <p>
+ * Each result is an item with the partition key {@code idempotency#<event id>} that expires at the end of the window
+ * through the TTL of the table. Results are written with a conditional put, so the first instance to finish an event
+ * determines the result and the end of its window.
+ * <p>
+ * Each request gets timeouts that end at the {@link InvocationDeadline} and is not started when it is (nearly)
+ * reached.
+ */
+@Singleton
+@Introspected
+public class DynamoDbIdempotencyStore implements IdempotencyStore {
+
+    private static final String PARTITION_KEY = "PK";
+    private static final String SORT_KEY = "SK";
+    private static final String RESULT = "result";
+    private static final String EXPIRES_AT = "expiresAt";
+    private static final String PARTITION_KEY_PREFIX = "idempotency#";
+    private static final AttributeValue RESULT_SORT_KEY = AttributeValue.fromS("RESULT");
+    private static final int MAX_BATCH_GET_KEYS = 100;
+    private static final String NOT_PROCESSED_WITHIN_WINDOW = "attribute_not_exists(#pk) OR #expiresAt < :now";
+    private static final Map<String, String> CONDITION_ATTRIBUTE_NAMES = Map.of("#pk", PARTITION_KEY, "#expiresAt", EXPIRES_AT);
+
+    private final String tableName;
+    private final Duration window;
+    private final DynamoDbClient dynamoDbClient;
+    private final ObjectMapper objectMapper;
+    private final Clock systemClock;
+    private final ExecutorService writeExecutor;
+    private final InvocationDeadline invocationDeadline;
+
+    public DynamoDbIdempotencyStore(
+            @Value("${idempotency.table-name}") String tableName,
+            @Value("${idempotency.window:5m}") Duration window,
+            DynamoDbClient dynamoDbClient,
+            ObjectMapper objectMapper,
+            Clock systemClock,
+            @Named(IDEMPOTENCY_WRITE_EXECUTOR) ExecutorService writeExecutor,
+            InvocationDeadline invocationDeadline) {
+        this.tableName = tableName;
+        this.window = window;
+        this.dynamoDbClient = dynamoDbClient;
+        this.objectMapper = objectMapper;
+        this.systemClock = systemClock;
+        this.writeExecutor = writeExecutor;
+        this.invocationDeadline = invocationDeadline;
+    }
+
+    /**
+     * Reads are eventually consistent at half the read cost of strongly consistent ones. A result written in the last
+     * second may be missed, its event is then enriched again, which the pipe tolerates anyway; the conditional put
+     * keeps the first result. Unprocessed keys are not retried, their events are treated as not processed.
+     */
+    @Override
+    public Map<String, ThirdPartyApiRequestDetails> findAll(Collection<String> eventIds) {
+        var found = new HashMap<String, ThirdPartyApiRequestDetails>();
+        var nowEpochSecond = systemClock.millis() / 1000;
+        var uniqueIds = new ArrayList<>(new LinkedHashSet<>(eventIds));
+        for (int i = 0; i < uniqueIds.size(); i += MAX_BATCH_GET_KEYS) {
+            var keys = uniqueIds.subList(i, Math.min(i + MAX_BATCH_GET_KEYS, uniqueIds.size())).stream()
+                    .map(DynamoDbIdempotencyStore::keyOf)
+                    .toList();
+            var callConfiguration = invocationDeadline.callConfiguration("BatchGetItem");
+            var response = dynamoDbClient.batchGetItem(request -> request
+                    .overrideConfiguration(callConfiguration)
+                    .requestItems(Map.of(tableName, KeysAndAttributes.builder()
+                            .keys(keys)
+                            .build())));
+            for (var item : response.responses().getOrDefault(tableName, List.of())) {
+                var expiresAt = item.get(EXPIRES_AT);
+                if (expiresAt != null && Long.parseLong(expiresAt.n()) > nowEpochSecond) {
+                    found.put(item.get(PARTITION_KEY).s().substring(PARTITION_KEY_PREFIX.length()), readResult(item.get(RESULT).s()));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * {@code BatchWriteItem} does not support conditions, so the conditional puts are issued concurrently on the
+     * {@code idempotencyWrite} executor, bounded by
+     * {@code idempotency.max-writes-in-flight}. The first failure is thrown after all puts completed.
+     */
+    @Override
+    public void saveAll(Map<String, ThirdPartyApiRequestDetails> results) {
+        var nowEpochSecond = systemClock.millis() / 1000;
+        var expiresAt = AttributeValue.fromN(Long.toString(nowEpochSecond + window.toSeconds()));
+        var now = AttributeValue.fromN(Long.toString(nowEpochSecond));
+        if (results.size() <= 1) {
+            results.forEach((eventId, result) -> put(eventId, result, expiresAt, now));
+            return;
+        }
+        var futures = results.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> put(entry.getKey(), entry.getValue(), expiresAt, now), writeExecutor))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void put(String eventId, ThirdPartyApiRequestDetails result, AttributeValue expiresAt, AttributeValue now) {
+        var item = new HashMap<>(keyOf(eventId));
+        item.put(RESULT, AttributeValue.fromS(writeResult(result)));
+        item.put(EXPIRES_AT, expiresAt);
+        var callConfiguration = invocationDeadline.callConfiguration("PutItem");
+        try {
+            dynamoDbClient.putItem(request -> request
+                    .overrideConfiguration(callConfiguration)
+                    .tableName(tableName)
+                    .item(item)
+                    .conditionExpression(NOT_PROCESSED_WITHIN_WINDOW)
+                    .expressionAttributeNames(CONDITION_ATTRIBUTE_NAMES)
+                    .expressionAttributeValues(Map.of(":now", now)));
+        } catch (ConditionalCheckFailedException e) {
+            // Another instance processed the event first, its result stands
+        }
+    }
+
+    private static Map<String, AttributeValue> keyOf(String eventId) {
+        return Map.of(
+                PARTITION_KEY, AttributeValue.fromS(PARTITION_KEY_PREFIX + eventId),
+                SORT_KEY, RESULT_SORT_KEY
+        );
+    }
+
+    private String writeResult(ThirdPartyApiRequestDetails result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ThirdPartyApiRequestDetails readResult(String json) {
+        try {
+            return objectMapper.readValue(json, ThirdPartyApiRequestDetails.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package de.roamingthings.idempotency;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import de.roamingthings.logging.ErrorLogLimiter;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.crac.OrderedResource;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Context;
+import org.crac.Resource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recognises events that were already enriched within the idempotency window, so their result is returned without
+ * enriching them again.
+ * <p>
+ * The {@link LocalIdempotencyStore} of the instance is asked first. With {@code idempotency.shared} the misses are
+ * looked up in the {@link DynamoDbIdempotencyStore} that is shared by all instances, it is only called then. With
+ * eagerly initialised singletons it is created nonetheless, which only wires the DynamoDB client that the person
+ * lookup creates anyway. Errors of the shared store are logged and the events are treated as not processed, as
+ * enriching an event twice is better than not at all.
+ * <p>
+ * The local store is cleared on CRaC checkpoint and restore so no priming results survive.
+ */
+@Slf4j
+@Singleton
+@Introspected
+public class IdempotencyGuard implements OrderedResource {
+
+    private final boolean enabled;
+    private final boolean shared;
+    private final boolean skipReplayed;
+    private final LocalIdempotencyStore localStore;
+    private final Provider<DynamoDbIdempotencyStore> sharedStore;
+    private final ErrorLogLimiter errorLogLimiter;
+
+    public IdempotencyGuard(
+            @Value("${idempotency.enabled:false}") boolean enabled,
+            @Value("${idempotency.shared:false}") boolean shared,
+            @Value("${idempotency.skip-replayed:false}") boolean skipReplayed,
+            LocalIdempotencyStore localStore,
+            Provider<DynamoDbIdempotencyStore> sharedStore,
+            ErrorLogLimiter errorLogLimiter) {
+        this.enabled = enabled;
+        this.shared = shared;
+        this.skipReplayed = skipReplayed;
+        this.localStore = localStore;
+        this.sharedStore = sharedStore;
+        this.errorLogLimiter = errorLogLimiter;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether replayed events are left out of the output instead of returning their result again.
+     * <p>
+     * Leaving them out saves the call of the API destination for duplicate deliveries, but loses the event if the
+     * pipe retries a batch because the call of the API destination failed after the enrichment.
+     */
+    public boolean isSkipReplayed() {
+        return skipReplayed;
+    }
+
+    /**
+     * @return the results of the events that were processed within the window, keyed by event id
+     */
+    public Map<String, ThirdPartyApiRequestDetails> findProcessed(Collection<String> eventIds) {
+        if (!enabled || eventIds.isEmpty()) {
+            return Map.of();
+        }
+        var found = new HashMap<>(localStore.findAll(eventIds));
+        if (shared && found.size() < eventIds.size()) {
+            var misses = new ArrayList<String>(eventIds.size() - found.size());
+            for (var eventId : eventIds) {
+                if (!found.containsKey(eventId)) {
+                    misses.add(eventId);
+                }
+            }
+            try {
+                var sharedResults = sharedStore.get().findAll(misses);
+                localStore.saveAll(sharedResults);
+                found.putAll(sharedResults);
+            } catch (RuntimeException e) {
+                if (errorLogLimiter.tryAcquire("idempotency:find")) {
+                    log.warn("Could not look up {} events in the shared idempotency store", misses.size(), e);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Remembers the results of enriched events, keyed by event id.
+     */
+    public void recordProcessed(Map<String, ThirdPartyApiRequestDetails> results) {
+        if (!enabled || results.isEmpty()) {
+            return;
+        }
+        localStore.saveAll(results);
+        if (shared) {
+            try {
+                sharedStore.get().saveAll(results);
+            } catch (RuntimeException e) {
+                if (errorLogLimiter.tryAcquire("idempotency:save")) {
+                    log.warn("Could not save {} events in the shared idempotency store", results.size(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        localStore.clear();
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        localStore.clear();
+    }
+}
@@ -0,0 +1,22 @@
+package de.roamingthings.idempotency;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Remembers the enrichment results of events by their event id for the idempotency window.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @return the results of the events that were processed within the window, keyed by event id
+     */
+    Map<String, ThirdPartyApiRequestDetails> findAll(Collection<String> eventIds);
+
+    /**
+     * Remembers the results, keyed by event id, until the end of the window.
+     */
+    void saveAll(Map<String, ThirdPartyApiRequestDetails> results);
+}
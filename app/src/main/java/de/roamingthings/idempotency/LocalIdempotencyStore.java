@@ -0,0 +1,88 @@
+package de.roamingthings.idempotency;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-process {@link IdempotencyStore} of the function instance. The least recently used events are evicted
+ * when {@code idempotency.max-entries} is exceeded.
+ */
+@Singleton
+@Introspected
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    private final Duration window;
+    private final int maxEntries;
+    private final Clock systemClock;
+    private final Map<String, Entry> entries;
+
+    public LocalIdempotencyStore(
+            @Value("${idempotency.window:5m}") Duration window,
+            @Value("${idempotency.max-entries:10000}") int maxEntries,
+            Clock systemClock) {
+        this.window = window;
+        this.maxEntries = maxEntries;
+        this.systemClock = systemClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > LocalIdempotencyStore.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Map<String, ThirdPartyApiRequestDetails> findAll(Collection<String> eventIds) {
+        var now = Instant.now(systemClock);
+        var found = new HashMap<String, ThirdPartyApiRequestDetails>();
+        synchronized (entries) {
+            for (var eventId : eventIds) {
+                var entry = entries.get(eventId);
+                if (entry != null && entry.expiresAt().isAfter(now)) {
+                    found.put(eventId, entry.result());
+                } else if (entry != null) {
+                    entries.remove(eventId);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Saves the results of events that are not remembered yet. Like the conditional put of the
+     * {@link DynamoDbIdempotencyStore}, an event saved again within its window keeps its first result and the end of
+     * its window, so repeated deliveries do not extend it.
+     */
+    @Override
+    public void saveAll(Map<String, ThirdPartyApiRequestDetails> results) {
+        var now = Instant.now(systemClock);
+        var expiresAt = now.plus(window);
+        synchronized (entries) {
+            results.forEach((eventId, result) -> {
+                var entry = entries.get(eventId);
+                if (entry == null || !entry.expiresAt().isAfter(now)) {
+                    entries.put(eventId, new Entry(result, expiresAt));
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private record Entry(ThirdPartyApiRequestDetails result, Instant expiresAt) {
+    }
+}
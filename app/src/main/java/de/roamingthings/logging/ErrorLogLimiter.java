@@ -0,0 +1,83 @@
+package de.roamingthings.logging;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limits how often an error with the same key is logged, so a batch of poison messages does not flood the logs.
+ * <p>
+ * At most {@code logging.errors.max-per-window} errors of a key are logged per {@code logging.errors.window}. The
+ * number of suppressed errors is logged once the window of the key has passed. At most {@value #MAX_KEYS} keys are
+ * tracked, the least recently used key is evicted beyond that.
+ */
+@Slf4j
+@Singleton
+@Introspected
+public class ErrorLogLimiter {
+
+    static final int MAX_KEYS = 1000;
+
+    private final int maxPerWindow;
+    private final long windowMillis;
+    private final Clock systemClock;
+    private final Map<String, Window> windows = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+            if (size() <= MAX_KEYS) {
+                return false;
+            }
+            if (eldest.getValue().suppressed > 0) {
+                log.warn("Suppressed {} errors of {} until the key was evicted", eldest.getValue().suppressed, eldest.getKey());
+            }
+            return true;
+        }
+    };
+
+    public ErrorLogLimiter(
+            @Value("${logging.errors.max-per-window:5}") int maxPerWindow,
+            @Value("${logging.errors.window:60s}") Duration window,
+            Clock systemClock) {
+        this.maxPerWindow = maxPerWindow;
+        this.windowMillis = window.toMillis();
+        this.systemClock = systemClock;
+    }
+
+    /**
+     * @return {@code true} if an error with the key should be logged
+     */
+    public synchronized boolean tryAcquire(String key) {
+        var now = systemClock.millis();
+        var window = windows.get(key);
+        if (window == null || now - window.start >= windowMillis) {
+            if (window != null && window.suppressed > 0) {
+                log.warn("Suppressed {} errors of {} in the last {} ms", window.suppressed, key, now - window.start);
+            }
+            window = new Window(now);
+            windows.put(key, window);
+        }
+        if (window.logged < maxPerWindow) {
+            window.logged++;
+            return true;
+        }
+        window.suppressed++;
+        return false;
+    }
+
+    private static final class Window {
+
+        private final long start;
+        private int logged;
+        private long suppressed;
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package de.roamingthings.logging;
+
+/**
+ * Keys of the values in the MDC that the JSON layout adds to each log event.
+ */
+public final class LoggingContext {
+
+    public static final String REQUEST_ID = "AWSRequestId";
+    public static final String MESSAGE_ID = "messageId";
+    public static final String EVENT_ID = "eventId";
+
+    private LoggingContext() {
+    }
+}
@@ -0,0 +1,281 @@
+package de.roamingthings.metrics;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.roamingthings.configuration.ConnectionPoolMetricPublisher;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Aggregates the metrics of a single invocation and flushes them as one
+ * <a href="https://docs.aws.amazon.com/AmazonCloudWatch/latest/monitoring/CloudWatch_Embedded_Metric_Format_Specification.html">Embedded
+ * Metric Format</a> line to the {@link MetricsSink}.
+ * <p>
+ * Recording is lock-free because lookups may run on the lookup executor. Invocations of a function instance do not
+ * overlap, so the metrics are reset by {@link #startInvocation()} and written by {@link #flush()}.
+ */
+@Slf4j
+@Singleton
+@Introspected
+public class InvocationMetrics {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String DIMENSION = "FunctionName";
+    private static final String MILLISECONDS = "Milliseconds";
+    private static final String COUNT = "Count";
+    private static final long NO_EVENT_AGE = -1;
+    private static final long NO_CONCURRENCY_LIMIT = -1;
+
+    private final boolean enabled;
+    private final String namespace;
+    private final String functionName;
+    private final ConnectionPoolMetricPublisher connectionPoolMetricPublisher;
+    private final MetricsSink metricsSink;
+    private final Clock systemClock;
+
+    private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final DoubleAdder consumedCapacity = new DoubleAdder();
+    private final AtomicLong maxEventAgeMillis = new AtomicLong(NO_EVENT_AGE);
+    private final AtomicLong minConcurrencyLimit = new AtomicLong(NO_CONCURRENCY_LIMIT);
+    private final AtomicLong maxReadsInFlight = new AtomicLong();
+
+    public InvocationMetrics(
+            @Value("${metrics.enabled:true}") boolean enabled,
+            @Value("${metrics.namespace:ThirdPartyApiRequestEnricher}") String namespace,
+            @Value("${aws.lambda.function.name:local}") String functionName,
+            ConnectionPoolMetricPublisher connectionPoolMetricPublisher,
+            MetricsSink metricsSink,
+            Clock systemClock) {
+        this.enabled = enabled;
+        this.namespace = namespace;
+        this.functionName = functionName;
+        this.connectionPoolMetricPublisher = connectionPoolMetricPublisher;
+        this.metricsSink = metricsSink;
+        this.systemClock = systemClock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void startInvocation() {
+        for (int i = 0; i < stageNanos.length(); i++) {
+            stageNanos.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        consumedCapacity.reset();
+        maxEventAgeMillis.set(NO_EVENT_AGE);
+        minConcurrencyLimit.set(NO_CONCURRENCY_LIMIT);
+        maxReadsInFlight.set(0);
+        connectionPoolMetricPublisher.snapshotAndReset();
+    }
+
+    /**
+     * Adds the time since {@code startNanos}, taken from {@link System#nanoTime()}, to the stage.
+     */
+    public void recordSince(Stage stage, long startNanos) {
+        stageNanos.addAndGet(stage.ordinal(), System.nanoTime() - startNanos);
+    }
+
+    public void increment(Counter counter, long delta) {
+        counters.addAndGet(counter.ordinal(), delta);
+    }
+
+    public void recordConsumedCapacity(Double capacityUnits) {
+        if (capacityUnits != null) {
+            consumedCapacity.add(capacityUnits);
+        }
+    }
+
+    /**
+     * Records the concurrency limit of the requests to the person table and the requests in flight whenever either
+     * changes. The lowest limit and the most requests in flight of the invocation are written.
+     */
+    public void recordConcurrency(int limit, int inFlight) {
+        minConcurrencyLimit.accumulateAndGet(limit, (current, update) -> current == NO_CONCURRENCY_LIMIT ? update : Math.min(current, update));
+        maxReadsInFlight.accumulateAndGet(inFlight, Math::max);
+    }
+
+    /**
+     * Records the age of an event from its {@code time}. Events without a valid time are ignored.
+     */
+    public void recordEventTime(String time) {
+        if (!enabled || time == null) {
+            return;
+        }
+        try {
+            var ageMillis = systemClock.millis() - Instant.parse(time).toEpochMilli();
+            maxEventAgeMillis.accumulateAndGet(Math.max(ageMillis, 0), Math::max);
+        } catch (DateTimeParseException e) {
+            log.debug("Ignoring invalid event time '{}'", time);
+        }
+    }
+
+    /**
+     * Writes the metrics recorded since {@link #startInvocation()} as one line.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            metricsSink.emit(toEmf());
+        } catch (Exception e) {
+            log.warn("Could not write the metrics of the invocation", e);
+        }
+    }
+
+    String toEmf() throws IOException {
+        var poolStatistics = connectionPoolMetricPublisher.snapshotAndReset();
+        var eventAge = maxEventAgeMillis.get();
+        var concurrencyLimit = minConcurrencyLimit.get();
+        var writer = new StringWriter(1024);
+        try (var generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("_aws");
+            generator.writeNumberField("Timestamp", systemClock.millis());
+            generator.writeArrayFieldStart("CloudWatchMetrics");
+            generator.writeStartObject();
+            generator.writeStringField("Namespace", namespace);
+            generator.writeArrayFieldStart("Dimensions");
+            generator.writeStartArray();
+            generator.writeString(DIMENSION);
+            generator.writeEndArray();
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("Metrics");
+            for (var stage : Stage.values()) {
+                writeDefinition(generator, stage.metricName, MILLISECONDS);
+            }
+            for (var counter : Counter.values()) {
+                writeDefinition(generator, counter.metricName, COUNT);
+            }
+            writeDefinition(generator, "ConsumedReadCapacity", COUNT);
+            if (eventAge != NO_EVENT_AGE) {
+                writeDefinition(generator, "MaxEventAge", MILLISECONDS);
+            }
+            if (concurrencyLimit != NO_CONCURRENCY_LIMIT) {
+                writeDefinition(generator, "MinReadConcurrencyLimit", COUNT);
+                writeDefinition(generator, "MaxReadsInFlight", COUNT);
+            }
+            if (poolStatistics.acquires() > 0) {
+                writeDefinition(generator, "MaxConnectionAcquireTime", MILLISECONDS);
+                writeDefinition(generator, "MaxLeasedConnections", COUNT);
+                writeDefinition(generator, "MaxPendingConnectionAcquires", COUNT);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+
+            generator.writeStringField(DIMENSION, functionName);
+            for (var stage : Stage.values()) {
+                generator.writeNumberField(stage.metricName, stageNanos.get(stage.ordinal()) / 1_000_000d);
+            }
+            for (var counter : Counter.values()) {
+                generator.writeNumberField(counter.metricName, counters.get(counter.ordinal()));
+            }
+            generator.writeNumberField("ConsumedReadCapacity", consumedCapacity.sum());
+            if (eventAge != NO_EVENT_AGE) {
+                generator.writeNumberField("MaxEventAge", eventAge);
+            }
+            if (concurrencyLimit != NO_CONCURRENCY_LIMIT) {
+                generator.writeNumberField("MinReadConcurrencyLimit", concurrencyLimit);
+                generator.writeNumberField("MaxReadsInFlight", maxReadsInFlight.get());
+            }
+            if (poolStatistics.acquires() > 0) {
+                generator.writeNumberField("MaxConnectionAcquireTime", poolStatistics.acquireDurationMax().toNanos() / 1_000_000d);
+                generator.writeNumberField("MaxLeasedConnections", poolStatistics.leasedConcurrencyMax());
+                generator.writeNumberField("MaxPendingConnectionAcquires", poolStatistics.pendingAcquiresMax());
+            }
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    private static void writeDefinition(JsonGenerator generator, String name, String unit) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("Name", name);
+        generator.writeStringField("Unit", unit);
+        generator.writeEndObject();
+    }
+
+    public enum Stage {
+        /**
+         * Reading the SQS messages and the routing values and details of their events.
+         */
+        EXTRACT("ExtractTime"),
+        /**
+         * Running the enrichers, including the lookups.
+         */
+        ENRICH("EnrichTime"),
+        /**
+         * Looking up persons in the cache and DynamoDB.
+         */
+        LOOKUP("LookupTime"),
+        /**
+         * Passing the results on; for the stream handler this includes writing the response.
+         */
+        OUTPUT("OutputTime");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    public enum Counter {
+        MESSAGES("Messages"),
+        ENRICHED("EnrichedMessages"),
+        SKIPPED("SkippedMessages"),
+        DROPPED("DroppedMessages"),
+        CACHE_HITS("PersonCacheHits"),
+        PERSONS_REQUESTED("PersonsRequested"),
+        PERSONS_NOT_FOUND("PersonsNotFound"),
+        BATCH_GET_REQUESTS("BatchGetItemRequests"),
+        /**
+         * Events that were already enriched within the idempotency window.
+         */
+        REPLAYED("ReplayedEvents"),
+        /**
+         * Further messages of an event within the same batch.
+         */
+        DUPLICATES("DuplicateEvents"),
+        /**
+         * Person reads that were issued a second time because the first request was slow.
+         */
+        HEDGED_READS("HedgedReads"),
+        /**
+         * Hedged reads whose second request responded first.
+         */
+        HEDGE_WINS("HedgeWins"),
+        /**
+         * Requests to the person table rejected by the {@code AdaptiveConcurrencyLimiter}.
+         */
+        REJECTED_READS("RejectedReads"),
+        /**
+         * Skipped messages that were recognized as irrelevant without parsing them.
+         */
+        SKIPPED_UNPARSED("UnparsedSkippedMessages");
+
+        private final String metricName;
+
+        Counter(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package de.roamingthings.metrics;
+
+/**
+ * Receives the Embedded Metric Format line of an invocation.
+ */
+@FunctionalInterface
+public interface MetricsSink {
+
+    void emit(String line);
+}
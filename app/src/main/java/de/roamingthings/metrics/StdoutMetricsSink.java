@@ -0,0 +1,17 @@
+package de.roamingthings.metrics;
+
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+
+/**
+ * Writes the metrics to standard out, where Lambda picks them up and CloudWatch extracts them without an API call.
+ */
+@Singleton
+@Introspected
+public class StdoutMetricsSink implements MetricsSink {
+
+    @Override
+    public void emit(String line) {
+        System.out.println(line);
+    }
+}
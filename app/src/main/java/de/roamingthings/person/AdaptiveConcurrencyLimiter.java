@@ -0,0 +1,224 @@
+package de.roamingthings.person;
+
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.metrics.InvocationMetrics.Counter;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Limits the concurrent requests to the person table with additive increase and multiplicative decrease (AIMD).
+ * <p>
+ * Every request takes a permit on its own: the chunks that {@code person.lookup.max-in-flight} workers request at once
+ * as well as the second request of a hedged read. Each request that completes within
+ * {@code person.concurrency-limit.latency-tolerance} times the baseline latency raises the limit by {@code 1 / limit},
+ * up to {@code person.concurrency-limit.max-limit}. A slower request lowers it by
+ * {@code person.concurrency-limit.backoff-ratio}, a throttled request halves it, down to
+ * {@code person.concurrency-limit.min-limit}. The baseline is the lowest recent latency and slowly follows a lasting
+ * change, so the limit grows back once the table recovers.
+ * <p>
+ * In {@code WAIT} mode a request waits up to {@code person.concurrency-limit.max-wait} for a permit. In {@code SHED} mode
+ * it is rejected at once, and so is every request within {@code person.concurrency-limit.shed-cooldown} of a throttling
+ * error while the limit is at its minimum. A rejected request fails the batch early, so the redelivery by SQS acts as
+ * backpressure instead of a billed invocation that waits for the table.
+ * <p>
+ * The limit, the requests in flight and the rejections are published through {@link InvocationMetrics}. The state is
+ * per function instance; the instances only share the throttling of the table, which each of them observes on its own.
+ */
+@Singleton
+@Introspected
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BASELINE_DRIFT = 0.01;
+    private static final double THROTTLING_BACKOFF_RATIO = 0.5;
+
+    private final boolean enabled;
+    private final Mode mode;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final long maxWaitMillis;
+    private final long shedCooldownNanos;
+    private final InvocationMetrics invocationMetrics;
+
+    private final Object lock = new Object();
+    private double limit;
+    private int inFlight;
+    private double baselineLatencyNanos;
+    private long lastThrottledNanos;
+    private boolean throttled;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder throttlingErrors = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(
+            @Value("${person.concurrency-limit.enabled:false}") boolean enabled,
+            @Value("${person.concurrency-limit.mode:WAIT}") Mode mode,
+            @Value("${person.concurrency-limit.initial-limit:4}") int initialLimit,
+            @Value("${person.concurrency-limit.min-limit:1}") int minLimit,
+            @Value("${person.concurrency-limit.max-limit:32}") int maxLimit,
+            @Value("${person.concurrency-limit.latency-tolerance:2.0}") double latencyTolerance,
+            @Value("${person.concurrency-limit.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${person.concurrency-limit.max-wait:1s}") Duration maxWait,
+            @Value("${person.concurrency-limit.shed-cooldown:1s}") Duration shedCooldown,
+            InvocationMetrics invocationMetrics) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("The concurrency limits must satisfy 1 <= min-limit <= max-limit but are %d and %d".formatted(minLimit, maxLimit));
+        }
+        this.enabled = enabled;
+        this.mode = mode;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.maxWaitMillis = maxWait.toMillis();
+        this.shedCooldownNanos = shedCooldown.toNanos();
+        this.invocationMetrics = invocationMetrics;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    /**
+     * Performs the request once a permit is available.
+     *
+     * @throws LoadSheddingException if the request is shed
+     */
+    public <T> T call(Supplier<T> request) {
+        return call(request, response -> false);
+    }
+
+    /**
+     * Performs the request once a permit is available.
+     *
+     * @param throttled tells whether a response was throttled without an exception, e.g. by unprocessed keys
+     * @throws LoadSheddingException if the request is shed
+     */
+    public <T> T call(Supplier<T> request, Predicate<T> throttled) {
+        if (!enabled) {
+            return request.get();
+        }
+        acquire();
+        var start = System.nanoTime();
+        try {
+            var response = request.get();
+            if (throttled.test(response)) {
+                recordThrottling();
+            } else {
+                onSuccess(System.nanoTime() - start);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            if (isThrottling(e)) {
+                recordThrottling();
+            }
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    public Statistics statistics() {
+        synchronized (lock) {
+            return new Statistics((int) limit, inFlight, requests.sum(), rejections.sum(), throttlingErrors.sum());
+        }
+    }
+
+    private void acquire() {
+        requests.increment();
+        synchronized (lock) {
+            if (mode == Mode.SHED && throttled && limit <= minLimit && System.nanoTime() - lastThrottledNanos < shedCooldownNanos) {
+                reject("the table is throttling, the limit is at its minimum of %d".formatted((int) minLimit));
+            }
+            if (inFlight >= (int) limit && mode == Mode.SHED) {
+                reject("%d of %d permitted requests in flight".formatted(inFlight, (int) limit));
+            }
+            var waitUntil = System.currentTimeMillis() + maxWaitMillis;
+            while (inFlight >= (int) limit) {
+                var waitMillis = waitUntil - System.currentTimeMillis();
+                if (waitMillis <= 0) {
+                    reject("no permit within %d ms, %d of %d permitted requests in flight".formatted(maxWaitMillis, inFlight, (int) limit));
+                }
+                try {
+                    lock.wait(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a permit to request the person table", e);
+                }
+            }
+            inFlight++;
+            invocationMetrics.recordConcurrency((int) limit, inFlight);
+        }
+    }
+
+    private void release() {
+        synchronized (lock) {
+            inFlight--;
+            lock.notifyAll();
+        }
+    }
+
+    private void reject(String reason) {
+        rejections.increment();
+        invocationMetrics.increment(Counter.REJECTED_READS, 1);
+        invocationMetrics.recordConcurrency((int) limit, inFlight);
+        throw new LoadSheddingException(reason);
+    }
+
+    private void recordThrottling() {
+        throttlingErrors.increment();
+        synchronized (lock) {
+            limit = Math.max(minLimit, limit * THROTTLING_BACKOFF_RATIO);
+            throttled = true;
+            lastThrottledNanos = System.nanoTime();
+            invocationMetrics.recordConcurrency((int) limit, inFlight);
+        }
+    }
+
+    private void onSuccess(long latencyNanos) {
+        synchronized (lock) {
+            if (baselineLatencyNanos == 0 || latencyNanos < baselineLatencyNanos) {
+                baselineLatencyNanos = latencyNanos;
+            } else {
+                // Let the baseline follow a lasting change of the latency slowly
+                baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * BASELINE_DRIFT;
+            }
+            if (latencyNanos > baselineLatencyNanos * latencyTolerance) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                invocationMetrics.recordConcurrency((int) limit, inFlight);
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+                throttled = false;
+            }
+        }
+    }
+
+    private static boolean isThrottling(Throwable failure) {
+        for (var cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AwsServiceException serviceException && serviceException.isThrottlingException()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public enum Mode {
+        /**
+         * Requests wait for a permit.
+         */
+        WAIT,
+        /**
+         * Requests without a permit are rejected.
+         */
+        SHED
+    }
+
+    public record Statistics(int limit, int inFlight, long requests, long rejections, long throttlingErrors) {
+    }
+}
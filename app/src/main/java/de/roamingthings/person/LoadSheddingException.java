@@ -0,0 +1,8 @@
+package de.roamingthings.person;
+
+public class LoadSheddingException extends IllegalStateException {
+
+    public LoadSheddingException(String reason) {
+        super("Shedding a request to the person table: " + reason);
+    }
+}
@@ -0,0 +1,172 @@
+package de.roamingthings.person;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.crac.OrderedResource;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Context;
+import org.crac.Resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache for persons that lives as long as the (warm) Lambda container.
+ * <p>
+ * Found persons are kept for the configured TTL but never beyond the expiration of their item. Ids without an item
+ * are remembered for the (short) negative TTL. The cache is cleared on CRaC checkpoint and restore so a restored
+ * SnapStart instance always starts empty.
+ */
+@Slf4j
+@Singleton
+@Introspected
+public class PersonCache implements OrderedResource {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Clock systemClock;
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public PersonCache(
+            @Value("${person.cache.enabled:false}") boolean enabled,
+            @Value("${person.cache.max-entries:10000}") int maxEntries,
+            @Value("${person.cache.ttl:60s}") Duration ttl,
+            @Value("${person.cache.negative-ttl:5s}") Duration negativeTtl,
+            Clock systemClock) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.systemClock = systemClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PersonCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the cached entry for the id or empty if the id is not cached (anymore).
+     */
+    public Optional<Entry> get(String id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        var now = Instant.now(systemClock);
+        synchronized (entries) {
+            var entry = entries.get(id);
+            if (entry != null && entry.expiresAt().isAfter(now)) {
+                hits.increment();
+                return Optional.of(entry);
+            }
+            if (entry != null) {
+                entries.remove(id);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Caches a found person.
+     *
+     * @param itemExpiresAt the expiration of the person's item or {@code null} if the item does not expire
+     */
+    public void put(Person person, Instant itemExpiresAt) {
+        if (!enabled) {
+            return;
+        }
+        var expiresAt = Instant.now(systemClock).plus(ttl);
+        if (itemExpiresAt != null && itemExpiresAt.isBefore(expiresAt)) {
+            expiresAt = itemExpiresAt;
+        }
+        store(person.id(), new Entry(person, expiresAt));
+    }
+
+    /**
+     * Remembers that there is no person with the given id.
+     */
+    public void putAbsent(String id) {
+        if (!enabled) {
+            return;
+        }
+        store(id, new Entry(null, Instant.now(systemClock).plus(negativeTtl)));
+    }
+
+    public void invalidate(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Statistics statistics() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Statistics(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        clear();
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        clear();
+        log.debug("Person cache cleared after restore");
+    }
+
+    private void store(String id, Entry entry) {
+        synchronized (entries) {
+            entries.put(id, entry);
+        }
+    }
+
+    /**
+     * A cached lookup result. {@link #person()} is {@code null} if the person is known to be absent.
+     */
+    public record Entry(Person person, Instant expiresAt) {
+
+        public Optional<Person> asOptional() {
+            return Optional.ofNullable(person);
+        }
+    }
+
+    /**
+     * @param evictions   the entries removed because the cache was full
+     * @param expirations the entries removed because they expired
+     */
+    public record Statistics(long hits, long misses, long evictions, long expirations, int size) {
+    }
+}
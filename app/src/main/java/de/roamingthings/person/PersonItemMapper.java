@@ -0,0 +1,90 @@
+package de.roamingthings.person;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Maps {@link Person}s to and from items of the person table.
+ * <p>
+ * The schema is fixed, so all attribute names, the constant sort key and the projection are created once and items
+ * are mapped without reflection. Missing attributes fail with a {@link PersonMappingException}.
+ */
+final class PersonItemMapper {
+
+    static final String PARTITION_KEY = "PK";
+    static final String SORT_KEY = "SK";
+    static final String FIRST_NAME = "firstName";
+    static final String LAST_NAME = "lastName";
+    static final String EXPIRES_AT = "expiresAt";
+
+    /**
+     * Only the attributes needed to map a person are read.
+     */
+    static final String PROJECTION_EXPRESSION = "#pk, #firstName, #lastName, #expiresAt";
+    static final Map<String, String> PROJECTION_ATTRIBUTE_NAMES = Map.of(
+            "#pk", PARTITION_KEY,
+            "#firstName", FIRST_NAME,
+            "#lastName", LAST_NAME,
+            "#expiresAt", EXPIRES_AT
+    );
+
+    private static final String PARTITION_KEY_PREFIX = "person#";
+    private static final AttributeValue DETAILS_SORT_KEY = AttributeValue.fromS("DETAILS");
+
+    private PersonItemMapper() {
+    }
+
+    static Map<String, AttributeValue> keyOf(String id) {
+        return Map.of(
+                PARTITION_KEY, AttributeValue.fromS(PARTITION_KEY_PREFIX + id),
+                SORT_KEY, DETAILS_SORT_KEY
+        );
+    }
+
+    static Map<String, AttributeValue> toItem(Person person, long expiresAtEpochSecond) {
+        return Map.of(
+                PARTITION_KEY, AttributeValue.fromS(PARTITION_KEY_PREFIX + person.id()),
+                SORT_KEY, DETAILS_SORT_KEY,
+                FIRST_NAME, AttributeValue.fromS(person.firstName()),
+                LAST_NAME, AttributeValue.fromS(person.lastName()),
+                EXPIRES_AT, AttributeValue.fromN(Long.toString(expiresAtEpochSecond))
+        );
+    }
+
+    /**
+     * Maps an item whose id is only known from its partition key, e.g. one returned by {@code BatchGetItem}.
+     */
+    static Person toPerson(Map<String, AttributeValue> item) {
+        var partitionKey = item.get(PARTITION_KEY);
+        if (partitionKey == null || partitionKey.s() == null || !partitionKey.s().startsWith(PARTITION_KEY_PREFIX)) {
+            throw new PersonMappingException(null, PARTITION_KEY);
+        }
+        return toPerson(partitionKey.s().substring(PARTITION_KEY_PREFIX.length()), item);
+    }
+
+    static Person toPerson(String id, Map<String, AttributeValue> item) {
+        return new Person(
+                id,
+                requireString(item, FIRST_NAME, id),
+                requireString(item, LAST_NAME, id)
+        );
+    }
+
+    /**
+     * @return the expiration of the item or {@code null} if the item does not expire
+     */
+    static Instant expiresAtOf(Map<String, AttributeValue> item) {
+        var expiresAt = item.get(EXPIRES_AT);
+        return expiresAt == null || expiresAt.n() == null ? null : Instant.ofEpochSecond(Long.parseLong(expiresAt.n()));
+    }
+
+    private static String requireString(Map<String, AttributeValue> item, String attributeName, String id) {
+        var attributeValue = item.get(attributeName);
+        if (attributeValue == null || attributeValue.s() == null) {
+            throw new PersonMappingException(id, attributeName);
+        }
+        return attributeValue.s();
+    }
+}
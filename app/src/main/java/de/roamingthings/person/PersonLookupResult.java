@@ -0,0 +1,23 @@
+package de.roamingthings.person;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The result of {@link PersonRepository#findAllByIds(java.util.Collection)}.
+ *
+ * @param persons  the persons that were found, keyed by their id. Ids without an item are absent from the map.
+ * @param failures the items that were found but could not be mapped. The id of a failure is {@code null} if the
+ *                 partition key of the item is unusable.
+ */
+public record PersonLookupResult(Map<String, Person> persons, List<PersonMappingException> failures) {
+
+    public static PersonLookupResult found(Map<String, Person> persons) {
+        return new PersonLookupResult(persons, List.of());
+    }
+
+    public Optional<Person> get(String id) {
+        return Optional.ofNullable(persons.get(id));
+    }
+}
@@ -0,0 +1,14 @@
+package de.roamingthings.person;
+
+import lombok.Getter;
+
+@Getter
+public class PersonMappingException extends IllegalStateException {
+
+    private final String personId;
+
+    public PersonMappingException(String personId, String attributeName) {
+        super("Item of person %s has no string attribute '%s'".formatted(personId, attributeName));
+        this.personId = personId;
+    }
+}
@@ -1,66 +1,269 @@
 package de.roamingthings.person;
 
+import de.roamingthings.deadline.DeadlineExceededException;
+import de.roamingthings.deadline.InvocationDeadline;
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.metrics.InvocationMetrics.Counter;
+import de.roamingthings.metrics.InvocationMetrics.Stage;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 
 import java.time.Clock;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static de.roamingthings.configuration.PersonLookupExecutorFactory.PERSON_LOOKUP_EXECUTOR;
 
 @Singleton
 @Introspected
 public class PersonRepository {
 
     public static final int EXPIRE_IN_SECONDS = 120;
+    /**
+     * Maximum number of keys DynamoDB accepts in a single BatchGetItem request.
+     */
+    public static final int MAX_BATCH_GET_KEYS = 100;
+    private static final int MAX_UNPROCESSED_KEYS_RETRIES = 5;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
     private final String tableName;
     private final DynamoDbClient dynamoDbClient;
     private final Clock systemClock;
+    private final PersonCache personCache;
+    private final int maxInFlight;
+    private final ExecutorService lookupExecutor;
+    private final InvocationMetrics invocationMetrics;
+    private final InvocationDeadline invocationDeadline;
+    private final ReadHedger readHedger;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ReturnConsumedCapacity returnConsumedCapacity;
 
     public PersonRepository(
             @Value("${personTableName}") String tableName,
             DynamoDbClient dynamoDbClient,
-            Clock systemClock) {
+            Clock systemClock,
+            PersonCache personCache,
+            @Value("${person.lookup.max-in-flight:1}") int maxInFlight,
+            @Named(PERSON_LOOKUP_EXECUTOR) ExecutorService lookupExecutor,
+            InvocationMetrics invocationMetrics,
+            InvocationDeadline invocationDeadline,
+            ReadHedger readHedger,
+            AdaptiveConcurrencyLimiter concurrencyLimiter) {
         this.tableName = tableName;
         this.dynamoDbClient = dynamoDbClient;
         this.systemClock = systemClock;
+        this.personCache = personCache;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.lookupExecutor = lookupExecutor;
+        this.invocationMetrics = invocationMetrics;
+        this.invocationDeadline = invocationDeadline;
+        this.readHedger = readHedger;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.returnConsumedCapacity = invocationMetrics.isEnabled() ? ReturnConsumedCapacity.TOTAL : ReturnConsumedCapacity.NONE;
     }
 
     public Optional<Person> findById(String id) {
-        var item = dynamoDbClient.getItem(request -> request
+        var cached = personCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get().asOptional();
+        }
+        // The timeouts are taken per request, a hedge is started later than the first request
+        var item = readHedger.read(() -> concurrencyLimiter.call(() -> dynamoDbClient.getItem(request -> request
+                .overrideConfiguration(invocationDeadline.callConfiguration("GetItem"))
                 .tableName(tableName)
-                .key(Map.of(
-                        "PK", AttributeValue.fromS("person#" + id),
-                        "SK", AttributeValue.fromS("DETAILS")
-                )));
+                .key(PersonItemMapper.keyOf(id))
+                .projectionExpression(PersonItemMapper.PROJECTION_EXPRESSION)
+                .expressionAttributeNames(PersonItemMapper.PROJECTION_ATTRIBUTE_NAMES)
+                .returnConsumedCapacity(returnConsumedCapacity))));
+        recordConsumedCapacity(item.consumedCapacity());
         if (!item.hasItem()) {
+            personCache.putAbsent(id);
             return Optional.empty();
         } else {
-            var itemMap = item.item();
-            return Optional.of(new Person(
-                    id,
-                    itemMap.get("firstName").s(),
-                    itemMap.get("lastName").s()
-            ));
+            var person = PersonItemMapper.toPerson(id, item.item());
+            personCache.put(person, PersonItemMapper.expiresAtOf(item.item()));
+            return Optional.of(person);
+        }
+    }
+
+    /**
+     * Looks up all persons with the given ids using {@code BatchGetItem}.
+     * <p>
+     * Duplicate ids are collapsed into a single key and the keys are requested in chunks of at most
+     * {@value #MAX_BATCH_GET_KEYS}. Unprocessed keys are retried with exponential backoff. Ids that are in the
+     * {@link PersonCache} are not requested at all. With {@code person.lookup.max-in-flight} greater than one the keys
+     * are spread over up to that many chunks, so that lookups of fewer keys are split as well, and at most that many
+     * chunks are requested at once. No request is started when the {@link InvocationDeadline} is (nearly)
+     * reached, the timeouts of the requests end at the deadline at the latest. Slow requests are hedged by the
+     * {@link ReadHedger}. Each request, including a hedge, takes a permit of the {@link AdaptiveConcurrencyLimiter}.
+     *
+     * Items that cannot be mapped do not fail the lookup, they are reported per id in
+     * {@link PersonLookupResult#failures()} so that the caller can decide about them in a single pass.
+     */
+    public PersonLookupResult findAllByIds(Collection<String> ids) {
+        var start = System.nanoTime();
+        var uniqueIds = new LinkedHashSet<>(ids);
+        var persons = new HashMap<String, Person>(uniqueIds.size());
+        var failures = new ArrayList<PersonMappingException>();
+        var uncachedIds = new ArrayList<String>(uniqueIds.size());
+        for (var id : uniqueIds) {
+            personCache.get(id).ifPresentOrElse(
+                    entry -> entry.asOptional().ifPresent(person -> persons.put(id, person)),
+                    () -> uncachedIds.add(id));
         }
+        var chunkSize = Math.min(MAX_BATCH_GET_KEYS, Math.max(1, (uncachedIds.size() + maxInFlight - 1) / maxInFlight));
+        var chunks = new ArrayList<List<String>>();
+        for (int i = 0; i < uncachedIds.size(); i += chunkSize) {
+            chunks.add(uncachedIds.subList(i, Math.min(i + chunkSize, uncachedIds.size())));
+        }
+        var chunkResults = maxInFlight <= 1 || chunks.size() <= 1
+                ? chunks.stream().map(this::fetchChunk).toList()
+                : fetchChunksConcurrently(chunks);
+        for (var chunkResult : chunkResults) {
+            persons.putAll(chunkResult.persons());
+            failures.addAll(chunkResult.failures());
+        }
+        if (personCache.isEnabled()) {
+            // Items that could not be mapped are not cached as absent, they have to be looked at again
+            var failedIds = failures.stream()
+                    .map(PersonMappingException::getPersonId)
+                    .collect(Collectors.toSet());
+            uncachedIds.stream()
+                    .filter(id -> !persons.containsKey(id) && !failedIds.contains(id))
+                    .forEach(personCache::putAbsent);
+        }
+        invocationMetrics.increment(Counter.CACHE_HITS, uniqueIds.size() - uncachedIds.size());
+        invocationMetrics.increment(Counter.PERSONS_REQUESTED, uncachedIds.size());
+        invocationMetrics.increment(Counter.PERSONS_NOT_FOUND, uniqueIds.size() - persons.size() - failures.size());
+        invocationMetrics.recordSince(Stage.LOOKUP, start);
+        return new PersonLookupResult(persons, failures);
     }
 
     public void save(Person person) {
+        personCache.invalidate(person.id());
         dynamoDbClient.putItem(request -> request
                 .tableName(tableName)
-                .item(Map.of(
-                        "PK", AttributeValue.fromS("person#" + person.id()),
-                        "SK", AttributeValue.fromS("DETAILS"),
-                        "firstName", AttributeValue.fromS(person.firstName()),
-                        "lastName", AttributeValue.fromS(person.lastName()),
-                        "expiresAt", AttributeValue.fromN(calculateExpirationEpochSecs())
-                )));
+                .item(PersonItemMapper.toItem(person, calculateExpirationEpochSecs())));
+    }
+
+    /**
+     * Requests the chunks with at most {@code person.lookup.max-in-flight} workers, each of which takes the next chunk
+     * once its previous one is done.
+     */
+    private List<PersonLookupResult> fetchChunksConcurrently(List<List<String>> chunks) {
+        var results = new PersonLookupResult[chunks.size()];
+        var nextChunk = new AtomicInteger();
+        var workers = IntStream.range(0, Math.min(maxInFlight, chunks.size()))
+                .mapToObj(worker -> CompletableFuture.runAsync(() -> {
+                    for (var chunk = nextChunk.getAndIncrement(); chunk < chunks.size(); chunk = nextChunk.getAndIncrement()) {
+                        results[chunk] = fetchChunk(chunks.get(chunk));
+                    }
+                }, lookupExecutor))
+                .toList();
+        try {
+            workers.forEach(CompletableFuture::join);
+            return List.of(results);
+        } catch (CompletionException e) {
+            // Keeps the other workers from taking further chunks
+            nextChunk.set(chunks.size());
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private PersonLookupResult fetchChunk(List<String> ids) {
+        var persons = new HashMap<String, Person>(ids.size());
+        var failures = new ArrayList<PersonMappingException>();
+        var keys = ids.stream()
+                .map(PersonItemMapper::keyOf)
+                .toList();
+        var requestItems = Map.of(tableName, KeysAndAttributes.builder()
+                .keys(keys)
+                .projectionExpression(PersonItemMapper.PROJECTION_EXPRESSION)
+                .expressionAttributeNames(PersonItemMapper.PROJECTION_ATTRIBUTE_NAMES)
+                .build());
+        for (int attempt = 0; !requestItems.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                if (attempt > MAX_UNPROCESSED_KEYS_RETRIES) {
+                    throw new UnprocessedKeysException(requestItems.get(tableName).keys().size(), attempt);
+                }
+                backoff(attempt);
+            }
+            var pendingItems = requestItems;
+            // Unprocessed keys are the way BatchGetItem reports throttling of a part of the keys
+            var response = readHedger.read(() -> concurrencyLimiter.call(() -> dynamoDbClient.batchGetItem(request -> request
+                            .overrideConfiguration(invocationDeadline.callConfiguration("BatchGetItem"))
+                            .requestItems(pendingItems)
+                            .returnConsumedCapacity(returnConsumedCapacity)),
+                    PersonRepository::hasUnprocessedKeys), pendingItems.get(tableName).keys().size());
+            invocationMetrics.increment(Counter.BATCH_GET_REQUESTS, 1);
+            if (response.hasConsumedCapacity()) {
+                response.consumedCapacity().forEach(this::recordConsumedCapacity);
+            }
+            response.responses()
+                    .getOrDefault(tableName, List.of())
+                    .forEach(itemMap -> {
+                        try {
+                            var person = PersonItemMapper.toPerson(itemMap);
+                            persons.put(person.id(), person);
+                            personCache.put(person, PersonItemMapper.expiresAtOf(itemMap));
+                        } catch (PersonMappingException e) {
+                            failures.add(e);
+                        }
+                    });
+            requestItems = hasUnprocessedKeys(response) ? response.unprocessedKeys() : Map.of();
+        }
+        return new PersonLookupResult(persons, failures);
+    }
+
+    private static boolean hasUnprocessedKeys(BatchGetItemResponse response) {
+        return response.hasUnprocessedKeys() && !response.unprocessedKeys().isEmpty();
+    }
+
+    private void recordConsumedCapacity(ConsumedCapacity consumedCapacity) {
+        if (consumedCapacity != null) {
+            invocationMetrics.recordConsumedCapacity(consumedCapacity.capacityUnits());
+        }
+    }
+
+    /**
+     * Pauses before retrying unprocessed keys, at most until the retry can just be started before the deadline.
+     *
+     * @throws DeadlineExceededException if there is no time left for the retry
+     */
+    private void backoff(int attempt) {
+        var maxDelay = BASE_BACKOFF_MILLIS << (attempt - 1);
+        var delay = invocationDeadline.limitPause("BatchGetItem", ThreadLocalRandom.current().nextLong(maxDelay / 2, maxDelay + 1));
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry unprocessed keys", e);
+        }
     }
 
-    private String calculateExpirationEpochSecs() {
-        return String.valueOf(Instant.now(systemClock).plusSeconds(EXPIRE_IN_SECONDS).getEpochSecond());
+    private long calculateExpirationEpochSecs() {
+        return systemClock.millis() / 1000 + EXPIRE_IN_SECONDS;
     }
 }
@@ -0,0 +1,255 @@
+package de.roamingthings.person;
+
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.metrics.InvocationMetrics.Counter;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Introspected;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static de.roamingthings.configuration.PersonLookupExecutorFactory.PERSON_HEDGING_EXECUTOR;
+
+/**
+ * Hedges reads of the person table to cut the tail latency.
+ * <p>
+ * If a read has not completed after the {@code person.hedging.percentile} of the recent read latencies (bounded by
+ * {@code person.hedging.min-delay} and {@code person.hedging.max-delay}), the same read is issued again and the first
+ * successful response wins. Every read earns {@code person.hedging.max-extra-load} of a hedge, so hedges add at most
+ * that share of requests. After a throttling error no hedges are issued for {@code person.hedging.throttle-pause}, as
+ * they would only add to the throttling.
+ * <p>
+ * Only reads of at most {@code person.hedging.max-keys} keys are hedged, as a hedge costs the read capacity of all its
+ * keys again. In practice these are single reads and the retries of unprocessed keys. The request that loses is
+ * cancelled by interrupting its thread, which aborts the SDK call. Each request is created anew by the supplier, so it
+ * takes the timeouts that are left when it starts.
+ */
+@Singleton
+@Introspected
+public class ReadHedger {
+
+    private static final int LATENCY_SAMPLES = 512;
+    private static final int MIN_LATENCY_SAMPLES = 32;
+    private static final int RECALCULATE_DELAY_EVERY = 64;
+    private static final double MAX_HEDGE_TOKENS = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final double maxExtraLoad;
+    private final long throttlePauseNanos;
+    private final int maxKeys;
+    private final ExecutorService hedgingExecutor;
+    private final InvocationMetrics invocationMetrics;
+
+    private final long[] latencySamples = new long[LATENCY_SAMPLES];
+    private long latencySampleCount;
+    private volatile long delayNanos;
+    private double hedgeTokens;
+    private volatile long pausedUntilNanos;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public ReadHedger(
+            @Value("${person.hedging.enabled:false}") boolean enabled,
+            @Value("${person.hedging.percentile:95}") double percentile,
+            @Value("${person.hedging.min-delay:5ms}") Duration minDelay,
+            @Value("${person.hedging.max-delay:200ms}") Duration maxDelay,
+            @Value("${person.hedging.max-extra-load:0.05}") double maxExtraLoad,
+            @Value("${person.hedging.throttle-pause:1s}") Duration throttlePause,
+            @Value("${person.hedging.max-keys:25}") int maxKeys,
+            @Named(PERSON_HEDGING_EXECUTOR) ExecutorService hedgingExecutor,
+            InvocationMetrics invocationMetrics) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxExtraLoad = maxExtraLoad;
+        this.throttlePauseNanos = throttlePause.toNanos();
+        this.maxKeys = maxKeys;
+        this.hedgingExecutor = hedgingExecutor;
+        this.invocationMetrics = invocationMetrics;
+        this.delayNanos = maxDelayNanos;
+    }
+
+    /**
+     * Performs the read of a single key, hedged if enabled.
+     */
+    public <T> T read(Supplier<T> request) {
+        return read(request, 1);
+    }
+
+    /**
+     * Performs the read, hedged if enabled and it reads at most {@code person.hedging.max-keys} keys. Exceptions of the
+     * read are rethrown if no request succeeds.
+     */
+    public <T> T read(Supplier<T> request, int keys) {
+        if (!enabled || keys > maxKeys) {
+            return request.get();
+        }
+        reads.increment();
+        earnHedgeToken();
+        var start = System.nanoTime();
+        var primary = start(request);
+        primary.result().whenComplete((response, failure) -> {
+            if (failure == null) {
+                recordLatency(System.nanoTime() - start);
+            } else {
+                pauseIfThrottled(failure);
+            }
+        });
+        try {
+            return primary.result().get(delayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return hedge(request, primary, start);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a read", e);
+        }
+    }
+
+    public Statistics statistics() {
+        return new Statistics(reads.sum(), hedges.sum(), hedgeWins.sum(), Duration.ofNanos(delayNanos));
+    }
+
+    private <T> T hedge(Supplier<T> request, StartedRequest<T> primary, long start) {
+        if (System.nanoTime() < pausedUntilNanos || !tryTakeHedgeToken()) {
+            return await(primary.result());
+        }
+        hedges.increment();
+        invocationMetrics.increment(Counter.HEDGED_READS, 1);
+        var hedge = start(request);
+        var first = new CompletableFuture<T>();
+        var failures = new AtomicInteger();
+        primary.result().whenComplete((response, failure) -> complete(first, response, failure, failures, false));
+        hedge.result().whenComplete((response, failure) -> {
+            if (failure != null) {
+                pauseIfThrottled(failure);
+            }
+            complete(first, response, failure, failures, true);
+        });
+        var response = await(first);
+        if (!primary.result().isDone()) {
+            // The first request took at least this long, its latency would be lost by cancelling it
+            recordLatency(System.nanoTime() - start);
+            primary.cancel();
+        } else if (!hedge.result().isDone()) {
+            hedge.cancel();
+        }
+        return response;
+    }
+
+    /**
+     * Starts the request on the hedging executor, so that it can be cancelled by interrupting its thread.
+     */
+    private <T> StartedRequest<T> start(Supplier<T> request) {
+        var result = new CompletableFuture<T>();
+        var task = hedgingExecutor.submit(() -> {
+            try {
+                result.complete(request.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return new StartedRequest<>(result, task);
+    }
+
+    private <T> void complete(CompletableFuture<T> first, T response, Throwable failure, AtomicInteger failures, boolean hedge) {
+        if (failure == null) {
+            if (first.complete(response) && hedge) {
+                hedgeWins.increment();
+                invocationMetrics.increment(Counter.HEDGE_WINS, 1);
+            }
+        } else if (failures.incrementAndGet() == 2) {
+            first.completeExceptionally(failure);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable failure) {
+        while (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(failure);
+    }
+
+    private void pauseIfThrottled(Throwable failure) {
+        var cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof AwsServiceException serviceException && serviceException.isThrottlingException()) {
+            pausedUntilNanos = System.nanoTime() + throttlePauseNanos;
+        }
+    }
+
+    private synchronized void earnHedgeToken() {
+        hedgeTokens = Math.min(hedgeTokens + maxExtraLoad, MAX_HEDGE_TOKENS);
+    }
+
+    private synchronized boolean tryTakeHedgeToken() {
+        if (hedgeTokens < 1) {
+            return false;
+        }
+        hedgeTokens--;
+        return true;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        synchronized (latencySamples) {
+            latencySamples[(int) (latencySampleCount++ % LATENCY_SAMPLES)] = latencyNanos;
+            if (latencySampleCount >= MIN_LATENCY_SAMPLES && latencySampleCount % RECALCULATE_DELAY_EVERY == 0) {
+                var samples = Arrays.copyOf(latencySamples, (int) Math.min(latencySampleCount, LATENCY_SAMPLES));
+                Arrays.sort(samples);
+                var index = (int) Math.ceil(percentile / 100 * samples.length) - 1;
+                var delay = samples[Math.max(0, Math.min(index, samples.length - 1))];
+                delayNanos = Math.max(minDelayNanos, Math.min(delay, maxDelayNanos));
+            }
+        }
+    }
+
+    private record StartedRequest<T>(CompletableFuture<T> result, Future<?> task) {
+
+        void cancel() {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * @param delay the current delay after which a read is hedged
+     */
+    public record Statistics(long reads, long hedges, long hedgeWins, Duration delay) {
+
+        public double hedgeRate() {
+            return reads == 0 ? 0 : (double) hedges / reads;
+        }
+    }
+}
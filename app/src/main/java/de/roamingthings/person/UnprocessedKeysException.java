@@ -0,0 +1,8 @@
+package de.roamingthings.person;
+
+public class UnprocessedKeysException extends IllegalStateException {
+
+    public UnprocessedKeysException(int unprocessedKeys, int attempts) {
+        super("%d keys remained unprocessed after %d attempts".formatted(unprocessedKeys, attempts));
+    }
+}
@@ -0,0 +1,88 @@
+package de.roamingthings.runtime;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import de.roamingthings.ThirdPartyApiRequestEnricherStreamHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Entry point of the native image when the function is deployed to a custom runtime ({@code provided.al2}).
+ * <p>
+ * Polls the <a href="https://docs.aws.amazon.com/lambda/latest/dg/runtimes-api.html">Lambda runtime API</a> for
+ * invocations and passes their payload to the {@link ThirdPartyApiRequestEnricherStreamHandler}.
+ */
+public final class NativeLambdaRuntime {
+
+    private static final String RUNTIME_API_VERSION = "2018-06-01";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+    private final String runtimeApiUrl;
+
+    private NativeLambdaRuntime(String runtimeApi) {
+        this.runtimeApiUrl = "http://" + runtimeApi + "/" + RUNTIME_API_VERSION + "/runtime/";
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new NativeLambdaRuntime(System.getenv("AWS_LAMBDA_RUNTIME_API")).run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        ThirdPartyApiRequestEnricherStreamHandler handler;
+        try {
+            handler = new ThirdPartyApiRequestEnricherStreamHandler();
+        } catch (RuntimeException e) {
+            post("init/error", errorOf(e));
+            throw e;
+        }
+        while (!Thread.currentThread().isInterrupted()) {
+            var invocation = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(runtimeApiUrl + "invocation/next")).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            var headers = invocation.headers();
+            var requestId = headers.firstValue("Lambda-Runtime-Aws-Request-Id")
+                    .orElseThrow(() -> new IllegalStateException("Invocation without request id"));
+            headers.firstValue("Lambda-Runtime-Trace-Id")
+                    .ifPresent(traceId -> System.setProperty("com.amazonaws.xray.traceHeader", traceId));
+            var context = new RuntimeContext(
+                    requestId,
+                    headers.firstValue("Lambda-Runtime-Invoked-Function-Arn").orElse(null),
+                    headers.firstValueAsLong("Lambda-Runtime-Deadline-Ms").orElse(RuntimeContext.NO_DEADLINE));
+
+            var output = new ByteArrayOutputStream();
+            try {
+                handler.handleRequest(new ByteArrayInputStream(invocation.body()), output, context);
+                post("invocation/" + requestId + "/response", output.toByteArray());
+            } catch (Exception e) {
+                post("invocation/" + requestId + "/error", errorOf(e));
+            }
+        }
+    }
+
+    private void post(String path, byte[] body) throws IOException, InterruptedException {
+        httpClient.send(
+                HttpRequest.newBuilder(URI.create(runtimeApiUrl + path))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static byte[] errorOf(Exception e) throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (var generator = JSON_FACTORY.createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeStringField("errorMessage", String.valueOf(e.getMessage()));
+            generator.writeStringField("errorType", e.getClass().getName());
+            generator.writeEndObject();
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,98 @@
+package de.roamingthings.runtime;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link Context} of an invocation received from the Lambda runtime API.
+ */
+class RuntimeContext implements Context {
+
+    private static final LambdaLogger LOGGER = new LambdaLogger() {
+        @Override
+        public void log(String message) {
+            System.out.print(message);
+        }
+
+        @Override
+        public void log(byte[] message) {
+            log(new String(message, StandardCharsets.UTF_8));
+        }
+    };
+
+    /**
+     * The deadline of an invocation without a {@code Lambda-Runtime-Deadline-Ms} header.
+     */
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final String awsRequestId;
+    private final String invokedFunctionArn;
+    private final long deadlineEpochMillis;
+
+    RuntimeContext(String awsRequestId, String invokedFunctionArn, long deadlineEpochMillis) {
+        this.awsRequestId = awsRequestId;
+        this.invokedFunctionArn = invokedFunctionArn;
+        this.deadlineEpochMillis = deadlineEpochMillis;
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return awsRequestId;
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return System.getenv("AWS_LAMBDA_LOG_GROUP_NAME");
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return System.getenv("AWS_LAMBDA_LOG_STREAM_NAME");
+    }
+
+    @Override
+    public String getFunctionName() {
+        return System.getenv("AWS_LAMBDA_FUNCTION_NAME");
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return System.getenv("AWS_LAMBDA_FUNCTION_VERSION");
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return invokedFunctionArn;
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        // Without a deadline the remaining time is larger than an int, it must not overflow into a negative one
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, deadlineEpochMillis - System.currentTimeMillis()));
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        var memorySize = System.getenv("AWS_LAMBDA_FUNCTION_MEMORY_SIZE");
+        return memorySize == null ? 0 : Integer.parseInt(memorySize);
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return LOGGER;
+    }
+}
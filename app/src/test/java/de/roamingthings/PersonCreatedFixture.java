@@ -0,0 +1,99 @@
+package de.roamingthings;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonLookupResult;
+import de.roamingthings.person.PersonRepository;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.context.annotation.Requires;
+import jakarta.inject.Singleton;
+
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Messages of PersonCreated events and the mocked {@link PersonRepository} shared by the handler tests. The mock
+ * replaces the repository in the tests that run in the {@link #ENVIRONMENT} environment, e.g. with
+ * {@code @MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)}. Reset it before each test.
+ */
+@Factory
+@Requires(env = PersonCreatedFixture.ENVIRONMENT)
+public class PersonCreatedFixture {
+
+    public static final String ENVIRONMENT = "person-repository-mock";
+    public static final String EVENT_ID = "a7e4d8b5-0f3d-4e6d-9cdc-2b2c0e0fe83c";
+    public static final String PERSON_CREATED_DETAIL_TYPE = "PersonCreated";
+    public static final String PERSON_SOURCE = "de.roamingthings.person";
+    public static final PersonRepository personRepositoryMock = mock(PersonRepository.class);
+
+    @Singleton
+    @Replaces(PersonRepository.class)
+    PersonRepository personRepository() {
+        return personRepositoryMock;
+    }
+
+    public static SQSEvent.SQSMessage personCreatedMessage(String messageId, String personId) {
+        return personCreatedMessage(messageId, EVENT_ID, personId);
+    }
+
+    public static SQSEvent.SQSMessage personCreatedMessage(String messageId, String eventId, String personId) {
+        return eventMessage(messageId, eventId, PERSON_CREATED_DETAIL_TYPE, PERSON_SOURCE, personId);
+    }
+
+    /**
+     * A message of an event of any detail type and source whose detail carries the id of a person.
+     */
+    public static SQSEvent.SQSMessage eventMessage(String messageId, String eventId, String detailType, String source, String personId) {
+        return message(messageId, """
+                {
+                  "version": "0",
+                  "id": "%s",
+                  "detail-type": "%s",
+                  "source": "%s",
+                  "account": "123456789012",
+                  "time": "2021-08-01T12:34:56Z",
+                  "region": "eu-central-1",
+                  "resources": [],
+                  "detail": {
+                    "id": "%s"
+                  }
+                }
+                """.formatted(eventId, detailType, source, personId));
+    }
+
+    /**
+     * A message of an event that is cut off after the id of the person, before its detail type.
+     */
+    public static SQSEvent.SQSMessage truncatedMessage(String messageId, String personId) {
+        return message(messageId, """
+                {
+                  "version": "0",
+                  "id": "%s",
+                  "detail": {
+                    "id": "%s"
+                """.formatted(EVENT_ID, personId));
+    }
+
+    public static SQSEvent.SQSMessage message(String messageId, String body) {
+        var message = new SQSEvent.SQSMessage();
+        message.setMessageId(messageId);
+        message.setBody(body);
+        return message;
+    }
+
+    /**
+     * Lets the mocked repository find a person for every id it is asked for.
+     */
+    public static void findAPersonForEveryId() {
+        doAnswer(invocation -> PersonLookupResult.found(invocation.<Collection<String>>getArgument(0).stream()
+                .distinct()
+                .collect(Collectors.toMap(Function.identity(), id -> new Person(id, "First", "Last")))))
+                .when(personRepositoryMock).findAllByIds(anyCollection());
+    }
+}
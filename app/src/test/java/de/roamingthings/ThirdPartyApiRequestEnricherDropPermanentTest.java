@@ -0,0 +1,122 @@
+package de.roamingthings;
+
+import de.roamingthings.failure.MessageFailureHandler;
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonLookupResult;
+import de.roamingthings.person.PersonMappingException;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static de.roamingthings.PersonCreatedFixture.message;
+import static de.roamingthings.PersonCreatedFixture.personCreatedMessage;
+import static de.roamingthings.PersonCreatedFixture.personRepositoryMock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
+@Property(name = "enricher.failure-policy", value = "DROP_PERMANENT")
+class ThirdPartyApiRequestEnricherDropPermanentTest {
+
+    @Inject
+    ApplicationContext applicationContext;
+    @Inject
+    MessageFailureHandler messageFailureHandler;
+
+    ThirdPartyApiRequestEnricherHandler handler;
+
+    @BeforeEach
+    void setup() {
+        reset(personRepositoryMock);
+        handler = new ThirdPartyApiRequestEnricherHandler(applicationContext);
+    }
+
+    @Test
+    void should_drop_unparseable_messages() {
+        doReturn(PersonLookupResult.found(Map.of("1", new Person("1", "John", "Doe")))).when(personRepositoryMock).findAllByIds(anyCollection());
+        var droppedBefore = messageFailureHandler.droppedCount();
+
+        var details = handler.execute(List.of(
+                message("m1", "not json"),
+                personCreatedMessage("m2", "1")
+        ));
+
+        assertThat(details).extracting(ThirdPartyApiRequestDetails::id).containsExactly("1");
+        assertThat(messageFailureHandler.droppedCount() - droppedBefore).isEqualTo(1);
+    }
+
+    @Test
+    void should_drop_malformed_messages_without_a_detail_type() {
+        doReturn(PersonLookupResult.found(Map.of("1", new Person("1", "John", "Doe")))).when(personRepositoryMock).findAllByIds(anyCollection());
+        var droppedBefore = messageFailureHandler.droppedCount();
+
+        var details = handler.execute(List.of(
+                message("m1", "{\"id\": \"event-1\", \"detail\": {\"id\": \"2\""),
+                personCreatedMessage("m2", "1")
+        ));
+
+        assertThat(details).extracting(ThirdPartyApiRequestDetails::id).containsExactly("1");
+        assertThat(messageFailureHandler.droppedCount() - droppedBefore).isEqualTo(1);
+    }
+
+    @Test
+    void should_drop_messages_of_persons_with_malformed_items_in_a_single_lookup() {
+        doReturn(new PersonLookupResult(
+                Map.of("1", new Person("1", "John", "Doe")),
+                List.of(new PersonMappingException("2", "lastName"), new PersonMappingException("3", "firstName"))))
+                .when(personRepositoryMock).findAllByIds(anyCollection());
+        var droppedBefore = messageFailureHandler.droppedCount();
+
+        var details = handler.execute(List.of(
+                personCreatedMessage("m1", "2"),
+                personCreatedMessage("m2", "1"),
+                personCreatedMessage("m3", "3"),
+                personCreatedMessage("m4", "2")
+        ));
+
+        assertThat(details).extracting(ThirdPartyApiRequestDetails::id).containsExactly("1");
+        assertThat(messageFailureHandler.droppedCount() - droppedBefore).isEqualTo(3);
+        verify(personRepositoryMock, times(1)).findAllByIds(Set.of("2", "1", "3"));
+    }
+
+    @Test
+    void should_drop_items_without_a_usable_partition_key() {
+        doReturn(new PersonLookupResult(
+                Map.of("1", new Person("1", "John", "Doe")),
+                List.of(new PersonMappingException(null, "PK"))))
+                .when(personRepositoryMock).findAllByIds(anyCollection());
+        var droppedBefore = messageFailureHandler.droppedCount();
+
+        var details = handler.execute(List.of(
+                personCreatedMessage("m1", "1"),
+                personCreatedMessage("m2", "2")
+        ));
+
+        assertThat(details).extracting(ThirdPartyApiRequestDetails::id).containsExactly("1");
+        assertThat(messageFailureHandler.droppedCount() - droppedBefore).isEqualTo(1);
+        verify(personRepositoryMock, times(1)).findAllByIds(anyCollection());
+    }
+
+    @Test
+    void should_fail_the_batch_on_transient_errors() {
+        doThrow(ProvisionedThroughputExceededException.builder().message("throttled").build())
+                .when(personRepositoryMock).findAllByIds(anyCollection());
+
+        assertThatThrownBy(() -> handler.execute(List.of(personCreatedMessage("m1", "1"))))
+                .isInstanceOf(MessageProcessingFailedException.class);
+    }
+}
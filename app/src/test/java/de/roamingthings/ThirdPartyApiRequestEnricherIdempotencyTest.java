@@ -0,0 +1,74 @@
+package de.roamingthings;
+
+import de.roamingthings.idempotency.LocalIdempotencyStore;
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonLookupResult;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static de.roamingthings.PersonCreatedFixture.personCreatedMessage;
+import static de.roamingthings.PersonCreatedFixture.personRepositoryMock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
+@Property(name = "idempotency.enabled", value = "true")
+class ThirdPartyApiRequestEnricherIdempotencyTest {
+
+    @Inject
+    ApplicationContext applicationContext;
+    @Inject
+    LocalIdempotencyStore localIdempotencyStore;
+
+    ThirdPartyApiRequestEnricherHandler handler;
+
+    @BeforeEach
+    void setup() {
+        reset(personRepositoryMock);
+        localIdempotencyStore.clear();
+        handler = new ThirdPartyApiRequestEnricherHandler(applicationContext);
+        doReturn(PersonLookupResult.found(Map.of(
+                "1", new Person("1", "John", "Doe"),
+                "2", new Person("2", "Jane", "Roe")
+        ))).when(personRepositoryMock).findAllByIds(anyCollection());
+    }
+
+    @Test
+    void should_return_the_result_of_a_redelivered_event_without_enriching_it_again() {
+        var first = handler.execute(List.of(personCreatedMessage("m1", "event-1", "1")));
+        var redelivered = handler.execute(List.of(
+                personCreatedMessage("m2", "event-1", "1"),
+                personCreatedMessage("m3", "event-2", "2")
+        ));
+
+        assertThat(first).containsExactly(new ThirdPartyApiRequestDetails("1", "John", "Doe"));
+        assertThat(redelivered).containsExactly(
+                new ThirdPartyApiRequestDetails("1", "John", "Doe"),
+                new ThirdPartyApiRequestDetails("2", "Jane", "Roe"));
+        verify(personRepositoryMock).findAllByIds(Set.of("1"));
+        verify(personRepositoryMock).findAllByIds(Set.of("2"));
+    }
+
+    @Test
+    void should_deliver_an_event_only_once_per_batch() {
+        var details = handler.execute(List.of(
+                personCreatedMessage("m1", "event-3", "1"),
+                personCreatedMessage("m2", "event-3", "1")
+        ));
+
+        assertThat(details).containsExactly(new ThirdPartyApiRequestDetails("1", "John", "Doe"));
+        verify(personRepositoryMock, times(1)).findAllByIds(anyCollection());
+    }
+}
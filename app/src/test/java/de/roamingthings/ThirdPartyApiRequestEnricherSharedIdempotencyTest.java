@@ -0,0 +1,74 @@
+package de.roamingthings;
+
+import de.roamingthings.idempotency.DynamoDbIdempotencyStore;
+import de.roamingthings.idempotency.LocalIdempotencyStore;
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonLookupResult;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.test.annotation.MockBean;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static de.roamingthings.PersonCreatedFixture.personCreatedMessage;
+import static de.roamingthings.PersonCreatedFixture.personRepositoryMock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
+@Property(name = "idempotency.enabled", value = "true")
+@Property(name = "idempotency.shared", value = "true")
+@Property(name = "idempotency.skip-replayed", value = "true")
+class ThirdPartyApiRequestEnricherSharedIdempotencyTest {
+
+    static final DynamoDbIdempotencyStore sharedStoreMock = mock(DynamoDbIdempotencyStore.class);
+
+    @Inject
+    ApplicationContext applicationContext;
+    @Inject
+    LocalIdempotencyStore localIdempotencyStore;
+
+    ThirdPartyApiRequestEnricherHandler handler;
+
+    @BeforeEach
+    void setup() {
+        reset(personRepositoryMock, sharedStoreMock);
+        localIdempotencyStore.clear();
+        handler = new ThirdPartyApiRequestEnricherHandler(applicationContext);
+        doReturn(PersonLookupResult.found(Map.of("2", new Person("2", "Jane", "Roe"))))
+                .when(personRepositoryMock).findAllByIds(anyCollection());
+    }
+
+    @Test
+    void should_skip_an_event_that_another_instance_already_enriched() {
+        doReturn(Map.of("event-1", new ThirdPartyApiRequestDetails("1", "John", "Doe")))
+                .when(sharedStoreMock).findAll(anyCollection());
+
+        var details = handler.execute(List.of(
+                personCreatedMessage("m1", "event-1", "1"),
+                personCreatedMessage("m2", "event-2", "2")
+        ));
+
+        assertThat(details).containsExactly(new ThirdPartyApiRequestDetails("2", "Jane", "Roe"));
+        verify(sharedStoreMock).findAll(List.of("event-1", "event-2"));
+        verify(personRepositoryMock).findAllByIds(Set.of("2"));
+        verify(sharedStoreMock).saveAll(Map.of("event-2", new ThirdPartyApiRequestDetails("2", "Jane", "Roe")));
+    }
+
+    @Replaces(DynamoDbIdempotencyStore.class)
+    @MockBean(DynamoDbIdempotencyStore.class)
+    public DynamoDbIdempotencyStore sharedIdempotencyStore() {
+        return sharedStoreMock;
+    }
+}
@@ -0,0 +1,86 @@
+package de.roamingthings;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonLookupResult;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.serde.ObjectMapper;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static de.roamingthings.PersonCreatedFixture.personRepositoryMock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.reset;
+
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
+class ThirdPartyApiRequestEnricherStreamHandlerTest {
+
+    @Inject
+    ApplicationContext applicationContext;
+    @Inject
+    ObjectMapper objectMapper;
+
+    ThirdPartyApiRequestEnricherHandler handler;
+    ThirdPartyApiRequestEnricherStreamHandler streamHandler;
+
+    @BeforeEach
+    void setup() {
+        reset(personRepositoryMock);
+        handler = new ThirdPartyApiRequestEnricherHandler(applicationContext);
+        streamHandler = new ThirdPartyApiRequestEnricherStreamHandler(applicationContext);
+    }
+
+    @Test
+    void should_produce_the_same_output_as_the_request_handler() throws IOException {
+        doReturn(PersonLookupResult.found(Map.of(
+                "1", new Person("1", "John", "Doe"),
+                "2", new Person("2", "Jane", "Roe")
+        ))).when(personRepositoryMock).findAllByIds(anyCollection());
+        var payload = """
+                [
+                  {
+                    "messageId": "m1",
+                    "receiptHandle": "handle-1",
+                    "body": "{\\"detail-type\\":\\"PersonCreated\\",\\"source\\":\\"de.roamingthings.person\\",\\"detail\\":{\\"id\\":\\"2\\"}}",
+                    "attributes": {"ApproximateReceiveCount": "1"},
+                    "messageAttributes": {},
+                    "eventSource": "aws:sqs"
+                  },
+                  {
+                    "body": "{\\"detail-type\\":\\"PersonCreated\\",\\"source\\":\\"de.roamingthings.person\\",\\"detail\\":{\\"id\\":\\"unknown\\"}}",
+                    "messageId": "m2"
+                  },
+                  {
+                    "messageId": "m3",
+                    "body": "{\\"detail-type\\":\\"PersonCreated\\",\\"source\\":\\"de.roamingthings.person\\",\\"detail\\":{\\"id\\":\\"1\\"}}"
+                  }
+                ]
+                """;
+        var messages = objectMapper.readValue(payload, Argument.listOf(SQSEvent.SQSMessage.class));
+        var expected = objectMapper.writeValueAsString(handler.execute(messages));
+
+        assertThat(handleStreamRequest(payload)).isEqualTo(expected);
+    }
+
+    @Test
+    void should_write_an_empty_array_for_an_empty_batch() throws IOException {
+        assertThat(handleStreamRequest("[]")).isEqualTo("[]");
+    }
+
+    private String handleStreamRequest(String payload) throws IOException {
+        var output = new ByteArrayOutputStream();
+        streamHandler.handleRequest(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), output, null);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -1,34 +1,42 @@
 package de.roamingthings;
 
-import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import de.roamingthings.enrichment.EventEnricherRegistry;
 import de.roamingthings.person.Person;
-import de.roamingthings.person.PersonRepository;
+import de.roamingthings.person.PersonLookupResult;
 import io.micronaut.context.ApplicationContext;
-import io.micronaut.context.annotation.Replaces;
-import io.micronaut.test.annotation.MockBean;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
+import static de.roamingthings.PersonCreatedFixture.PERSON_CREATED_DETAIL_TYPE;
+import static de.roamingthings.PersonCreatedFixture.eventMessage;
+import static de.roamingthings.PersonCreatedFixture.personCreatedMessage;
+import static de.roamingthings.PersonCreatedFixture.personRepositoryMock;
+import static de.roamingthings.PersonCreatedFixture.truncatedMessage;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
-@MicronautTest
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
 class ThirdPartyApiRequestEnricherTest {
 
-    static final PersonRepository personRepositoryMock = mock(PersonRepository.class);
     static final String PERSON_ID = "12345678-1234-1234-1234-123456789012";
     static final String FIRST_NAME = "John";
     static final String LAST_NAME = "Doe";
 
     @Inject
     ApplicationContext applicationContext;
+    @Inject
+    EventEnricherRegistry eventEnricherRegistry;
 
     ThirdPartyApiRequestEnricherHandler handler;
 
@@ -41,22 +49,7 @@ void setup() {
     @Test
     void should_return_an_enriched_event() {
         repositoryWillReturnAPerson();
-        var message = new SQSEvent.SQSMessage();
-        message.setBody("""
-                {
-                  "version": "0",
-                  "id": "a7e4d8b5-0f3d-4e6d-9cdc-2b2c0e0fe83c",
-                  "detail-type": "PersonCreated",
-                  "source": "de.roamingthings.person",
-                  "account": "123456789012",
-                  "time": "2021-08-01T12:34:56Z",
-                  "region": "eu-central-1",
-                  "resources": [],
-                  "detail": {
-                    "id": "%s"
-                  }
-                }
-                """.formatted(PERSON_ID));
+        var message = personCreatedMessage("m1", PERSON_ID);
         List<ThirdPartyApiRequestDetails> details = handler.execute(List.of(message));
 
         assertThat(details).hasSize(1);
@@ -65,14 +58,61 @@ void should_return_an_enriched_event() {
         assertThat(details.get(0).lastName()).isEqualTo(LAST_NAME);
     }
 
-    private void repositoryWillReturnAPerson() {
-        var person = new Person(PERSON_ID, FIRST_NAME, LAST_NAME);
-        doReturn(Optional.of(person)).when(personRepositoryMock).findById(PERSON_ID);
+    @Test
+    void should_keep_input_order_and_look_up_duplicate_ids_once() {
+        var otherPerson = new Person("other-id", "Jane", "Roe");
+        doReturn(PersonLookupResult.found(Map.of(PERSON_ID, new Person(PERSON_ID, FIRST_NAME, LAST_NAME), otherPerson.id(), otherPerson)))
+                .when(personRepositoryMock).findAllByIds(anyCollection());
+
+        List<ThirdPartyApiRequestDetails> details = handler.execute(List.of(
+                personCreatedMessage("m1", "other-id"),
+                personCreatedMessage("m2", PERSON_ID),
+                personCreatedMessage("m3", "unknown-id"),
+                personCreatedMessage("m4", "other-id")
+        ));
+
+        assertThat(details)
+                .extracting(ThirdPartyApiRequestDetails::id)
+                .containsExactly("other-id", PERSON_ID, "other-id");
+        verify(personRepositoryMock, times(1)).findAllByIds(anyCollection());
+    }
+
+    @Test
+    void should_skip_events_of_other_detail_types_without_a_lookup() {
+        var message = eventMessage("m1", "b1d2e3f4-0f3d-4e6d-9cdc-2b2c0e0fe83c", "OrderPlaced", "de.roamingthings.order", PERSON_ID);
+
+        var unregisteredBefore = eventEnricherRegistry.unregisteredCount();
+
+        List<ThirdPartyApiRequestDetails> details = handler.execute(List.of(message));
+
+        assertThat(details).isEmpty();
+        assertThat(eventEnricherRegistry.unregisteredCount() - unregisteredBefore).isEqualTo(1);
+        verify(personRepositoryMock, never()).findAllByIds(anyCollection());
     }
 
-    @Replaces(PersonRepository.class)
-    @MockBean(PersonRepository.class)
-    public PersonRepository personRepository() {
-        return personRepositoryMock;
+    @Test
+    void should_count_events_of_an_unregistered_source() {
+        var message = eventMessage("m1", "d3e4f5a6-0f3d-4e6d-9cdc-2b2c0e0fe83c", PERSON_CREATED_DETAIL_TYPE, "de.roamingthings.other", PERSON_ID);
+        var unregisteredBefore = eventEnricherRegistry.unregisteredCount();
+
+        List<ThirdPartyApiRequestDetails> details = handler.execute(List.of(message));
+
+        assertThat(details).isEmpty();
+        assertThat(eventEnricherRegistry.unregisteredCount() - unregisteredBefore).isEqualTo(1);
+        verify(personRepositoryMock, never()).findAllByIds(anyCollection());
+    }
+
+    @Test
+    void should_fail_the_batch_on_a_truncated_event_without_a_detail_type() {
+        var message = truncatedMessage("m1", PERSON_ID);
+
+        assertThatThrownBy(() -> handler.execute(List.of(message)))
+                .isInstanceOf(MessageProcessingFailedException.class);
+        verify(personRepositoryMock, never()).findAllByIds(anyCollection());
+    }
+
+    private void repositoryWillReturnAPerson() {
+        var person = new Person(PERSON_ID, FIRST_NAME, LAST_NAME);
+        doReturn(PersonLookupResult.found(Map.of(PERSON_ID, person))).when(personRepositoryMock).findAllByIds(anyCollection());
     }
 }
@@ -0,0 +1,108 @@
+package de.roamingthings.capture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadRecorderTest {
+
+    static final String BODY = """
+            {"id":"event-1","account":"123456789012","detail":{"id":"12345678-1234-1234-1234-123456789012"}}""";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_capture_anonymised_bodies() throws IOException {
+        var file = directory.resolve("capture.json.gz");
+        try (var recorder = new PayloadRecorder(file.toString(), 10, 100, "/detail/id,/account", "salt", Clock.systemUTC(), null)) {
+            recorder.record(List.of(BODY, BODY));
+            recorder.record(List.of("not json"));
+        }
+
+        var batches = CaptureFile.read(file);
+
+        assertThat(batches).hasSize(2);
+        var anonymised = batches.get(0).bodies();
+        assertThat(anonymised.get(0))
+                .isEqualTo(anonymised.get(1))
+                .hasSameSizeAs(BODY)
+                .contains("\"id\":\"event-1\"")
+                .doesNotContain("123456789012");
+        assertThat(batches.get(1).bodies()).containsExactly("xxxxxxxx");
+        assertThat(batches.get(1).instanceId()).isNotEmpty().isEqualTo(batches.get(0).instanceId());
+    }
+
+    @Test
+    void should_upload_the_capture_in_parts() throws IOException {
+        var file = directory.resolve("capture.json.gz");
+        var uploads = directory.resolve("uploads");
+        var keys = new ArrayList<String>();
+        CaptureUploader uploader = (uploadedFile, key) -> {
+            keys.add(key);
+            var upload = uploads.resolve(key);
+            Files.createDirectories(upload.getParent());
+            Files.copy(uploadedFile, upload);
+        };
+        try (var recorder = new PayloadRecorder(file.toString(), 10, 2, "/detail/id,/account", "salt", Clock.systemUTC(), uploader)) {
+            recorder.record(List.of(BODY));
+            recorder.record(List.of(BODY));
+            recorder.record(List.of(BODY));
+        }
+
+        var batches = CaptureFile.read(uploads);
+
+        assertThat(file).doesNotExist();
+        var instanceId = batches.get(0).instanceId();
+        assertThat(keys).containsExactly(instanceId + "/00000.json.gz", instanceId + "/00001.json.gz");
+        assertThat(batches).hasSize(3)
+                .allSatisfy(batch -> assertThat(batch.instanceId()).isEqualTo(instanceId));
+    }
+
+    @Test
+    void should_keep_the_capture_when_the_upload_fails() throws IOException {
+        var file = directory.resolve("capture.json.gz");
+        try (var recorder = new PayloadRecorder(file.toString(), 10, 1, "/detail/id,/account", "salt", Clock.systemUTC(),
+                (uploadedFile, key) -> {
+                    throw new IOException("unavailable");
+                })) {
+            recorder.record(List.of(BODY));
+            recorder.record(List.of(BODY));
+        }
+
+        assertThat(CaptureFile.read(file)).hasSize(2);
+    }
+
+    @Test
+    void should_keep_pseudonyms_stable_for_the_same_salt() {
+        var anonymizer = new PayloadAnonymizer(Set.of("/detail/id"), "salt");
+
+        assertThat(anonymizer.pseudonym("1", 8)).isEqualTo(new PayloadAnonymizer(Set.of(), "salt").pseudonym("1", 8));
+        assertThat(anonymizer.pseudonym("1", 8)).isNotEqualTo(new PayloadAnonymizer(Set.of(), "other").pseudonym("1", 8));
+    }
+
+    @Test
+    void should_keep_the_length_and_the_whitespace_of_the_body() {
+        var anonymizer = new PayloadAnonymizer(Set.of("/account", "/detail/id"), "salt");
+        var body = """
+                { "account" : "12",
+                  "detail": {"id": "a\\"b"} }""";
+
+        var anonymized = anonymizer.anonymize(body);
+
+        assertThat(anonymized)
+                .hasSameSizeAs(body)
+                .startsWith("{ \"account\" : \"")
+                .contains("\",\n  \"detail\": {\"id\": \"")
+                .doesNotContain("\"12\"");
+    }
+}
@@ -0,0 +1,46 @@
+package de.roamingthings.configuration;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolMetricPublisherTest {
+
+    ConnectionPoolMetricPublisher publisher = new ConnectionPoolMetricPublisher();
+
+    @Test
+    void should_aggregate_the_metrics_of_all_attempts() {
+        var apiCall = MetricCollector.create("ApiCall");
+        reportAttempt(apiCall, Duration.ofMillis(2), 3, 0);
+        reportAttempt(apiCall, Duration.ofMillis(4), 5, 1);
+
+        publisher.publish(apiCall.collect());
+
+        assertThat(publisher.snapshotAndReset()).isEqualTo(new ConnectionPoolMetricPublisher.Statistics(
+                2, Duration.ofMillis(3), Duration.ofMillis(4), 50, 5, 1));
+    }
+
+    @Test
+    void should_reset_after_snapshot() {
+        var apiCall = MetricCollector.create("ApiCall");
+        reportAttempt(apiCall, Duration.ofMillis(2), 3, 0);
+        publisher.publish(apiCall.collect());
+
+        publisher.snapshotAndReset();
+
+        assertThat(publisher.snapshotAndReset()).isEqualTo(new ConnectionPoolMetricPublisher.Statistics(
+                0, Duration.ZERO, Duration.ZERO, 50, 0, 0));
+    }
+
+    private static void reportAttempt(MetricCollector apiCall, Duration acquireDuration, int leased, int pending) {
+        var attempt = apiCall.createChild("ApiCallAttempt").createChild("HttpClient");
+        attempt.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, acquireDuration);
+        attempt.reportMetric(HttpMetric.MAX_CONCURRENCY, 50);
+        attempt.reportMetric(HttpMetric.LEASED_CONCURRENCY, leased);
+        attempt.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pending);
+    }
+}
@@ -0,0 +1,23 @@
+package de.roamingthings.crac;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@MicronautTest
+@Property(name = "priming.enabled", value = "false")
+class CracResourcesWithoutPrimingTest {
+
+    @Inject
+    ApplicationContext applicationContext;
+
+    @Test
+    void should_reset_the_http_client_after_restore_when_priming_is_disabled() {
+        assertThat(applicationContext.containsBean(EnricherPrimingResource.class)).isFalse();
+        assertThat(applicationContext.containsBean(SdkHttpClientResetResource.class)).isTrue();
+    }
+}
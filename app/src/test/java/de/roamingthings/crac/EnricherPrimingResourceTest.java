@@ -0,0 +1,86 @@
+package de.roamingthings.crac;
+
+import de.roamingthings.ThirdPartyApiRequestEnricher;
+import de.roamingthings.ThirdPartyApiRequestEnricher.ExtractedMessage;
+import de.roamingthings.events.AwsEventUnmarshaller;
+import de.roamingthings.events.PersonCreatedDetails;
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonCache;
+import io.micronaut.serde.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static de.roamingthings.crac.EnricherPrimingResource.PRIMING_PERSON_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class EnricherPrimingResourceTest {
+
+    ThirdPartyApiRequestEnricher enricher = mock(ThirdPartyApiRequestEnricher.class);
+    AwsEventUnmarshaller awsEventUnmarshaller = mock(AwsEventUnmarshaller.class);
+    ObjectMapper objectMapper = mock(ObjectMapper.class);
+    PersonCache personCache = new PersonCache(true, 10, Duration.ofSeconds(60), Duration.ofSeconds(5), Clock.systemUTC());
+
+    EnricherPrimingResource primingResource = new EnricherPrimingResource(enricher, awsEventUnmarshaller, objectMapper, personCache, 20, 3);
+
+    @BeforeEach
+    void setup() {
+        doReturn(new ExtractedMessage("priming", "00000000-0000-0000-0000-000000000000", null, null))
+                .when(enricher).extract(anyString(), anyString());
+    }
+
+    @Test
+    void should_prime_the_enrichment_path_before_checkpoint() throws Exception {
+        primingResource.beforeCheckpoint(null);
+
+        verify(enricher, times(21)).extract(anyString(), anyString());
+        verify(awsEventUnmarshaller, times(20)).unmarshall(anyString(), eq(PersonCreatedDetails.class));
+        verify(objectMapper, times(20)).writeValueAsBytes(any(), any());
+        verify(enricher, times(3)).enrich(anyList());
+    }
+
+    @Test
+    void should_prime_the_lookup_without_an_event_id() {
+        primingResource.beforeCheckpoint(null);
+
+        verify(enricher, times(3)).enrich(List.of(new ExtractedMessage("priming", null, null, null)));
+    }
+
+    @Test
+    void should_leave_the_person_cache_empty() {
+        personCache.put(new Person(PRIMING_PERSON_ID, "Priming", "Priming"), null);
+
+        primingResource.beforeCheckpoint(null);
+
+        assertThat(personCache.get(PRIMING_PERSON_ID)).isEmpty();
+    }
+
+    @Test
+    void should_stop_priming_the_lookup_when_it_fails() {
+        doThrow(new IllegalStateException("Table not found")).when(enricher).enrich(anyList());
+
+        primingResource.beforeCheckpoint(null);
+
+        verify(enricher, times(1)).enrich(anyList());
+    }
+
+    @Test
+    void should_do_nothing_after_restore() {
+        primingResource.afterRestore(null);
+
+        verifyNoInteractions(enricher, awsEventUnmarshaller, objectMapper);
+    }
+}
@@ -0,0 +1,44 @@
+package de.roamingthings.crac;
+
+import de.roamingthings.configuration.ResettableSdkHttpClient;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class SdkHttpClientResetResourceTest {
+
+    List<SdkHttpClient> createdClients = new ArrayList<>();
+    ResettableSdkHttpClient sdkHttpClient = new ResettableSdkHttpClient(() -> {
+        var client = mock(SdkHttpClient.class);
+        doReturn("client-" + createdClients.size()).when(client).clientName();
+        createdClients.add(client);
+        return client;
+    });
+
+    SdkHttpClientResetResource resetResource = new SdkHttpClientResetResource(sdkHttpClient);
+
+    @Test
+    void should_replace_the_http_client_after_restore() {
+        resetResource.afterRestore(null);
+
+        assertThat(createdClients).hasSize(2);
+        verify(createdClients.get(0)).close();
+        assertThat(sdkHttpClient.clientName()).isEqualTo("client-1");
+    }
+
+    @Test
+    void should_keep_the_http_client_before_checkpoint() {
+        resetResource.beforeCheckpoint(null);
+
+        assertThat(createdClients).hasSize(1);
+        verify(createdClients.get(0), never()).close();
+    }
+}
@@ -0,0 +1,70 @@
+package de.roamingthings.emulator;
+
+import io.micronaut.serde.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An event bus that sends the events matching the pattern of a rule to the queue of the rule.
+ */
+final class EmulatedEventBus {
+
+    private final VirtualClock clock;
+    private final Instant epoch;
+    private final ObjectMapper objectMapper;
+    private final List<Rule> rules = new ArrayList<>();
+
+    EmulatedEventBus(VirtualClock clock, Instant epoch, ObjectMapper objectMapper) {
+        this.clock = clock;
+        this.epoch = epoch;
+        this.objectMapper = objectMapper;
+    }
+
+    void addRule(Map<String, ?> eventPattern, EmulatedQueue target) {
+        rules.add(new Rule(eventPattern, target));
+    }
+
+    /**
+     * @return {@code true} if a rule matched the event
+     */
+    boolean putEvent(String source, String detailType, Map<String, ?> detail) {
+        var event = new LinkedHashMap<String, Object>();
+        event.put("version", "0");
+        event.put("id", UUID.randomUUID().toString());
+        event.put("detail-type", detailType);
+        event.put("source", source);
+        event.put("account", "000000000000");
+        event.put("time", epoch.plusNanos(clock.nanos()).toString());
+        event.put("region", "eu-central-1");
+        event.put("resources", List.of());
+        event.put("detail", detail);
+        var matched = false;
+        String body = null;
+        for (var rule : rules) {
+            if (EventPatternMatcher.matches(rule.eventPattern(), event)) {
+                body = body != null ? body : toJson(event);
+                rule.target().send(body);
+                matched = true;
+            }
+        }
+        return matched;
+    }
+
+    private String toJson(Map<String, Object> event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Rule(Map<String, ?> eventPattern, EmulatedQueue target) {
+    }
+}
@@ -0,0 +1,100 @@
+package de.roamingthings.emulator;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A standard SQS queue with visibility timeout and a redrive policy that moves a message to the dead-letter queue
+ * once it has been received {@code maxReceiveCount} times without being deleted.
+ */
+final class EmulatedQueue {
+
+    private final VirtualClock clock;
+    private final long visibilityTimeoutNanos;
+    private final int maxReceiveCount;
+    private final Map<String, QueuedMessage> messages = new LinkedHashMap<>();
+    private final List<QueuedMessage> deadLetters = new ArrayList<>();
+
+    EmulatedQueue(VirtualClock clock, long visibilityTimeoutNanos, int maxReceiveCount) {
+        this.clock = clock;
+        this.visibilityTimeoutNanos = visibilityTimeoutNanos;
+        this.maxReceiveCount = maxReceiveCount;
+    }
+
+    void send(String body) {
+        var message = new QueuedMessage(UUID.randomUUID().toString(), body, clock.nanos());
+        messages.put(message.messageId, message);
+    }
+
+    /**
+     * Receives up to {@code maxMessages} visible messages and hides them for the visibility timeout.
+     */
+    List<QueuedMessage> receive(int maxMessages) {
+        var now = clock.nanos();
+        var received = new ArrayList<QueuedMessage>(maxMessages);
+        var iterator = messages.values().iterator();
+        while (received.size() < maxMessages && iterator.hasNext()) {
+            var message = iterator.next();
+            if (message.visibleAt > now) {
+                continue;
+            }
+            if (message.receiveCount >= maxReceiveCount) {
+                iterator.remove();
+                deadLetters.add(message);
+                continue;
+            }
+            message.receiveCount++;
+            message.visibleAt = now + visibilityTimeoutNanos;
+            received.add(message);
+        }
+        return received;
+    }
+
+    void delete(Collection<QueuedMessage> deleted) {
+        deleted.forEach(message -> messages.remove(message.messageId));
+    }
+
+    boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    int deadLetterCount() {
+        return deadLetters.size();
+    }
+
+    static final class QueuedMessage {
+
+        private final String messageId;
+        private final String body;
+        private final long sentAt;
+        private long visibleAt;
+        private int receiveCount;
+
+        private QueuedMessage(String messageId, String body, long sentAt) {
+            this.messageId = messageId;
+            this.body = body;
+            this.sentAt = sentAt;
+            this.visibleAt = sentAt;
+        }
+
+        long sentAt() {
+            return sentAt;
+        }
+
+        SQSEvent.SQSMessage toSqsMessage() {
+            var message = new SQSEvent.SQSMessage();
+            message.setMessageId(messageId);
+            message.setReceiptHandle(messageId + "#" + receiveCount);
+            message.setBody(body);
+            message.setAttributes(Map.of("ApproximateReceiveCount", String.valueOf(receiveCount)));
+            message.setEventSource("aws:sqs");
+            return message;
+        }
+    }
+}
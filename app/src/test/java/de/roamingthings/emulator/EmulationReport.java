@@ -0,0 +1,43 @@
+package de.roamingthings.emulator;
+
+import java.time.Duration;
+
+/**
+ * Result of a {@link PipeEmulator} run. Latencies are measured from putting the event on the bus to the completed
+ * invocation of the target.
+ */
+public record EmulationReport(
+        long published,
+        long unmatched,
+        long delivered,
+        long skipped,
+        long deadLettered,
+        long pending,
+        long invocations,
+        long failedInvocations,
+        double averageBatchSize,
+        Duration elapsed,
+        double throughputPerSecond,
+        Duration latencyP50,
+        Duration latencyP90,
+        Duration latencyP99,
+        Duration latencyMax) {
+
+    public String format() {
+        return """
+                published:          %d (%d matched no rule)
+                delivered:          %d
+                skipped:            %d
+                dead-lettered:      %d
+                pending:            %d
+                invocations:        %d (%d failed, %.1f messages on average)
+                elapsed:            %s
+                throughput:         %.2f deliveries/s
+                latency p50/p90/p99/max: %d / %d / %d / %d ms
+                """.formatted(
+                published, unmatched, delivered, skipped, deadLettered, pending,
+                invocations, failedInvocations, averageBatchSize,
+                elapsed, throughputPerSecond,
+                latencyP50.toMillis(), latencyP90.toMillis(), latencyP99.toMillis(), latencyMax.toMillis());
+    }
+}
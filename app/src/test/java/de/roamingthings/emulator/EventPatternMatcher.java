@@ -0,0 +1,78 @@
+package de.roamingthings.emulator;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Matches events against EventBridge event patterns.
+ * <p>
+ * Supports exact values, {@code prefix}, {@code anything-but} and {@code exists} as well as nested fields. Numeric
+ * matching and the other content filters are not supported.
+ */
+final class EventPatternMatcher {
+
+    private EventPatternMatcher() {
+    }
+
+    static boolean matches(Map<String, ?> pattern, Map<String, ?> event) {
+        for (var entry : pattern.entrySet()) {
+            var value = event != null ? event.get(entry.getKey()) : null;
+            if (entry.getValue() instanceof Map<?, ?> nestedPattern) {
+                if (!(value instanceof Map<?, ?> nestedEvent) || !matches(asStringMap(nestedPattern), asStringMap(nestedEvent))) {
+                    return false;
+                }
+            } else if (entry.getValue() instanceof List<?> matchers) {
+                if (!matchesAny(matchers, value, event != null && event.containsKey(entry.getKey()))) {
+                    return false;
+                }
+            } else {
+                throw new IllegalArgumentException("Pattern of '%s' must be an object or an array".formatted(entry.getKey()));
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAny(List<?> matchers, Object value, boolean present) {
+        for (var matcher : matchers) {
+            if (matcher instanceof Map<?, ?> filter) {
+                if (matchesFilter(asStringMap(filter), value, present)) {
+                    return true;
+                }
+            } else if (value instanceof Collection<?> values ? values.stream().anyMatch(v -> equal(matcher, v)) : equal(matcher, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesFilter(Map<String, ?> filter, Object value, boolean present) {
+        if (filter.containsKey("exists")) {
+            return Boolean.TRUE.equals(filter.get("exists")) == present;
+        }
+        if (filter.containsKey("prefix")) {
+            return value instanceof String text && text.startsWith(String.valueOf(filter.get("prefix")));
+        }
+        if (filter.containsKey("anything-but")) {
+            var excluded = filter.get("anything-but");
+            if (excluded instanceof Collection<?> excludedValues) {
+                return present && excludedValues.stream().noneMatch(v -> equal(v, value));
+            }
+            return present && !equal(excluded, value);
+        }
+        throw new IllegalArgumentException("Unsupported content filter " + filter.keySet());
+    }
+
+    private static boolean equal(Object expected, Object actual) {
+        if (expected instanceof Number expectedNumber && actual instanceof Number actualNumber) {
+            return expectedNumber.doubleValue() == actualNumber.doubleValue();
+        }
+        return Objects.equals(expected, actual);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> asStringMap(Map<?, ?> map) {
+        return (Map<String, ?>) map;
+    }
+}
@@ -0,0 +1,53 @@
+package de.roamingthings.emulator;
+
+import de.roamingthings.PersonCreatedFixture;
+import de.roamingthings.ThirdPartyApiRequestEnricherHandler;
+import de.roamingthings.emulator.PipeEmulator.PipeConfig;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static de.roamingthings.PersonCreatedFixture.findAPersonForEveryId;
+
+/**
+ * Runs the {@link PipeEmulator} with settings passed as system properties to tune batching and rate limits offline,
+ * e.g. {@code ./gradlew :app:pipeEmulation -Pemulator.sourceBatchSize=10 -Pemulator.rateLimitPerSecond=20}.
+ */
+@Tag("emulator")
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
+class PipeEmulationRun {
+
+    @Inject
+    ApplicationContext applicationContext;
+
+    @Test
+    void emulate() {
+        findAPersonForEveryId();
+        var defaults = PipeConfig.appStackDefaults();
+        var config = new PipeConfig(
+                Integer.getInteger("emulator.sourceBatchSize", defaults.sourceBatchSize()),
+                Duration.ofSeconds(Long.getLong("emulator.sourceMaximumBatchingWindowInSeconds", defaults.maximumBatchingWindow().toSeconds())),
+                Duration.ofSeconds(Long.getLong("emulator.visibilityTimeoutInSeconds", defaults.visibilityTimeout().toSeconds())),
+                Integer.getInteger("emulator.maxRetryCount", defaults.maxReceiveCount()),
+                Integer.getInteger("emulator.rateLimitPerSecond", defaults.rateLimitPerSecond()),
+                Integer.getInteger("emulator.pollers", defaults.pollers()),
+                defaults.pollInterval(),
+                Duration.ofMillis(Long.getLong("emulator.targetLatencyMillis", defaults.targetLatency().toMillis())));
+        var events = Integer.getInteger("emulator.events", 1000);
+        var eventsPerSecond = Double.parseDouble(System.getProperty("emulator.eventsPerSecond", "10"));
+        var handler = new ThirdPartyApiRequestEnricherHandler(applicationContext);
+
+        var report = new PipeEmulator(config, Map.of("source", List.of(Map.of("prefix", ""))), handler::execute)
+                .publishAtRate(events, eventsPerSecond, "de.roamingthings.person", "PersonCreated", i -> "person-" + i)
+                .run(Duration.ofHours(Long.getLong("emulator.timeoutInHours", 24)));
+
+        System.out.println(config);
+        System.out.println(report.format());
+    }
+}
@@ -0,0 +1,230 @@
+package de.roamingthings.emulator;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import de.roamingthings.emulator.EmulatedQueue.QueuedMessage;
+import io.micronaut.serde.ObjectMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Emulates the topology built by {@code EnrichedEventApiDestinationPipe} in a single JVM: an event bus rule that
+ * sends matching events to a source queue with dead-letter queue, a pipe that polls the queue in batches and calls
+ * the enrichment, and a rate limited API destination.
+ * <p>
+ * The emulation runs on a {@link VirtualClock}, so waiting for batching windows, rate limits and visibility timeouts
+ * costs no real time. The enrichment is called for real and the time it takes is added to the virtual clock. Events
+ * are expected to carry the id that the enrichment returns in their detail, which is how deliveries are matched to
+ * events to measure the latency.
+ */
+public final class PipeEmulator {
+
+    private static final Instant EPOCH = Instant.parse("2023-10-14T08:00:00Z");
+
+    private final PipeConfig config;
+    private final Function<List<SQSEvent.SQSMessage>, List<ThirdPartyApiRequestDetails>> enrichment;
+    private final VirtualClock clock = new VirtualClock();
+    private final EmulatedQueue sourceQueue;
+    private final EmulatedEventBus eventBus;
+    private final RateLimitedTarget target;
+    private final PriorityQueue<Scheduled> schedule = new PriorityQueue<>();
+    private final Map<String, ArrayDeque<Long>> publishTimesById = new HashMap<>();
+    private final List<Long> latencies = new ArrayList<>();
+
+    private long sequence;
+    private long published;
+    private long unmatched;
+    private long skipped;
+    private long invocations;
+    private long failedInvocations;
+    private long invokedMessages;
+    private long lastDelivery;
+    private int pendingPublications;
+
+    public PipeEmulator(PipeConfig config, Map<String, ?> eventPattern,
+                        Function<List<SQSEvent.SQSMessage>, List<ThirdPartyApiRequestDetails>> enrichment) {
+        this.config = config;
+        this.enrichment = enrichment;
+        this.sourceQueue = new EmulatedQueue(clock, config.visibilityTimeout().toNanos(), config.maxReceiveCount());
+        this.eventBus = new EmulatedEventBus(clock, EPOCH, ObjectMapper.getDefault());
+        this.eventBus.addRule(eventPattern, sourceQueue);
+        this.target = new RateLimitedTarget(config.rateLimitPerSecond(), config.targetLatency().toNanos());
+    }
+
+    /**
+     * Puts an event with the given detail id on the bus at {@code at} after the start of the emulation.
+     */
+    public PipeEmulator publish(Duration at, String source, String detailType, String detailId) {
+        pendingPublications++;
+        schedule(at.toNanos(), () -> {
+            pendingPublications--;
+            published++;
+            publishTimesById.computeIfAbsent(detailId, id -> new ArrayDeque<>()).add(clock.nanos());
+            if (!eventBus.putEvent(source, detailType, Map.of("id", detailId))) {
+                unmatched++;
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Publishes {@code count} events at a constant rate.
+     */
+    public PipeEmulator publishAtRate(int count, double eventsPerSecond, String source, String detailType, Function<Integer, String> detailId) {
+        for (int i = 0; i < count; i++) {
+            publish(Duration.ofNanos((long) (i * 1_000_000_000L / eventsPerSecond)), source, detailType, detailId.apply(i));
+        }
+        return this;
+    }
+
+    /**
+     * Runs until all published events are delivered, skipped or dead-lettered, or {@code timeout} has passed on the
+     * virtual clock.
+     */
+    public EmulationReport run(Duration timeout) {
+        for (int i = 0; i < config.pollers(); i++) {
+            var poller = new Poller();
+            schedule(0, poller::poll);
+        }
+        var deadline = timeout.toNanos();
+        while (!schedule.isEmpty() && (pendingPublications > 0 || !sourceQueue.isEmpty())) {
+            var next = schedule.poll();
+            if (next.at() > deadline) {
+                break;
+            }
+            clock.advanceTo(next.at());
+            next.action().run();
+        }
+        return report();
+    }
+
+    private EmulationReport report() {
+        var sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        var elapsed = Duration.ofNanos(lastDelivery);
+        var seconds = lastDelivery / 1_000_000_000d;
+        return new EmulationReport(
+                published,
+                unmatched,
+                sorted.length,
+                skipped,
+                sourceQueue.deadLetterCount(),
+                published - unmatched - sorted.length - skipped - sourceQueue.deadLetterCount(),
+                invocations,
+                failedInvocations,
+                invocations == 0 ? 0 : (double) invokedMessages / invocations,
+                elapsed,
+                seconds == 0 ? 0 : sorted.length / seconds,
+                percentile(sorted, 0.5),
+                percentile(sorted, 0.9),
+                percentile(sorted, 0.99),
+                percentile(sorted, 1.0));
+    }
+
+    private static Duration percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Duration.ZERO;
+        }
+        var index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(index, 0)]);
+    }
+
+    private void schedule(long at, Runnable action) {
+        schedule.add(new Scheduled(at, sequence++, action));
+    }
+
+    private final class Poller {
+
+        private final List<QueuedMessage> collected = new ArrayList<>();
+        private long windowStart;
+
+        void poll() {
+            var now = clock.nanos();
+            var received = sourceQueue.receive(config.sourceBatchSize() - collected.size());
+            if (collected.isEmpty() && !received.isEmpty()) {
+                windowStart = now;
+            }
+            collected.addAll(received);
+            var windowEnd = windowStart + config.maximumBatchingWindow().toNanos();
+            if (!collected.isEmpty() && (collected.size() >= config.sourceBatchSize() || now >= windowEnd)) {
+                invoke(now);
+            } else {
+                var nextPoll = now + config.pollInterval().toNanos();
+                schedule(collected.isEmpty() ? nextPoll : Math.min(nextPoll, windowEnd), this::poll);
+            }
+        }
+
+        private void invoke(long now) {
+            var batch = List.copyOf(collected);
+            collected.clear();
+            invocations++;
+            invokedMessages += batch.size();
+            var sqsMessages = batch.stream().map(QueuedMessage::toSqsMessage).toList();
+            var start = System.nanoTime();
+            List<ThirdPartyApiRequestDetails> results;
+            try {
+                results = enrichment.apply(sqsMessages);
+            } catch (RuntimeException e) {
+                failedInvocations++;
+                // The messages become visible again after the visibility timeout
+                schedule(now + (System.nanoTime() - start), this::poll);
+                return;
+            }
+            var completed = now + (System.nanoTime() - start);
+            for (var result : results) {
+                completed = target.invoke(completed);
+                var publishTimes = publishTimesById.get(result.id());
+                var publishedAt = publishTimes != null ? publishTimes.poll() : null;
+                if (publishedAt != null) {
+                    latencies.add(completed - publishedAt);
+                }
+                lastDelivery = Math.max(lastDelivery, completed);
+            }
+            skipped += batch.size() - results.size();
+            schedule(completed, () -> {
+                sourceQueue.delete(batch);
+                poll();
+            });
+        }
+    }
+
+    private record Scheduled(long at, long sequence, Runnable action) implements Comparable<Scheduled> {
+
+        @Override
+        public int compareTo(Scheduled other) {
+            return at != other.at ? Long.compare(at, other.at) : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Settings of the emulated topology, named after the properties of {@code EnrichedEventApiDestinationPipeProps}.
+     *
+     * @param maxReceiveCount the {@code maxRetryCount} of the pipe, i.e. the max receive count of the source queue
+     * @param pollers         the number of concurrent pollers of the pipe
+     * @param targetLatency   the time the API destination takes to respond
+     */
+    public record PipeConfig(
+            int sourceBatchSize,
+            Duration maximumBatchingWindow,
+            Duration visibilityTimeout,
+            int maxReceiveCount,
+            int rateLimitPerSecond,
+            int pollers,
+            Duration pollInterval,
+            Duration targetLatency) {
+
+        /**
+         * The settings of {@code AppStack}.
+         */
+        public static PipeConfig appStackDefaults() {
+            return new PipeConfig(1, Duration.ofSeconds(6), Duration.ofSeconds(30), 1, 5, 1, Duration.ofMillis(100), Duration.ofMillis(20));
+        }
+    }
+}
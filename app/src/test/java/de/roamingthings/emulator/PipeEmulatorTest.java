@@ -0,0 +1,83 @@
+package de.roamingthings.emulator;
+
+import de.roamingthings.PersonCreatedFixture;
+import de.roamingthings.ThirdPartyApiRequestEnricherHandler;
+import de.roamingthings.emulator.PipeEmulator.PipeConfig;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static de.roamingthings.PersonCreatedFixture.findAPersonForEveryId;
+import static de.roamingthings.PersonCreatedFixture.personRepositoryMock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.reset;
+
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
+class PipeEmulatorTest {
+
+    static final Map<String, ?> APP_STACK_EVENT_PATTERN = Map.of("source", List.of(Map.of("prefix", "")));
+    static final String SOURCE = "de.roamingthings.person";
+    static final String DETAIL_TYPE = "PersonCreated";
+
+    @Inject
+    ApplicationContext applicationContext;
+
+    ThirdPartyApiRequestEnricherHandler handler;
+
+    @BeforeEach
+    void setup() {
+        reset(personRepositoryMock);
+        findAPersonForEveryId();
+        handler = new ThirdPartyApiRequestEnricherHandler(applicationContext);
+    }
+
+    @Test
+    void should_deliver_all_events_within_the_rate_limit() {
+        var config = new PipeConfig(10, Duration.ofSeconds(1), Duration.ofSeconds(30), 3, 5, 1, Duration.ofMillis(100), Duration.ofMillis(20));
+
+        var report = new PipeEmulator(config, APP_STACK_EVENT_PATTERN, handler::execute)
+                .publishAtRate(50, 50, SOURCE, DETAIL_TYPE, i -> "person-" + i)
+                .run(Duration.ofMinutes(5));
+
+        assertThat(report.delivered()).isEqualTo(50);
+        assertThat(report.pending()).isZero();
+        assertThat(report.averageBatchSize()).isGreaterThan(1);
+        assertThat(report.throughputPerSecond()).isLessThanOrEqualTo(5.1);
+        assertThat(report.latencyMax()).isGreaterThanOrEqualTo(Duration.ofSeconds(8));
+    }
+
+    @Test
+    void should_dead_letter_messages_after_max_receive_count() {
+        var config = new PipeConfig(10, Duration.ofSeconds(1), Duration.ofSeconds(5), 2, 5, 1, Duration.ofMillis(100), Duration.ofMillis(20));
+
+        var report = new PipeEmulator(config, APP_STACK_EVENT_PATTERN, messages -> {
+            throw new IllegalStateException("enrichment failed");
+        })
+                .publishAtRate(5, 10, SOURCE, DETAIL_TYPE, i -> "person-" + i)
+                .run(Duration.ofMinutes(5));
+
+        assertThat(report.deadLettered()).isEqualTo(5);
+        assertThat(report.delivered()).isZero();
+        assertThat(report.failedInvocations()).isEqualTo(2);
+    }
+
+    @Test
+    void should_only_route_events_matching_the_rule() {
+        var pattern = Map.of("source", List.of(SOURCE), "detail-type", List.of(Map.of("anything-but", "PersonDeleted")));
+
+        var report = new PipeEmulator(PipeConfig.appStackDefaults(), pattern, handler::execute)
+                .publish(Duration.ZERO, SOURCE, DETAIL_TYPE, "person-1")
+                .publish(Duration.ZERO, "other.source", DETAIL_TYPE, "person-2")
+                .publish(Duration.ZERO, SOURCE, "PersonDeleted", "person-3")
+                .run(Duration.ofMinutes(1));
+
+        assertThat(report.unmatched()).isEqualTo(2);
+        assertThat(report.delivered()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,32 @@
+package de.roamingthings.emulator;
+
+/**
+ * An API destination that accepts at most {@code rateLimitPerSecond} invocations per second. Invocations above the
+ * rate wait for their turn, just as the pipe backs off when the destination throttles.
+ */
+final class RateLimitedTarget {
+
+    private final long intervalNanos;
+    private final long latencyNanos;
+    private long nextSlot;
+    private long invocations;
+
+    RateLimitedTarget(int rateLimitPerSecond, long latencyNanos) {
+        this.intervalNanos = 1_000_000_000L / rateLimitPerSecond;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * @return the time at which the invocation requested at {@code at} has completed
+     */
+    long invoke(long at) {
+        var start = Math.max(at, nextSlot);
+        nextSlot = start + intervalNanos;
+        invocations++;
+        return start + latencyNanos;
+    }
+
+    long invocations() {
+        return invocations;
+    }
+}
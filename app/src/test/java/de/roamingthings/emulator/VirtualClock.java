@@ -0,0 +1,20 @@
+package de.roamingthings.emulator;
+
+/**
+ * Time of the emulation in nanoseconds. Waiting (batching windows, rate limits, visibility timeouts) only advances
+ * this clock, while the time spent in the handler is measured and added to it.
+ */
+final class VirtualClock {
+
+    private long nanos;
+
+    long nanos() {
+        return nanos;
+    }
+
+    void advanceTo(long nanos) {
+        if (nanos > this.nanos) {
+            this.nanos = nanos;
+        }
+    }
+}
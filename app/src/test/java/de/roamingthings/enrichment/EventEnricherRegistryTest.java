@@ -0,0 +1,90 @@
+package de.roamingthings.enrichment;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import de.roamingthings.events.AwsEventUnmarshaller;
+import de.roamingthings.events.EventBody;
+import de.roamingthings.logging.ErrorLogLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventEnricherRegistryTest {
+
+    static final AwsEventUnmarshaller AWS_EVENT_UNMARSHALLER = new AwsEventUnmarshaller(null);
+    static final ErrorLogLimiter ERROR_LOG_LIMITER = new ErrorLogLimiter(1, Duration.ofSeconds(60), Clock.systemUTC());
+
+    @Test
+    void should_prefer_the_enricher_of_the_source() {
+        var anySource = new TestEnricher("PersonCreated", null);
+        var ofSource = new TestEnricher("PersonCreated", "de.roamingthings.person");
+        var registry = new EventEnricherRegistry(AWS_EVENT_UNMARSHALLER, List.of(anySource, ofSource), ERROR_LOG_LIMITER);
+
+        assertThat(registry.find("PersonCreated", "de.roamingthings.person"))
+                .hasValueSatisfying(registration -> assertThat(registration.enricher()).isSameAs(ofSource));
+        assertThat(registry.find("PersonCreated", "other.source"))
+                .hasValueSatisfying(registration -> assertThat(registration.enricher()).isSameAs(anySource));
+        assertThat(registry.find("PersonDeleted", "de.roamingthings.person")).isEmpty();
+        assertThat(registry.find(null, null)).isEmpty();
+    }
+
+    @Test
+    void should_reject_two_enrichers_for_the_same_type() {
+        var enrichers = List.<EventEnricher<?>>of(
+                new TestEnricher("PersonCreated", "de.roamingthings.person"),
+                new TestEnricher("PersonCreated", "de.roamingthings.person"));
+
+        assertThatThrownBy(() -> new EventEnricherRegistry(AWS_EVENT_UNMARSHALLER, enrichers, ERROR_LOG_LIMITER))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void should_recognize_events_without_an_enricher_without_parsing_them() {
+        var registry = new EventEnricherRegistry(AWS_EVENT_UNMARSHALLER, List.of(new TestEnricher("PersonCreated", null)), ERROR_LOG_LIMITER);
+        var otherEvent = "{\"detail-type\": \"OrderPlaced\", \"detail\": {\"type\": \"Person\"}}";
+        var buffer = ("[" + otherEvent + "]").toCharArray();
+
+        assertThat(registry.mayHaveEnricher(EventBody.of(otherEvent))).isFalse();
+        assertThat(registry.mayHaveEnricher(EventBody.of(buffer, 1, otherEvent.length()))).isFalse();
+        assertThat(registry.mayHaveEnricher(EventBody.of(" {\"detail-type\":\"PersonCreated\"}"))).isTrue();
+        assertThat(registry.mayHaveEnricher(EventBody.of("{\"detail-type\":\"Person\\u0043reated\"}"))).isTrue();
+        assertThat(registry.mayHaveEnricher(EventBody.of("not json"))).isTrue();
+    }
+
+    @Test
+    void should_leave_malformed_events_without_the_detail_type_to_the_parser() {
+        var registry = new EventEnricherRegistry(AWS_EVENT_UNMARSHALLER, List.of(new TestEnricher("PersonCreated", null)), ERROR_LOG_LIMITER);
+
+        assertThat(registry.mayHaveEnricher(EventBody.of("{\"id\": \"1\", \"detail\": {\"id\": \"2\""))).isTrue();
+        assertThat(registry.mayHaveEnricher(EventBody.of("{\"id\": \"1\"} trailing"))).isTrue();
+        assertThat(registry.mayHaveEnricher(EventBody.of("{\"id\": 1,}"))).isTrue();
+    }
+
+    @Test
+    void should_count_every_event_without_an_enricher_even_when_its_log_is_suppressed() {
+        var registry = new EventEnricherRegistry(AWS_EVENT_UNMARSHALLER, List.of(new TestEnricher("PersonCreated", null)), ERROR_LOG_LIMITER);
+
+        registry.recordUnregistered("m1", "OrderPlaced", "de.roamingthings.order");
+        registry.recordUnregistered("m2", "OrderPlaced", "de.roamingthings.order");
+        registry.recordUnregistered("m3", null, null);
+
+        assertThat(registry.unregisteredCount()).isEqualTo(3);
+    }
+
+    record TestEnricher(String detailType, String source) implements EventEnricher<String> {
+
+        @Override
+        public Class<String> detailClass() {
+            return String.class;
+        }
+
+        @Override
+        public void enrich(List<EnrichmentItem<String>> items, BiConsumer<EnrichmentItem<String>, ThirdPartyApiRequestDetails> results) {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package de.roamingthings.events;
+
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static de.roamingthings.events.AwsEventUnmarshaller.DETAIL_ID;
+import static de.roamingthings.events.AwsEventUnmarshaller.DETAIL_TYPE;
+import static de.roamingthings.events.AwsEventUnmarshaller.SOURCE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@MicronautTest
+class AwsEventUnmarshallerTest {
+
+    static final String EVENT = """
+            {
+              "version": "0",
+              "id": "a7e4d8b5-0f3d-4e6d-9cdc-2b2c0e0fe83c",
+              "resources": [{"id": "not-the-detail-id"}],
+              "detail": {
+                "nested": {"id": "not-the-detail-id"},
+                "id": "12345678-1234-1234-1234-123456789012"
+              },
+              "detail-type": "PersonCreated",
+              "source": "de.roamingthings.person",
+              "account": "123456789012",
+              "time": "2021-08-01T12:34:56Z",
+              "region": "eu-central-1"
+            }
+            """;
+
+    @Inject
+    AwsEventUnmarshaller awsEventUnmarshaller;
+
+    @Test
+    void should_extract_the_same_detail_id_as_full_binding() {
+        var event = awsEventUnmarshaller.unmarshall(EVENT, PersonCreatedDetails.class);
+
+        assertThat(awsEventUnmarshaller.extractText(EVENT, DETAIL_ID)).contains(event.getDetail().id());
+    }
+
+    @Test
+    void should_extract_multiple_pointers() {
+        var values = awsEventUnmarshaller.extractText(EVENT, List.of(DETAIL_ID, DETAIL_TYPE, SOURCE));
+
+        assertThat(values)
+                .containsEntry(DETAIL_ID, "12345678-1234-1234-1234-123456789012")
+                .containsEntry(DETAIL_TYPE, "PersonCreated")
+                .containsEntry(SOURCE, "de.roamingthings.person");
+    }
+
+    @Test
+    void should_return_empty_for_missing_or_null_values() {
+        assertThat(awsEventUnmarshaller.extractText("{\"detail\": {}}", DETAIL_ID)).isEmpty();
+        assertThat(awsEventUnmarshaller.extractText("{\"detail\": {\"id\": null}}", DETAIL_ID)).isEmpty();
+        assertThat(awsEventUnmarshaller.extractText("{\"detail\": null}", DETAIL_ID)).isEmpty();
+    }
+
+    @Test
+    void should_fail_on_invalid_events() {
+        assertThatThrownBy(() -> awsEventUnmarshaller.extractText("not json", DETAIL_ID))
+                .isInstanceOf(UnmarshallingException.class);
+        assertThatThrownBy(() -> awsEventUnmarshaller.extractText("[]", DETAIL_ID))
+                .isInstanceOf(UnmarshallingException.class);
+        assertThatThrownBy(() -> awsEventUnmarshaller.extractText("{\"detail\": {\"id\": {}}}", DETAIL_ID))
+                .isInstanceOf(UnmarshallingException.class);
+    }
+
+    @Test
+    void should_fail_on_events_that_are_malformed_after_the_values() {
+        assertThatThrownBy(() -> awsEventUnmarshaller.extractText("{\"detail\": {\"id\": \"1\"}, \"source\": }", DETAIL_ID))
+                .isInstanceOf(UnmarshallingException.class);
+        assertThatThrownBy(() -> awsEventUnmarshaller.extractText("{\"detail\": {\"id\": \"1\"}, \"source\": \"s\"", DETAIL_ID))
+                .isInstanceOf(UnmarshallingException.class);
+        assertThatThrownBy(() -> awsEventUnmarshaller.extractText("{\"detail\": {\"id\": \"1\"}} {}", DETAIL_ID))
+                .isInstanceOf(UnmarshallingException.class);
+    }
+
+    @Test
+    void should_extract_values_below_arrays() {
+        var json = "{\"records\": [{\"id\": \"a\"}, {\"id\": \"b\"}], \"id\": \"c\"}";
+
+        assertThat(awsEventUnmarshaller.extractText(json, List.of("/records/1/id", "/id")))
+                .containsOnly(Map.entry("/records/1/id", "b"), Map.entry("/id", "c"));
+    }
+}
@@ -0,0 +1,36 @@
+package de.roamingthings.failure;
+
+import de.roamingthings.configuration.ConnectionPoolMetricPublisher;
+import de.roamingthings.events.UnmarshallingException;
+import de.roamingthings.logging.ErrorLogLimiter;
+import de.roamingthings.metrics.InvocationMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MessageFailureHandlerTest {
+
+    ErrorLogLimiter errorLogLimiter = mock(ErrorLogLimiter.class);
+    MessageFailureHandler messageFailureHandler = new MessageFailureHandler(FailurePolicy.DROP_PERMANENT,
+            new InvocationMetrics(false, "Test", "test", new ConnectionPoolMetricPublisher(), line -> {
+            }, Clock.systemUTC()),
+            errorLogLimiter);
+
+    @Test
+    void should_count_every_dropped_message_but_rate_limit_the_log() {
+        doReturn(true, false).when(errorLogLimiter).tryAcquire("dropped:" + UnmarshallingException.class.getName());
+
+        for (int i = 0; i < 3; i++) {
+            messageFailureHandler.recordDropped("m" + i, null, new UnmarshallingException("Malformed body"));
+        }
+
+        assertThat(messageFailureHandler.droppedCount()).isEqualTo(3);
+        verify(errorLogLimiter, times(3)).tryAcquire("dropped:" + UnmarshallingException.class.getName());
+    }
+}
@@ -0,0 +1,172 @@
+package de.roamingthings.idempotency;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import de.roamingthings.deadline.DeadlineExceededException;
+import de.roamingthings.deadline.InvocationDeadline;
+import io.micronaut.serde.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class DynamoDbIdempotencyStoreTest {
+
+    static final String TABLE_NAME = "idempotency-table";
+    static final Instant NOW = Instant.parse("2023-10-14T08:00:00Z");
+
+    DynamoDbClient dynamoDbClient = mock(DynamoDbClient.class);
+    ExecutorService writeExecutor = Executors.newFixedThreadPool(4);
+    List<PutItemRequest> puts = Collections.synchronizedList(new ArrayList<>());
+    List<BatchGetItemRequest> gets = new ArrayList<>();
+    InvocationDeadline invocationDeadline = new InvocationDeadline(true, Duration.ofMillis(500), Duration.ofMillis(100),
+            Duration.ofSeconds(5), Duration.ofSeconds(1), Clock.systemUTC());
+
+    DynamoDbIdempotencyStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new DynamoDbIdempotencyStore(TABLE_NAME, Duration.ofMinutes(5), dynamoDbClient, ObjectMapper.getDefault(),
+                Clock.fixed(NOW, ZoneOffset.UTC), writeExecutor, invocationDeadline);
+        doAnswer(invocation -> {
+            Consumer<PutItemRequest.Builder> consumer = invocation.getArgument(0);
+            var builder = PutItemRequest.builder();
+            consumer.accept(builder);
+            var request = builder.build();
+            puts.add(request);
+            if (request.item().get("PK").s().equals("idempotency#taken")) {
+                throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+            }
+            return PutItemResponse.builder().build();
+        }).when(dynamoDbClient).putItem(any(Consumer.class));
+    }
+
+    @AfterEach
+    void teardown() {
+        writeExecutor.shutdownNow();
+    }
+
+    @Test
+    void should_write_results_with_a_condition_and_the_end_of_the_window_as_ttl() {
+        store.saveAll(Map.of("event-1", new ThirdPartyApiRequestDetails("1", "John", "Doe")));
+
+        assertThat(puts).hasSize(1);
+        var put = puts.get(0);
+        assertThat(put.tableName()).isEqualTo(TABLE_NAME);
+        assertThat(put.item().get("PK").s()).isEqualTo("idempotency#event-1");
+        assertThat(put.item().get("expiresAt").n()).isEqualTo(Long.toString(NOW.plus(Duration.ofMinutes(5)).getEpochSecond()));
+        assertThat(put.conditionExpression()).isEqualTo("attribute_not_exists(#pk) OR #expiresAt < :now");
+        assertThat(put.expressionAttributeValues().get(":now").n()).isEqualTo(Long.toString(NOW.getEpochSecond()));
+    }
+
+    @Test
+    void should_keep_the_result_of_the_instance_that_saved_an_event_first() {
+        var results = Map.of(
+                "taken", new ThirdPartyApiRequestDetails("1", "John", "Doe"),
+                "event-2", new ThirdPartyApiRequestDetails("2", "Jane", "Roe"),
+                "event-3", new ThirdPartyApiRequestDetails("3", "Jim", "Doe"));
+
+        assertThatCode(() -> store.saveAll(results)).doesNotThrowAnyException();
+
+        assertThat(puts)
+                .extracting(put -> put.item().get("PK").s())
+                .containsExactlyInAnyOrder("idempotency#taken", "idempotency#event-2", "idempotency#event-3");
+    }
+
+    @Test
+    void should_ignore_results_whose_window_has_ended() {
+        respondWith(List.of(
+                resultItem("current", NOW.plusSeconds(1), new ThirdPartyApiRequestDetails("1", "John", "Doe")),
+                resultItem("expired", NOW, new ThirdPartyApiRequestDetails("2", "Jane", "Roe"))));
+
+        var found = store.findAll(List.of("current", "expired", "unknown"));
+
+        assertThat(found).containsOnly(Map.entry("current", new ThirdPartyApiRequestDetails("1", "John", "Doe")));
+        assertThat(gets).hasSize(1);
+        assertThat(gets.get(0).requestItems().get(TABLE_NAME).consistentRead()).isNotEqualTo(Boolean.TRUE);
+    }
+
+    @Test
+    void should_limit_the_timeouts_to_the_remaining_time() {
+        respondWith(List.of());
+        invocationDeadline.start(lambdaContext(1800));
+
+        store.findAll(List.of("event-1"));
+        store.saveAll(Map.of("event-1", new ThirdPartyApiRequestDetails("1", "John", "Doe")));
+
+        assertThat(List.of(gets.get(0).overrideConfiguration().orElseThrow(), puts.get(0).overrideConfiguration().orElseThrow()))
+                .allSatisfy(overrideConfiguration -> assertThat(overrideConfiguration.apiCallTimeout()).hasValueSatisfying(timeout ->
+                        assertThat(timeout).isLessThanOrEqualTo(Duration.ofMillis(1300)).isGreaterThan(Duration.ofSeconds(1))));
+    }
+
+    @Test
+    void should_not_start_requests_when_the_deadline_is_nearly_reached() {
+        respondWith(List.of());
+        invocationDeadline.start(lambdaContext(550));
+
+        assertThatThrownBy(() -> store.findAll(List.of("event-1")))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThatThrownBy(() -> store.saveAll(Map.of("event-1", new ThirdPartyApiRequestDetails("1", "John", "Doe"))))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThat(gets).isEmpty();
+        assertThat(puts).isEmpty();
+    }
+
+    private static Context lambdaContext(int remainingTimeInMillis) {
+        var context = mock(Context.class);
+        doReturn(remainingTimeInMillis).when(context).getRemainingTimeInMillis();
+        return context;
+    }
+
+    private void respondWith(List<Map<String, AttributeValue>> items) {
+        doAnswer(invocation -> {
+            Consumer<BatchGetItemRequest.Builder> consumer = invocation.getArgument(0);
+            var builder = BatchGetItemRequest.builder();
+            consumer.accept(builder);
+            gets.add(builder.build());
+            return BatchGetItemResponse.builder()
+                    .responses(Map.of(TABLE_NAME, items))
+                    .build();
+        }).when(dynamoDbClient).batchGetItem(any(Consumer.class));
+    }
+
+    private static Map<String, AttributeValue> resultItem(String eventId, Instant expiresAt, ThirdPartyApiRequestDetails result) {
+        try {
+            return Map.of(
+                    "PK", AttributeValue.fromS("idempotency#" + eventId),
+                    "SK", AttributeValue.fromS("RESULT"),
+                    "result", AttributeValue.fromS(ObjectMapper.getDefault().writeValueAsString(result)),
+                    "expiresAt", AttributeValue.fromN(Long.toString(expiresAt.getEpochSecond())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
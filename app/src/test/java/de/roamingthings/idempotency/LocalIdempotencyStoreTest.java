@@ -0,0 +1,46 @@
+package de.roamingthings.idempotency;
+
+import de.roamingthings.ThirdPartyApiRequestDetails;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalIdempotencyStoreTest {
+
+    static final Instant NOW = Instant.parse("2023-11-01T12:00:00Z");
+    static final ThirdPartyApiRequestDetails FIRST_RESULT = new ThirdPartyApiRequestDetails("1", "John", "Doe");
+    static final ThirdPartyApiRequestDetails SECOND_RESULT = new ThirdPartyApiRequestDetails("1", "Jane", "Roe");
+
+    Clock systemClock = mock(Clock.class);
+    LocalIdempotencyStore store = new LocalIdempotencyStore(Duration.ofMinutes(5), 10, systemClock);
+
+    @Test
+    void should_keep_the_first_result_and_window_when_an_event_is_saved_again() {
+        when(systemClock.instant()).thenReturn(NOW, NOW.plus(Duration.ofMinutes(4)), NOW.plus(Duration.ofMinutes(4)),
+                NOW.plus(Duration.ofMinutes(6)));
+
+        store.saveAll(Map.of("event-1", FIRST_RESULT));
+        store.saveAll(Map.of("event-1", SECOND_RESULT));
+
+        assertThat(store.findAll(List.of("event-1"))).containsExactly(Map.entry("event-1", FIRST_RESULT));
+        assertThat(store.findAll(List.of("event-1"))).isEmpty();
+    }
+
+    @Test
+    void should_save_an_event_again_after_its_window() {
+        when(systemClock.instant()).thenReturn(NOW, NOW.plus(Duration.ofMinutes(6)), NOW.plus(Duration.ofMinutes(10)));
+
+        store.saveAll(Map.of("event-1", FIRST_RESULT));
+        store.saveAll(Map.of("event-1", SECOND_RESULT));
+
+        assertThat(store.findAll(List.of("event-1"))).containsExactly(Map.entry("event-1", SECOND_RESULT));
+    }
+}
@@ -0,0 +1,46 @@
+package de.roamingthings.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class ErrorLogLimiterTest {
+
+    Clock clock = mock(Clock.class);
+    ErrorLogLimiter errorLogLimiter = new ErrorLogLimiter(2, Duration.ofSeconds(60), clock);
+
+    @Test
+    void should_limit_errors_per_key_and_window() {
+        doReturn(0L).when(clock).millis();
+
+        assertThat(errorLogLimiter.tryAcquire("a")).isTrue();
+        assertThat(errorLogLimiter.tryAcquire("a")).isTrue();
+        assertThat(errorLogLimiter.tryAcquire("a")).isFalse();
+        assertThat(errorLogLimiter.tryAcquire("b")).isTrue();
+
+        doReturn(60_000L).when(clock).millis();
+
+        assertThat(errorLogLimiter.tryAcquire("a")).isTrue();
+    }
+
+    @Test
+    void should_evict_the_least_recently_used_key_only() {
+        doReturn(0L).when(clock).millis();
+        errorLogLimiter.tryAcquire("active");
+        errorLogLimiter.tryAcquire("active");
+        errorLogLimiter.tryAcquire("stale");
+
+        for (int i = 0; i < ErrorLogLimiter.MAX_KEYS - 1; i++) {
+            errorLogLimiter.tryAcquire("active");
+            errorLogLimiter.tryAcquire("key-" + i);
+        }
+
+        assertThat(errorLogLimiter.tryAcquire("active")).isFalse();
+        assertThat(errorLogLimiter.tryAcquire("stale")).isTrue();
+    }
+}
@@ -0,0 +1,88 @@
+package de.roamingthings.metrics;
+
+import de.roamingthings.configuration.ConnectionPoolMetricPublisher;
+import de.roamingthings.metrics.InvocationMetrics.Counter;
+import de.roamingthings.metrics.InvocationMetrics.Stage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvocationMetricsTest {
+
+    static final Instant NOW = Instant.parse("2023-10-14T08:00:00Z");
+
+    List<String> lines = new ArrayList<>();
+    InvocationMetrics invocationMetrics = new InvocationMetrics(
+            true, "Enricher", "enricher-function", new ConnectionPoolMetricPublisher(), lines::add, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void should_emit_one_line_per_invocation() {
+        invocationMetrics.startInvocation();
+        invocationMetrics.increment(Counter.MESSAGES, 3);
+        invocationMetrics.increment(Counter.CACHE_HITS, 1);
+        invocationMetrics.increment(Counter.CACHE_HITS, 1);
+        invocationMetrics.recordConsumedCapacity(0.5);
+        invocationMetrics.recordConsumedCapacity(1.0);
+        invocationMetrics.recordEventTime("2023-10-14T07:59:58Z");
+        invocationMetrics.recordEventTime("2023-10-14T07:59:59Z");
+        invocationMetrics.recordSince(Stage.LOOKUP, System.nanoTime());
+        invocationMetrics.flush();
+
+        assertThat(lines).singleElement().asString()
+                .startsWith("{\"_aws\":{\"Timestamp\":" + NOW.toEpochMilli() + ",")
+                .contains("\"Namespace\":\"Enricher\",\"Dimensions\":[[\"FunctionName\"]]")
+                .contains("{\"Name\":\"MaxEventAge\",\"Unit\":\"Milliseconds\"}")
+                .contains("\"FunctionName\":\"enricher-function\"")
+                .contains("\"Messages\":3,")
+                .contains("\"PersonCacheHits\":2,")
+                .contains("\"ConsumedReadCapacity\":1.5")
+                .contains("\"MaxEventAge\":2000")
+                .contains("\"LookupTime\":");
+    }
+
+    @Test
+    void should_emit_the_lowest_concurrency_limit_and_the_most_reads_in_flight() {
+        invocationMetrics.startInvocation();
+        invocationMetrics.recordConcurrency(8, 1);
+        invocationMetrics.recordConcurrency(4, 3);
+        invocationMetrics.recordConcurrency(6, 2);
+        invocationMetrics.flush();
+
+        assertThat(lines).singleElement().asString()
+                .contains("\"MinReadConcurrencyLimit\":4")
+                .contains("\"MaxReadsInFlight\":3");
+    }
+
+    @Test
+    void should_reset_on_start_of_invocation() {
+        invocationMetrics.startInvocation();
+        invocationMetrics.increment(Counter.MESSAGES, 3);
+        invocationMetrics.recordEventTime("2023-10-14T07:59:58Z");
+        invocationMetrics.flush();
+
+        invocationMetrics.startInvocation();
+        invocationMetrics.flush();
+
+        assertThat(lines.get(1))
+                .contains("\"Messages\":0,")
+                .doesNotContain("MaxEventAge")
+                .doesNotContain("MinReadConcurrencyLimit");
+    }
+
+    @Test
+    void should_not_emit_when_disabled() {
+        var disabled = new InvocationMetrics(
+                false, "Enricher", "enricher-function", new ConnectionPoolMetricPublisher(), lines::add, Clock.systemUTC());
+
+        disabled.startInvocation();
+        disabled.flush();
+
+        assertThat(lines).isEmpty();
+    }
+}
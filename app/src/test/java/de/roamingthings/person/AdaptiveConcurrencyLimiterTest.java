@@ -0,0 +1,158 @@
+package de.roamingthings.person;
+
+import de.roamingthings.configuration.ConnectionPoolMetricPublisher;
+import de.roamingthings.metrics.InvocationMetrics;
+import de.roamingthings.person.AdaptiveConcurrencyLimiter.Mode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    ExecutorService executor = Executors.newCachedThreadPool();
+    InvocationMetrics invocationMetrics = new InvocationMetrics(false, "Test", "test", new ConnectionPoolMetricPublisher(), line -> {
+    }, Clock.systemUTC());
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void should_halve_the_limit_on_throttling_and_grow_it_on_recovery() {
+        var limiter = limiter(Mode.WAIT, 8, Duration.ZERO);
+
+        assertThatThrownBy(() -> limiter.call(() -> {
+            throw throttlingException();
+        })).isInstanceOf(ProvisionedThroughputExceededException.class);
+        assertThat(limiter.statistics().limit()).isEqualTo(4);
+        assertThat(limiter.statistics().throttlingErrors()).isEqualTo(1);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.call(() -> "person");
+        }
+        assertThat(limiter.statistics().limit()).isGreaterThan(4);
+    }
+
+    @Test
+    void should_shed_reads_beyond_the_limit() throws Exception {
+        var limiter = limiter(Mode.SHED, 1, Duration.ZERO);
+        var release = new CountDownLatch(1);
+        var inFlight = blockingRead(limiter, release);
+
+        assertThatThrownBy(() -> limiter.call(() -> "person"))
+                .isInstanceOf(LoadSheddingException.class);
+        assertThat(limiter.statistics().rejections()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(inFlight.get(1, TimeUnit.SECONDS)).isEqualTo("blocked");
+        assertThat(limiter.call(() -> "person")).isEqualTo("person");
+    }
+
+    @Test
+    void should_wait_for_a_permit_up_to_the_maximum_wait() throws Exception {
+        var limiter = limiter(Mode.WAIT, 1, Duration.ofMillis(50));
+        var release = new CountDownLatch(1);
+        var inFlight = blockingRead(limiter, release);
+
+        assertThatThrownBy(() -> limiter.call(() -> "person"))
+                .isInstanceOf(LoadSheddingException.class);
+
+        var waiting = CompletableFuture.supplyAsync(() -> limiter.call(() -> "person"), executor);
+        release.countDown();
+        assertThat(inFlight.get(1, TimeUnit.SECONDS)).isEqualTo("blocked");
+        assertThat(waiting.get(1, TimeUnit.SECONDS)).isEqualTo("person");
+    }
+
+    @Test
+    void should_shed_while_the_table_is_throttling_at_the_minimum_limit() {
+        var limiter = limiter(Mode.SHED, 1, Duration.ZERO);
+
+        limiter.call(() -> "unprocessed keys", response -> true);
+
+        assertThatThrownBy(() -> limiter.call(() -> "person"))
+                .isInstanceOf(LoadSheddingException.class)
+                .hasMessageContaining("throttling");
+    }
+
+    @Test
+    void should_lower_the_limit_when_the_latency_grows() {
+        var limiter = limiter(Mode.WAIT, 8, Duration.ZERO, 2.0);
+        limiter.call(() -> "person");
+
+        limiter.call(() -> {
+            sleep(50);
+            return "person";
+        });
+
+        assertThat(limiter.statistics().limit()).isLessThan(8);
+    }
+
+    @Test
+    void should_publish_the_limit_and_the_requests_in_flight() {
+        var lines = new ArrayList<String>();
+        var metrics = new InvocationMetrics(true, "Test", "test", new ConnectionPoolMetricPublisher(), lines::add, Clock.systemUTC());
+        var limiter = new AdaptiveConcurrencyLimiter(true, Mode.SHED, 4, 1, 16, 1000, 0.9, Duration.ZERO, Duration.ZERO, metrics);
+        metrics.startInvocation();
+
+        limiter.call(() -> "person");
+        limiter.call(() -> "unprocessed keys", response -> true);
+        metrics.flush();
+
+        assertThat(lines).singleElement().asString()
+                .contains("\"MinReadConcurrencyLimit\":2")
+                .contains("\"MaxReadsInFlight\":1")
+                .contains("\"RejectedReads\":0");
+    }
+
+    private CompletableFuture<String> blockingRead(AdaptiveConcurrencyLimiter limiter, CountDownLatch release) throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var read = CompletableFuture.supplyAsync(() -> limiter.call(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "blocked";
+        }), executor);
+        assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+        return read;
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(Mode mode, int initialLimit, Duration maxWait) {
+        return limiter(mode, initialLimit, maxWait, 1000);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(Mode mode, int initialLimit, Duration maxWait, double latencyTolerance) {
+        return new AdaptiveConcurrencyLimiter(true, mode, initialLimit, 1, 16, latencyTolerance, 0.9, maxWait, Duration.ofMinutes(1), invocationMetrics);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ProvisionedThroughputExceededException throttlingException() {
+        return (ProvisionedThroughputExceededException) ProvisionedThroughputExceededException.builder()
+                .statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ProvisionedThroughputExceededException").build())
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package de.roamingthings.person;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the person table that finds every person and answers each {@code GetItem} after the next of the
+ * queued latencies, or immediately if none is queued.
+ */
+class LatencyInjectingDynamoDbClient implements DynamoDbClient {
+
+    private final Queue<Duration> latencies = new ConcurrentLinkedQueue<>();
+    private final List<GetItemRequest> getItemRequests = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger interruptedRequests = new AtomicInteger();
+
+    void enqueueLatencies(Duration... latencies) {
+        this.latencies.addAll(List.of(latencies));
+    }
+
+    int getItemRequests() {
+        return getItemRequests.size();
+    }
+
+    List<GetItemRequest> receivedGetItemRequests() {
+        return List.copyOf(getItemRequests);
+    }
+
+    int interruptedRequests() {
+        return interruptedRequests.get();
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest getItemRequest) {
+        getItemRequests.add(getItemRequest);
+        var latency = latencies.poll();
+        if (latency != null) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                interruptedRequests.incrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        var partitionKey = getItemRequest.key().get(PersonItemMapper.PARTITION_KEY);
+        return GetItemResponse.builder()
+                .item(Map.of(
+                        PersonItemMapper.PARTITION_KEY, partitionKey,
+                        PersonItemMapper.SORT_KEY, getItemRequest.key().get(PersonItemMapper.SORT_KEY),
+                        PersonItemMapper.FIRST_NAME, AttributeValue.fromS("John"),
+                        PersonItemMapper.LAST_NAME, AttributeValue.fromS("Doe")))
+                .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,135 @@
+package de.roamingthings.person;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+
+import java.io.StringReader;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class PersonBulkLoaderTest {
+
+    static final String TABLE_NAME = "person-table";
+    static final Instant NOW = Instant.parse("2023-10-14T08:00:00Z");
+
+    DynamoDbClient dynamoDbClient = mock(DynamoDbClient.class);
+    Map<String, Map<String, AttributeValue>> table = new ConcurrentHashMap<>();
+    AtomicInteger requests = new AtomicInteger();
+    AtomicInteger requestsToLeaveHalfUnprocessed = new AtomicInteger();
+
+    PersonBulkLoader personBulkLoader = new PersonBulkLoader(TABLE_NAME, dynamoDbClient, Clock.fixed(NOW, ZoneOffset.UTC),
+            new PersonCache(false, 0, Duration.ZERO, Duration.ZERO, Clock.systemUTC()), 4, Duration.ofMillis(1), Duration.ofMillis(1));
+
+    @BeforeEach
+    void setup() {
+        // A Mockito stub that keeps the written items in a map and can leave items unprocessed. It does not validate
+        // the requests like DynamoDB or DynamoDB Local would, e.g. it accepts the same key twice within a batch.
+        doAnswer(invocation -> {
+            Consumer<BatchWriteItemRequest.Builder> consumer = invocation.getArgument(0);
+            var builder = BatchWriteItemRequest.builder();
+            consumer.accept(builder);
+            var writeRequests = builder.build().requestItems().get(TABLE_NAME);
+            assertThat(writeRequests).hasSizeLessThanOrEqualTo(PersonBulkLoader.MAX_BATCH_WRITE_ITEMS);
+            requests.incrementAndGet();
+            var processed = requestsToLeaveHalfUnprocessed.getAndDecrement() > 0 ? writeRequests.size() / 2 : writeRequests.size();
+            writeRequests.subList(0, processed).forEach(writeRequest -> {
+                var item = writeRequest.putRequest().item();
+                table.put(item.get("PK").s(), item);
+            });
+            var unprocessed = new ArrayList<>(writeRequests.subList(processed, writeRequests.size()));
+            return BatchWriteItemResponse.builder()
+                    .unprocessedItems(unprocessed.isEmpty() ? Map.of() : Map.of(TABLE_NAME, unprocessed))
+                    .build();
+        }).when(dynamoDbClient).batchWriteItem(any(Consumer.class));
+    }
+
+    @Test
+    void should_write_all_persons_in_batches_of_25() {
+        var persons = persons(1000);
+
+        var progress = personBulkLoader.load(persons.iterator(), current -> {
+        });
+
+        assertThat(table).hasSize(1000);
+        assertThat(requests).hasValue(40);
+        assertThat(progress.itemsWritten()).isEqualTo(1000);
+        assertThat(progress.batchesWritten()).isEqualTo(40);
+        assertThat(table.get("person#7").get("expiresAt").n())
+                .isEqualTo(Long.toString(NOW.getEpochSecond() + PersonRepository.EXPIRE_IN_SECONDS));
+    }
+
+    @Test
+    void should_retry_unprocessed_items() {
+        requestsToLeaveHalfUnprocessed.set(3);
+
+        var progress = personBulkLoader.load(persons(100).iterator(), current -> {
+        });
+
+        assertThat(table).hasSize(100);
+        assertThat(progress.itemsWritten()).isEqualTo(100);
+        assertThat(progress.retries()).isPositive();
+    }
+
+    @Test
+    void should_fail_when_items_remain_unprocessed() {
+        requestsToLeaveHalfUnprocessed.set(Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> personBulkLoader.load(persons(25).iterator(), current -> {
+        })).isInstanceOf(UnprocessedItemsException.class);
+    }
+
+    @Test
+    void should_stream_persons_from_json_lines_and_csv() {
+        var jsonLines = new PersonFileReader(new StringReader("""
+                {"id": 1, "firstName": "John", "lastName": "Doe", "ignored": {"a": 1}}
+
+                {"id": "2", "firstName": "Jane", "lastName": "Roe"}
+                """), "persons.jsonl", false);
+        var csv = new PersonFileReader(new StringReader("""
+                lastName,id,firstName
+                Doe,1,John
+                "Roe, Jr.",2,"Jane ""J"""
+                """), "persons.csv", true);
+
+        assertThat(jsonLines).toIterable().containsExactly(new Person("1", "John", "Doe"), new Person("2", "Jane", "Roe"));
+        assertThat(csv).toIterable().containsExactly(new Person("1", "John", "Doe"), new Person("2", "Jane \"J\"", "Roe, Jr."));
+    }
+
+    @Test
+    void should_name_the_line_of_an_invalid_person() {
+        var reader = new PersonFileReader(new StringReader("""
+                {"id": "1", "firstName": "John", "lastName": "Doe"}
+                {"id": "2"}
+                """), "persons.jsonl", false);
+
+        reader.next();
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid person in line 2 of persons.jsonl: id, firstName and lastName are required");
+    }
+
+    private static List<Person> persons(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Person(String.valueOf(i), "First " + i, "Last " + i))
+                .toList();
+    }
+}
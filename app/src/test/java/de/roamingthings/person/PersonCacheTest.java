@@ -0,0 +1,108 @@
+package de.roamingthings.person;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonCacheTest {
+
+    static final Person PERSON = new Person("1", "John", "Doe");
+
+    MutableClock clock = new MutableClock(Instant.parse("2023-10-14T08:00:00Z"));
+    PersonCache personCache = new PersonCache(true, 2, Duration.ofSeconds(60), Duration.ofSeconds(5), clock);
+
+    @Test
+    void should_return_cached_person_until_ttl_expires() {
+        personCache.put(PERSON, null);
+
+        clock.advance(Duration.ofSeconds(59));
+        assertThat(personCache.get("1")).hasValueSatisfying(entry -> assertThat(entry.person()).isEqualTo(PERSON));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(personCache.get("1")).isEmpty();
+        assertThat(personCache.statistics()).isEqualTo(new PersonCache.Statistics(1, 1, 0, 1, 0));
+    }
+
+    @Test
+    void should_not_cache_beyond_item_expiration() {
+        personCache.put(PERSON, clock.instant().plusSeconds(10));
+
+        clock.advance(Duration.ofSeconds(10));
+
+        assertThat(personCache.get("1")).isEmpty();
+    }
+
+    @Test
+    void should_cache_absent_persons_for_negative_ttl() {
+        personCache.putAbsent("1");
+
+        assertThat(personCache.get("1")).hasValueSatisfying(entry -> assertThat(entry.asOptional()).isEmpty());
+        clock.advance(Duration.ofSeconds(5));
+        assertThat(personCache.get("1")).isEmpty();
+    }
+
+    @Test
+    void should_evict_least_recently_used_entry_when_full() {
+        personCache.put(PERSON, null);
+        personCache.put(new Person("2", "Jane", "Doe"), null);
+        personCache.get("1");
+        personCache.put(new Person("3", "Max", "Mustermann"), null);
+
+        assertThat(personCache.get("2")).isEmpty();
+        assertThat(personCache.get("1")).isPresent();
+        assertThat(personCache.statistics().evictions()).isEqualTo(1);
+        assertThat(personCache.statistics().expirations()).isZero();
+    }
+
+    @Test
+    void should_be_empty_after_restore() {
+        personCache.put(PERSON, null);
+
+        personCache.afterRestore(null);
+
+        assertThat(personCache.get("1")).isEmpty();
+    }
+
+    @Test
+    void should_not_cache_when_disabled() {
+        var disabledCache = new PersonCache(false, 2, Duration.ofSeconds(60), Duration.ofSeconds(5), clock);
+
+        disabledCache.put(PERSON, null);
+
+        assertThat(disabledCache.get("1")).isEmpty();
+    }
+
+    static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
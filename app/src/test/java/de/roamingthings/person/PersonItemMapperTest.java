@@ -0,0 +1,37 @@
+package de.roamingthings.person;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersonItemMapperTest {
+
+    @Test
+    void should_map_a_person_to_an_item_and_back() {
+        var person = new Person("1", "John", "Doe");
+
+        var item = PersonItemMapper.toItem(person, 1697273130L);
+
+        assertThat(item).containsAllEntriesOf(PersonItemMapper.keyOf("1"));
+        assertThat(PersonItemMapper.toPerson(item)).isEqualTo(person);
+        assertThat(PersonItemMapper.expiresAtOf(item)).isEqualTo(Instant.ofEpochSecond(1697273130L));
+    }
+
+    @Test
+    void should_fail_with_the_name_of_a_missing_attribute() {
+        var item = Map.of(
+                "PK", AttributeValue.fromS("person#1"),
+                "firstName", AttributeValue.fromS("John")
+        );
+
+        assertThatThrownBy(() -> PersonItemMapper.toPerson(item))
+                .isInstanceOf(PersonMappingException.class)
+                .hasMessageContaining("lastName")
+                .extracting("personId").isEqualTo("1");
+    }
+}
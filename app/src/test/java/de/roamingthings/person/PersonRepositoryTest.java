@@ -0,0 +1,282 @@
+package de.roamingthings.person;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import de.roamingthings.configuration.ConnectionPoolMetricPublisher;
+import de.roamingthings.deadline.DeadlineExceededException;
+import de.roamingthings.deadline.InvocationDeadline;
+import de.roamingthings.metrics.InvocationMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class PersonRepositoryTest {
+
+    static final String TABLE_NAME = "person-table";
+
+    DynamoDbClient dynamoDbClient = mock(DynamoDbClient.class);
+    List<BatchGetItemRequest> requests = Collections.synchronizedList(new ArrayList<>());
+    Queue<Map<String, KeysAndAttributes>> unprocessedKeysToReturn = new ConcurrentLinkedQueue<>();
+    Map<Map<String, AttributeValue>, Map<String, AttributeValue>> malformedItems = new ConcurrentHashMap<>();
+    ExecutorService lookupExecutor = Executors.newFixedThreadPool(4);
+    InvocationDeadline invocationDeadline = new InvocationDeadline(true, Duration.ofMillis(500), Duration.ofMillis(100),
+            Duration.ofSeconds(5), Duration.ofSeconds(1), Clock.systemUTC());
+
+    PersonRepository personRepository;
+
+    @BeforeEach
+    void setup() {
+        personRepository = new PersonRepository(TABLE_NAME, dynamoDbClient, Clock.systemUTC(), disabledCache(), 1, lookupExecutor, disabledMetrics(), invocationDeadline, disabledHedger(), disabledLimiter());
+        doAnswer(invocation -> {
+            Consumer<BatchGetItemRequest.Builder> consumer = invocation.getArgument(0);
+            var builder = BatchGetItemRequest.builder();
+            consumer.accept(builder);
+            var request = builder.build();
+            requests.add(request);
+            return respondWithAllButUnprocessed(request);
+        }).when(dynamoDbClient).batchGetItem(any(Consumer.class));
+    }
+
+    @AfterEach
+    void teardown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    @Test
+    void should_collapse_duplicate_ids_into_one_key() {
+        var persons = personRepository.findAllByIds(List.of("1", "2", "1", "2", "1")).persons();
+
+        assertThat(persons).containsOnlyKeys("1", "2");
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).requestItems().get(TABLE_NAME).keys()).hasSize(2);
+    }
+
+    @Test
+    void should_split_keys_into_chunks_of_one_hundred() {
+        var ids = IntStream.range(0, 250).mapToObj(String::valueOf).toList();
+
+        var persons = personRepository.findAllByIds(ids).persons();
+
+        assertThat(persons).hasSize(250);
+        assertThat(requests)
+                .extracting(request -> request.requestItems().get(TABLE_NAME).keys().size())
+                .containsExactly(100, 100, 50);
+    }
+
+    @Test
+    void should_request_chunks_concurrently() {
+        var concurrentRepository = concurrentRepository(4);
+        var ids = IntStream.range(0, 350).mapToObj(String::valueOf).toList();
+
+        var persons = concurrentRepository.findAllByIds(ids).persons();
+
+        assertThat(persons).hasSize(350);
+        assertThat(requests)
+                .extracting(request -> request.requestItems().get(TABLE_NAME).keys().size())
+                .containsExactlyInAnyOrder(88, 88, 88, 86);
+    }
+
+    @Test
+    void should_split_lookups_of_fewer_keys_than_a_chunk_over_the_requests_in_flight() {
+        var concurrentRepository = concurrentRepository(4);
+        var ids = IntStream.range(0, 10).mapToObj(String::valueOf).toList();
+
+        var persons = concurrentRepository.findAllByIds(ids).persons();
+
+        assertThat(persons).hasSize(10);
+        assertThat(requests)
+                .extracting(request -> request.requestItems().get(TABLE_NAME).keys().size())
+                .containsExactlyInAnyOrder(3, 3, 3, 1);
+    }
+
+    @Test
+    void should_request_at_most_max_in_flight_chunks_at_once() throws Exception {
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+                Consumer<BatchGetItemRequest.Builder> consumer = invocation.getArgument(0);
+                var builder = BatchGetItemRequest.builder();
+                consumer.accept(builder);
+                return respondWithAllButUnprocessed(builder.build());
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }).when(dynamoDbClient).batchGetItem(any(Consumer.class));
+        var concurrentRepository = concurrentRepository(2);
+        var ids = IntStream.range(0, 450).mapToObj(String::valueOf).toList();
+
+        var lookup = CompletableFuture.supplyAsync(() -> concurrentRepository.findAllByIds(ids));
+        for (int i = 0; i < 100 && inFlight.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        assertThat(inFlight.get()).isEqualTo(2);
+        release.countDown();
+
+        assertThat(lookup.get(5, TimeUnit.SECONDS).persons()).hasSize(450);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    @Test
+    void should_report_items_that_cannot_be_mapped_per_id_in_a_single_request() {
+        malformedItems.put(keyOf("2"), Map.of(
+                "PK", AttributeValue.fromS("person#2"),
+                "firstName", AttributeValue.fromS("Jane")));
+        malformedItems.put(keyOf("3"), Map.of(
+                "firstName", AttributeValue.fromS("Jim"),
+                "lastName", AttributeValue.fromS("Doe")));
+
+        var lookup = personRepository.findAllByIds(List.of("1", "2", "3"));
+
+        assertThat(lookup.persons()).containsOnlyKeys("1");
+        assertThat(lookup.failures())
+                .extracting(PersonMappingException::getPersonId)
+                .containsExactlyInAnyOrder("2", null);
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void should_retry_unprocessed_keys() {
+        unprocessedKeysToReturn.add(Map.of(TABLE_NAME, KeysAndAttributes.builder()
+                .keys(List.of(keyOf("2")))
+                .build()));
+
+        var persons = personRepository.findAllByIds(List.of("1", "2")).persons();
+
+        assertThat(persons).containsOnlyKeys("1", "2");
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(1).requestItems().get(TABLE_NAME).keys()).containsExactly(keyOf("2"));
+    }
+
+    @Test
+    void should_give_up_when_keys_stay_unprocessed() {
+        var unprocessedKeys = Map.of(TABLE_NAME, KeysAndAttributes.builder()
+                .keys(List.of(keyOf("1")))
+                .build());
+        IntStream.range(0, 10).forEach(i -> unprocessedKeysToReturn.add(unprocessedKeys));
+
+        assertThatThrownBy(() -> personRepository.findAllByIds(List.of("1")))
+                .isInstanceOf(UnprocessedKeysException.class);
+    }
+
+    @Test
+    void should_limit_the_timeouts_to_the_remaining_time() {
+        invocationDeadline.start(lambdaContext(1800));
+
+        personRepository.findAllByIds(List.of("1"));
+
+        var overrideConfiguration = requests.get(0).overrideConfiguration().orElseThrow();
+        assertThat(overrideConfiguration.apiCallTimeout()).hasValueSatisfying(timeout ->
+                assertThat(timeout).isLessThanOrEqualTo(Duration.ofMillis(1300)).isGreaterThan(Duration.ofSeconds(1)));
+        assertThat(overrideConfiguration.apiCallAttemptTimeout()).contains(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void should_not_start_requests_when_the_deadline_is_nearly_reached() {
+        invocationDeadline.start(lambdaContext(550));
+
+        assertThatThrownBy(() -> personRepository.findAllByIds(List.of("1")))
+                .isInstanceOf(DeadlineExceededException.class)
+                .hasMessageStartingWith("Not starting BatchGetItem");
+        assertThat(requests).isEmpty();
+    }
+
+    @Test
+    void should_stop_retrying_unprocessed_keys_at_the_deadline() {
+        var unprocessedKeys = Map.of(TABLE_NAME, KeysAndAttributes.builder()
+                .keys(List.of(keyOf("1")))
+                .build());
+        IntStream.range(0, 10).forEach(i -> unprocessedKeysToReturn.add(unprocessedKeys));
+        invocationDeadline.start(lambdaContext(650));
+
+        var start = System.nanoTime();
+        assertThatThrownBy(() -> personRepository.findAllByIds(List.of("1")))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(300));
+    }
+
+    private static Context lambdaContext(int remainingTimeInMillis) {
+        var context = mock(Context.class);
+        doReturn(remainingTimeInMillis).when(context).getRemainingTimeInMillis();
+        return context;
+    }
+
+    private BatchGetItemResponse respondWithAllButUnprocessed(BatchGetItemRequest request) {
+        var unprocessedKeys = unprocessedKeysToReturn.poll();
+        var unprocessed = unprocessedKeys == null ? List.<Map<String, AttributeValue>>of() : unprocessedKeys.get(TABLE_NAME).keys();
+        var items = request.requestItems().get(TABLE_NAME).keys().stream()
+                .filter(key -> !unprocessed.contains(key))
+                .map(key -> malformedItems.getOrDefault(key, Map.of(
+                        "PK", key.get("PK"),
+                        "SK", key.get("SK"),
+                        "firstName", AttributeValue.fromS("John"),
+                        "lastName", AttributeValue.fromS("Doe")
+                )))
+                .toList();
+        return BatchGetItemResponse.builder()
+                .responses(Map.of(TABLE_NAME, items))
+                .unprocessedKeys(unprocessedKeys == null ? Map.of() : unprocessedKeys)
+                .build();
+    }
+
+    private PersonRepository concurrentRepository(int maxInFlight) {
+        return new PersonRepository(TABLE_NAME, dynamoDbClient, Clock.systemUTC(), disabledCache(), maxInFlight, lookupExecutor, disabledMetrics(), invocationDeadline, disabledHedger(), disabledLimiter());
+    }
+
+    private static PersonCache disabledCache() {
+        return new PersonCache(false, 0, Duration.ZERO, Duration.ZERO, Clock.systemUTC());
+    }
+
+    private ReadHedger disabledHedger() {
+        return new ReadHedger(false, 95, Duration.ZERO, Duration.ZERO, 0, Duration.ZERO, 25, lookupExecutor, disabledMetrics());
+    }
+
+    private static AdaptiveConcurrencyLimiter disabledLimiter() {
+        return new AdaptiveConcurrencyLimiter(false, AdaptiveConcurrencyLimiter.Mode.WAIT, 1, 1, 1, 2, 0.9, Duration.ZERO, Duration.ZERO, disabledMetrics());
+    }
+
+    private static InvocationMetrics disabledMetrics() {
+        return new InvocationMetrics(false, "Test", "test", new ConnectionPoolMetricPublisher(), line -> {
+        }, Clock.systemUTC());
+    }
+
+    private static Map<String, AttributeValue> keyOf(String id) {
+        return Map.of(
+                "PK", AttributeValue.fromS("person#" + id),
+                "SK", AttributeValue.fromS("DETAILS")
+        );
+    }
+}
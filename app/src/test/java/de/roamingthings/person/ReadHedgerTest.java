@@ -0,0 +1,134 @@
+package de.roamingthings.person;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import de.roamingthings.configuration.ConnectionPoolMetricPublisher;
+import de.roamingthings.deadline.InvocationDeadline;
+import de.roamingthings.metrics.InvocationMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class ReadHedgerTest {
+
+    static final Duration SLOW = Duration.ofMillis(1000);
+
+    LatencyInjectingDynamoDbClient dynamoDbClient = new LatencyInjectingDynamoDbClient();
+    ExecutorService executor = Executors.newCachedThreadPool();
+    InvocationMetrics invocationMetrics = new InvocationMetrics(false, "Test", "test", new ConnectionPoolMetricPublisher(), line -> {
+    }, Clock.systemUTC());
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void should_answer_a_slow_read_with_the_hedge() {
+        var readHedger = readHedger(1.0);
+        dynamoDbClient.enqueueLatencies(SLOW);
+
+        var start = System.nanoTime();
+        var person = repository(readHedger).findById("1");
+
+        assertThat(person).contains(new Person("1", "John", "Doe"));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(SLOW.dividedBy(2));
+        assertThat(dynamoDbClient.getItemRequests()).isEqualTo(2);
+        assertThat(readHedger.statistics()).satisfies(statistics -> {
+            assertThat(statistics.hedges()).isEqualTo(1);
+            assertThat(statistics.hedgeWins()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void should_not_hedge_beyond_the_extra_load() {
+        var readHedger = readHedger(0.25);
+        var repository = repository(readHedger);
+        for (int i = 0; i < 8; i++) {
+            dynamoDbClient.enqueueLatencies(Duration.ofMillis(40));
+            repository.findById(String.valueOf(i));
+        }
+
+        assertThat(readHedger.statistics().reads()).isEqualTo(8);
+        assertThat(readHedger.statistics().hedges()).isEqualTo(2);
+        assertThat(readHedger.statistics().hedgeRate()).isEqualTo(0.25);
+    }
+
+    @Test
+    void should_cancel_the_request_that_lost() throws InterruptedException {
+        var readHedger = readHedger(1.0);
+        dynamoDbClient.enqueueLatencies(SLOW);
+
+        repository(readHedger).findById("1");
+
+        for (int i = 0; i < 100 && dynamoDbClient.interruptedRequests() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(dynamoDbClient.interruptedRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void should_take_the_timeouts_of_the_hedge_when_it_starts() {
+        var readHedger = readHedger(1.0);
+        var invocationDeadline = new InvocationDeadline(true, Duration.ZERO, Duration.ZERO, Duration.ofSeconds(5),
+                Duration.ofSeconds(5), Clock.systemUTC());
+        var context = mock(Context.class);
+        doReturn(3000).when(context).getRemainingTimeInMillis();
+        invocationDeadline.start(context);
+        dynamoDbClient.enqueueLatencies(SLOW);
+
+        repository(readHedger, invocationDeadline).findById("1");
+
+        var timeouts = dynamoDbClient.receivedGetItemRequests().stream()
+                .map(request -> request.overrideConfiguration().orElseThrow().apiCallTimeout().orElseThrow())
+                .toList();
+        assertThat(timeouts).hasSize(2);
+        assertThat(timeouts.get(1)).isLessThan(timeouts.get(0));
+    }
+
+    @Test
+    void should_not_hedge_reads_of_more_keys_than_the_maximum() {
+        var readHedger = readHedger(1.0);
+        var requests = new AtomicInteger();
+
+        var response = readHedger.read(() -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "persons";
+        }, 100);
+
+        assertThat(response).isEqualTo("persons");
+        assertThat(requests.get()).isEqualTo(1);
+        assertThat(readHedger.statistics().hedges()).isZero();
+    }
+
+    private ReadHedger readHedger(double maxExtraLoad) {
+        return new ReadHedger(true, 95, Duration.ofMillis(1), Duration.ofMillis(10), maxExtraLoad, Duration.ofSeconds(1), 25,
+                executor, invocationMetrics);
+    }
+
+    private PersonRepository repository(ReadHedger readHedger) {
+        return repository(readHedger,
+                new InvocationDeadline(false, Duration.ZERO, Duration.ZERO, Duration.ofSeconds(5), Duration.ofSeconds(1), Clock.systemUTC()));
+    }
+
+    private PersonRepository repository(ReadHedger readHedger, InvocationDeadline invocationDeadline) {
+        return new PersonRepository("person-table", dynamoDbClient, Clock.systemUTC(),
+                new PersonCache(false, 0, Duration.ZERO, Duration.ZERO, Clock.systemUTC()), 1, executor, invocationMetrics,
+                invocationDeadline,
+                readHedger,
+                new AdaptiveConcurrencyLimiter(false, AdaptiveConcurrencyLimiter.Mode.WAIT, 1, 1, 1, 2, 0.9, Duration.ZERO, Duration.ZERO, invocationMetrics));
+    }
+}
@@ -0,0 +1,54 @@
+package de.roamingthings.replay;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies with logarithmic buckets from 100 µs to 1 s, plus exact percentiles.
+ */
+final class LatencyHistogram {
+
+    private static final long[] BUCKET_LIMITS_NANOS = {
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000,
+            100_000_000, 250_000_000, 500_000_000, 1_000_000_000};
+
+    private final long[] counts = new long[BUCKET_LIMITS_NANOS.length + 1];
+    private long[] values = new long[1024];
+    private int size;
+
+    void record(long nanos) {
+        var bucket = 0;
+        while (bucket < BUCKET_LIMITS_NANOS.length && nanos >= BUCKET_LIMITS_NANOS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    int count() {
+        return size;
+    }
+
+    Duration percentile(double percentile) {
+        if (size == 0) {
+            return Duration.ZERO;
+        }
+        var sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        return Duration.ofNanos(sorted[Math.max((int) Math.ceil(percentile * size) - 1, 0)]);
+    }
+
+    String format() {
+        var text = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            var label = i < BUCKET_LIMITS_NANOS.length
+                    ? "< %8.2f ms".formatted(BUCKET_LIMITS_NANOS[i] / 1_000_000d)
+                    : ">= %7.2f ms".formatted(BUCKET_LIMITS_NANOS[i - 1] / 1_000_000d);
+            text.append("  %s %8d %s%n".formatted(label, counts[i], "#".repeat((int) Math.ceil(60d * counts[i] / Math.max(size, 1)))));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package de.roamingthings.replay;
+
+import de.roamingthings.PersonCreatedFixture;
+import de.roamingthings.ThirdPartyApiRequestEnricherHandler;
+import de.roamingthings.capture.CaptureFile;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+import static de.roamingthings.PersonCreatedFixture.personRepositoryMock;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Replays a capture file of the {@code PayloadRecorder} through the handler, e.g.
+ * {@code ./gradlew :app:payloadReplay -Preplay.file=capture.json.gz -Preplay.speed=0}.
+ * <p>
+ * Settings: {@code replay.file} (required), {@code replay.speed} ({@code 0} replays as fast as possible, otherwise
+ * the factor by which the captured rate is sped up, default {@code 0}), {@code replay.persons} (file with the persons
+ * to return, by default every person exists), {@code replay.warmup-rounds} (rounds replayed before measuring,
+ * default {@code 1}).
+ */
+@Tag("replay")
+@MicronautTest(environments = PersonCreatedFixture.ENVIRONMENT)
+class PayloadReplayRun {
+
+    @Inject
+    ApplicationContext applicationContext;
+
+    @Test
+    void replay() throws Exception {
+        var file = System.getProperty("replay.file");
+        if (file == null) {
+            throw new IllegalArgumentException("Set the capture file or directory to replay with -Preplay.file=<path>");
+        }
+        var personsFile = System.getProperty("replay.persons");
+        var persons = personsFile != null ? ReplayPersons.fromFile(Path.of(personsFile)) : ReplayPersons.generated();
+        doAnswer(invocation -> persons.findAllByIds(invocation.<Collection<String>>getArgument(0)))
+                .when(personRepositoryMock).findAllByIds(anyCollection());
+        var batches = CaptureFile.read(Path.of(file));
+        var handler = new ThirdPartyApiRequestEnricherHandler(applicationContext);
+        var replayer = new PayloadReplayer(handler::execute);
+
+        for (int i = 0; i < Integer.getInteger("replay.warmup-rounds", 1); i++) {
+            replayer.replay(batches, 0);
+        }
+        var report = replayer.replay(batches, Double.parseDouble(System.getProperty("replay.speed", "0")));
+
+        System.out.println(report.format());
+    }
+}
@@ -0,0 +1,115 @@
+package de.roamingthings.replay;
+
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import de.roamingthings.capture.CapturedBatch;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Replays captured batches through a handler, either as fast as possible or at the rate they were captured, and
+ * measures the latency and the allocations of each batch on the calling thread. The offsets of the batches are only
+ * comparable within a function instance, so the instances are replayed one after another, each in the order and at
+ * the rate of its own timeline.
+ */
+final class PayloadReplayer {
+
+    private final Consumer<List<SQSEvent.SQSMessage>> handler;
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    PayloadReplayer(Consumer<List<SQSEvent.SQSMessage>> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @param speed {@code 0} to replay as fast as possible, otherwise the factor by which the captured rate is sped up
+     */
+    ReplayReport replay(List<CapturedBatch> capturedBatches, double speed) throws InterruptedException {
+        var batches = byInstance(capturedBatches);
+        var messages = toMessages(batches);
+        var histogram = new LatencyHistogram();
+        long messageCount = 0;
+        long failedBatches = 0;
+        var threadId = Thread.currentThread().getId();
+        var allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        var start = System.nanoTime();
+        var timelineStart = start;
+        for (int i = 0; i < batches.size(); i++) {
+            if (i > 0 && !batches.get(i).instanceId().equals(batches.get(i - 1).instanceId())) {
+                timelineStart = System.nanoTime();
+            }
+            if (speed > 0) {
+                var due = timelineStart + (long) (batches.get(i).offsetMillis() * 1_000_000 / speed);
+                var wait = due - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+            }
+            var batchStart = System.nanoTime();
+            try {
+                handler.accept(messages.get(i));
+            } catch (RuntimeException e) {
+                failedBatches++;
+            }
+            histogram.record(System.nanoTime() - batchStart);
+            messageCount += messages.get(i).size();
+        }
+        var elapsedNanos = System.nanoTime() - start;
+        var allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        var seconds = elapsedNanos / 1_000_000_000d;
+        return new ReplayReport(
+                batches.size(),
+                messageCount,
+                failedBatches,
+                Duration.ofNanos(elapsedNanos),
+                messageCount / seconds,
+                messageCount == 0 ? 0 : (double) allocated / messageCount,
+                allocated / seconds / (1024 * 1024),
+                histogram.percentile(0.5),
+                histogram.percentile(0.99),
+                histogram.percentile(1.0),
+                histogram.format());
+    }
+
+    /**
+     * Orders the batches by their offset within each instance, the instances in the order they were first captured.
+     */
+    static List<CapturedBatch> byInstance(List<CapturedBatch> batches) {
+        var instances = new LinkedHashMap<String, List<CapturedBatch>>();
+        for (var batch : batches) {
+            instances.computeIfAbsent(batch.instanceId(), instanceId -> new ArrayList<>()).add(batch);
+        }
+        var ordered = new ArrayList<CapturedBatch>(batches.size());
+        for (var instanceBatches : instances.values()) {
+            instanceBatches.sort(Comparator.comparingLong(CapturedBatch::offsetMillis));
+            ordered.addAll(instanceBatches);
+        }
+        return ordered;
+    }
+
+    /**
+     * Creates the SQS messages up front, so creating them is not measured.
+     */
+    private static List<List<SQSEvent.SQSMessage>> toMessages(List<CapturedBatch> batches) {
+        var messages = new ArrayList<List<SQSEvent.SQSMessage>>(batches.size());
+        var messageNumber = 0;
+        for (var batch : batches) {
+            var batchMessages = new ArrayList<SQSEvent.SQSMessage>(batch.bodies().size());
+            for (var body : batch.bodies()) {
+                var message = new SQSEvent.SQSMessage();
+                message.setMessageId("replay-" + messageNumber++);
+                message.setBody(body);
+                message.setAttributes(Map.of("ApproximateReceiveCount", "1"));
+                batchMessages.add(message);
+            }
+            messages.add(batchMessages);
+        }
+        return messages;
+    }
+}
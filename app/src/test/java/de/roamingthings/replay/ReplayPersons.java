@@ -0,0 +1,55 @@
+package de.roamingthings.replay;
+
+import de.roamingthings.person.Person;
+import de.roamingthings.person.PersonLookupResult;
+import io.micronaut.serde.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stand-in for the person table: either the persons of a file with one JSON object
+ * ({@code {"id": ..., "firstName": ..., "lastName": ...}}) per line, or a generated person for every id.
+ */
+final class ReplayPersons {
+
+    private final Map<String, Person> persons;
+
+    private ReplayPersons(Map<String, Person> persons) {
+        this.persons = persons;
+    }
+
+    static ReplayPersons generated() {
+        return new ReplayPersons(null);
+    }
+
+    static ReplayPersons fromFile(Path path) throws IOException {
+        var objectMapper = ObjectMapper.getDefault();
+        var persons = new HashMap<String, Person>();
+        try (var lines = Files.lines(path)) {
+            for (var line : (Iterable<String>) lines::iterator) {
+                if (!line.isBlank()) {
+                    var values = objectMapper.readValue(line, Map.class);
+                    var id = String.valueOf(values.get("id"));
+                    persons.put(id, new Person(id, (String) values.get("firstName"), (String) values.get("lastName")));
+                }
+            }
+        }
+        return new ReplayPersons(persons);
+    }
+
+    PersonLookupResult findAllByIds(Collection<String> ids) {
+        var found = new HashMap<String, Person>(ids.size());
+        for (var id : ids) {
+            var person = persons != null ? persons.get(id) : new Person(id, "First", "Last");
+            if (person != null) {
+                found.put(id, person);
+            }
+        }
+        return PersonLookupResult.found(found);
+    }
+}
@@ -0,0 +1,32 @@
+package de.roamingthings.replay;
+
+import java.time.Duration;
+
+record ReplayReport(
+        long batches,
+        long messages,
+        long failedBatches,
+        Duration elapsed,
+        double messagesPerSecond,
+        double allocatedBytesPerMessage,
+        double allocationRateMegabytesPerSecond,
+        Duration batchLatencyP50,
+        Duration batchLatencyP99,
+        Duration batchLatencyMax,
+        String histogram) {
+
+    String format() {
+        return """
+                batches:     %d (%d failed)
+                messages:    %d
+                elapsed:     %s
+                throughput:  %.1f messages/s
+                allocation:  %.0f bytes/message, %.1f MB/s
+                batch latency p50/p99/max: %.3f / %.3f / %.3f ms
+                %s""".formatted(
+                batches, failedBatches, messages, elapsed, messagesPerSecond,
+                allocatedBytesPerMessage, allocationRateMegabytesPerSecond,
+                batchLatencyP50.toNanos() / 1_000_000d, batchLatencyP99.toNanos() / 1_000_000d, batchLatencyMax.toNanos() / 1_000_000d,
+                histogram);
+    }
+}
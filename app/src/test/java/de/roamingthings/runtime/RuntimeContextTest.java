@@ -0,0 +1,22 @@
+package de.roamingthings.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuntimeContextTest {
+
+    @Test
+    void should_report_the_largest_remaining_time_without_a_deadline() {
+        var context = new RuntimeContext("request-id", null, RuntimeContext.NO_DEADLINE);
+
+        assertThat(context.getRemainingTimeInMillis()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void should_report_no_remaining_time_after_the_deadline() {
+        var context = new RuntimeContext("request-id", null, System.currentTimeMillis() - 1000);
+
+        assertThat(context.getRemainingTimeInMillis()).isZero();
+    }
+}
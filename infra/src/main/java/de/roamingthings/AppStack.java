@@ -1,6 +1,9 @@
 package de.roamingthings;
 
 import de.roamingthings.cdk.aws.pipes.EnrichedEventApiDestinationPipe;
+import de.roamingthings.cdk.aws.pipes.PipeProfile;
+import de.roamingthings.cdk.aws.pipes.PipeSourceFilter;
+import de.roamingthings.cdk.aws.pipes.ShardedEnrichedEventApiDestinationPipe;
 import io.micronaut.aws.cdk.function.MicronautFunction;
 import io.micronaut.aws.cdk.function.MicronautFunctionFile;
 import io.micronaut.starter.application.ApplicationType;
@@ -28,7 +31,6 @@
 import software.amazon.awscdk.services.dynamodb.Table;
 import software.amazon.awscdk.services.events.ApiDestination;
 import software.amazon.awscdk.services.events.Authorization;
-import software.amazon.awscdk.services.events.CfnRule;
 import software.amazon.awscdk.services.events.Connection;
 import software.amazon.awscdk.services.events.EventBus;
 import software.amazon.awscdk.services.events.EventPattern;
@@ -42,17 +44,30 @@
 import software.amazon.awscdk.services.lambda.Tracing;
 import software.amazon.awscdk.services.logs.RetentionDays;
 import software.amazon.awscdk.services.pipes.CfnPipe;
+import software.amazon.awscdk.services.s3.BlockPublicAccess;
+import software.amazon.awscdk.services.s3.Bucket;
+import software.amazon.awscdk.services.s3.BucketEncryption;
+import software.amazon.awscdk.services.s3.IBucket;
+import software.amazon.awscdk.services.s3.LifecycleRule;
 import software.constructs.Construct;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static de.roamingthings.InfraConstants.EVENT_BUS_NAME_EXPORT_NAME;
+import static de.roamingthings.InfraConstants.PERSON_CREATED_DETAIL_TYPE;
+import static de.roamingthings.InfraConstants.PERSON_CREATED_SOURCE;
 import static de.roamingthings.InfraConstants.PERSON_TABLE_NAME_EXPORT_NAME;
 import static software.amazon.awscdk.services.apigateway.EndpointType.REGIONAL;
 
 public class AppStack extends Stack {
 
+    private static final int API_DESTINATION_RATE_LIMIT_PER_SECOND = 5;
+    private static final Duration ENRICHMENT_TIMEOUT = Duration.seconds(10);
+    private static final Duration PIPE_LATENCY_BUDGET = Duration.seconds(30);
+    private static final Duration CAPTURE_RETENTION = Duration.days(7);
+
     public AppStack(Construct parent, String id) {
         this(parent, id, null);
     }
@@ -68,39 +83,56 @@ public AppStack(Construct parent, String id, StackProps props) {
 
         var proxyEndpointUrl = createApiGatewayProxy(endpointUrl);
 
-        var apiDestinationTarget = createApiDestinationTarget(
-                proxyEndpointUrl,
-                Authorization.basic("Toniuser", SecretValue.unsafePlainText("SomeSecret"))
-        );
+        var connection = createConnection(Authorization.basic("Toniuser", SecretValue.unsafePlainText("SomeSecret")));
 
         var personTable = createPersonTable();
         var eventBus = createEventBridgeBus();
-        var enrichmentFunction = createEnrichmentFunction(personTable);
-        var pipeProps = EnrichedEventApiDestinationPipe.EnrichedEventApiDestinationPipeProps.builder()
+        var enricherRuntime = EnricherRuntime.fromContext(this.getNode().tryGetContext("enricherRuntime"));
+        var idempotencyTable = flagFromContext(this.getNode().tryGetContext("idempotencyShared"))
+                ? createIdempotencyTable()
+                : null;
+        var captureBucket = flagFromContext(this.getNode().tryGetContext("payloadCapture"))
+                ? createCaptureBucket()
+                : null;
+        var enrichmentFunction = createEnrichmentFunction(personTable, idempotencyTable, captureBucket, enricherRuntime);
+        var pipeProfile = PipeProfile.fromContext(this.getNode().tryGetContext("pipeProfile"));
+        var pipeShards = pipeShardsFromContext(this.getNode().tryGetContext("pipeShards"));
+        // Only the events the enricher handles are queued, the filter of the pipe guards against a broader rule
+        var eventPattern = EventPattern.builder()
+                .source(List.of(PERSON_CREATED_SOURCE))
+                .detailType(List.of(PERSON_CREATED_DETAIL_TYPE))
+                .build();
+        var pipePropsBuilder = EnrichedEventApiDestinationPipe.EnrichedEventApiDestinationPipeProps.builder()
                 .sourceEventBus(eventBus)
-                .eventPattern(EventPattern.builder().source(List.of("*")).build())
                 .enrichmentFunction(enrichmentFunction)
-                .apiDestination(apiDestinationTarget)
-                .maxRetryCount(1)
-                .sourceBatchSize(1)
-                .sourceMaximumBatchingWindowInSeconds(6)
-                .visibilityTimeout(Duration.seconds(30))
-                .retryPeriod(Duration.minutes(5))
+                .profile(pipeProfile)
+                .targetEventsPerSecond(API_DESTINATION_RATE_LIMIT_PER_SECOND)
+                .latencyBudget(PIPE_LATENCY_BUDGET)
+                .enrichmentTimeout(ENRICHMENT_TIMEOUT)
+                .sourceFilters(List.of(PipeSourceFilter.of(PERSON_CREATED_SOURCE, PERSON_CREATED_DETAIL_TYPE)))
                 .targetHttpParameters(CfnPipe.PipeTargetHttpParametersProperty.builder()
                         .pathParameterValues(List.of("$.id"))
                         .build())
-                .removalPolicy(RemovalPolicy.DESTROY)
-                .build();
+                .removalPolicy(RemovalPolicy.DESTROY);
 
-        var pipe = new EnrichedEventApiDestinationPipe(this, "EnrichedEventApiDestinationPipe", pipeProps);
-        // Patch the default rule to catch all events
-        var ruleDefaultChild = pipe.getRule().getNode().getDefaultChild();
-        if (ruleDefaultChild instanceof CfnRule cfnRule) {
-            cfnRule.setEventPattern(Map.of(
-                    "source", List.of(Map.of(
-                            "prefix", ""
-                    ))
-            ));
+        if (pipeShards > 1) {
+            new ShardedEnrichedEventApiDestinationPipe(this, "ShardedEnrichedEventApiDestinationPipe",
+                    ShardedEnrichedEventApiDestinationPipe.ShardedEnrichedEventApiDestinationPipeProps.builder()
+                            .pipe(pipePropsBuilder.build())
+                            .eventPattern(eventPattern)
+                            .shardCount(pipeShards)
+                            .partitionKeyPath(List.of("detail", "id"))
+                            .connection(connection)
+                            .endpoint(proxyEndpointUrl)
+                            .httpMethod(HttpMethod.POST)
+                            .rateLimitPerSecondPerShard(API_DESTINATION_RATE_LIMIT_PER_SECOND)
+                            .build());
+        } else {
+            var apiDestinationTarget = createApiDestinationTarget(proxyEndpointUrl, connection);
+            new EnrichedEventApiDestinationPipe(this, "EnrichedEventApiDestinationPipe", pipePropsBuilder
+                    .eventPattern(eventPattern)
+                    .apiDestination(apiDestinationTarget)
+                    .build());
         }
 
         CfnOutput.Builder.create(this, "PersonTableName")
@@ -111,6 +143,11 @@ public AppStack(Construct parent, String id, StackProps props) {
                 .exportName(EVENT_BUS_NAME_EXPORT_NAME)
                 .value(eventBus.getEventBusName())
                 .build();
+        if (captureBucket != null) {
+            CfnOutput.Builder.create(this, "CaptureBucketName")
+                    .value(captureBucket.getBucketName())
+                    .build();
+        }
     }
 
     private String createApiGatewayProxy(String endpointUrl) {
@@ -179,16 +216,53 @@ private ITable createPersonTable() {
                 .build();
     }
 
-    private ApiDestination createApiDestinationTarget(String endpointUrl, Authorization authorization) {
-        var connection = Connection.Builder.create(this, "ThirdPartyService")
+    /**
+     * The results of enriched events shared by all instances of the function, see {@code idempotency.shared}.
+     */
+    private ITable createIdempotencyTable() {
+        return Table.Builder.create(this, "IdempotencyTable")
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .partitionKey(Attribute.builder()
+                        .name("PK")
+                        .type(AttributeType.STRING)
+                        .build())
+                .sortKey(Attribute.builder()
+                        .name("SK")
+                        .type(AttributeType.STRING)
+                        .build())
+                .timeToLiveAttribute("expiresAt")
+                .removalPolicy(RemovalPolicy.DESTROY)
+                .build();
+    }
+
+    /**
+     * The payloads captured by the function, see {@code capture.bucket}. They are only kept for a week.
+     */
+    private IBucket createCaptureBucket() {
+        return Bucket.Builder.create(this, "CaptureBucket")
+                .encryption(BucketEncryption.S3_MANAGED)
+                .blockPublicAccess(BlockPublicAccess.BLOCK_ALL)
+                .enforceSsl(true)
+                .lifecycleRules(List.of(LifecycleRule.builder()
+                        .expiration(CAPTURE_RETENTION)
+                        .build()))
+                .removalPolicy(RemovalPolicy.DESTROY)
+                .autoDeleteObjects(true)
+                .build();
+    }
+
+    private Connection createConnection(Authorization authorization) {
+        return Connection.Builder.create(this, "ThirdPartyService")
                 .authorization(authorization)
                 .description("Connection with Third Party API")
                 .build();
+    }
 
+    private ApiDestination createApiDestinationTarget(String endpointUrl, Connection connection) {
         return ApiDestination.Builder.create(this, "ThirdPartyServiceApiDestination")
                 .endpoint(endpointUrl)
                 .httpMethod(HttpMethod.POST)
-                .rateLimitPerSecond(5)
+                .rateLimitPerSecond(API_DESTINATION_RATE_LIMIT_PER_SECOND)
                 .connection(connection)
                 .build();
     }
@@ -198,29 +272,47 @@ private EventBus createEventBridgeBus() {
                 .build();
     }
 
-    private IFunction createEnrichmentFunction(ITable personTable) {
-        var environmentVariables = Map.of(
-                "PERSON_TABLE_NAME", personTable.getTableName()
-        );
+    private IFunction createEnrichmentFunction(ITable personTable, ITable idempotencyTable, IBucket captureBucket, EnricherRuntime enricherRuntime) {
+        var environmentVariables = new HashMap<String, String>();
+        environmentVariables.put("PERSON_TABLE_NAME", personTable.getTableName());
+        if (idempotencyTable != null) {
+            environmentVariables.put("IDEMPOTENCY_ENABLED", "true");
+            environmentVariables.put("IDEMPOTENCY_SHARED", "true");
+            environmentVariables.put("IDEMPOTENCY_TABLE_NAME", idempotencyTable.getTableName());
+        }
+        if (captureBucket != null) {
+            // The function has to be built with -PpayloadCapture=true, otherwise the capture is not packaged
+            environmentVariables.put("CAPTURE_ENABLED", "true");
+            environmentVariables.put("CAPTURE_BUCKET", captureBucket.getBucketName());
+        }
+        var nativeRuntime = enricherRuntime == EnricherRuntime.NATIVE;
         var function = MicronautFunction.create(ApplicationType.DEFAULT,
-                        false,
+                        nativeRuntime,
                         this,
                         "enricher-function")
-                .runtime(Runtime.JAVA_17)
-                .handler("de.roamingthings.ThirdPartyApiRequestEnricherHandler")
+                .runtime(nativeRuntime ? Runtime.PROVIDED_AL2 : Runtime.JAVA_17)
+                .handler(nativeRuntime ? "bootstrap" : "de.roamingthings.ThirdPartyApiRequestEnricherHandler")
                 .environment(environmentVariables)
-                .code(Code.fromAsset(functionPath()))
-                .timeout(Duration.seconds(10))
-                .memorySize(2048)
+                .code(Code.fromAsset(functionPath(enricherRuntime)))
+                .timeout(ENRICHMENT_TIMEOUT)
+                .memorySize(nativeRuntime ? 256 : 2048)
                 .logRetention(RetentionDays.ONE_DAY)
                 .tracing(Tracing.ACTIVE)
                 .architecture(Architecture.X86_64)
                 .build();
 
         personTable.grantReadData(function);
+        if (idempotencyTable != null) {
+            // The results are written with a conditional put and read back with BatchGetItem
+            idempotencyTable.grantReadWriteData(function);
+        }
+        if (captureBucket != null) {
+            captureBucket.grantPut(function);
+        }
 
+        // SnapStart is only available for the Java runtimes, a native image starts fast enough without it
         var defaultChild = function.getNode().getDefaultChild();
-        if (defaultChild instanceof CfnFunction cfnFunction) {
+        if (!nativeRuntime && defaultChild instanceof CfnFunction cfnFunction) {
             cfnFunction.setSnapStart(CfnFunction.SnapStartProperty.builder()
                     .applyOn("PublishedVersions")
                     .build());
@@ -231,14 +323,30 @@ private IFunction createEnrichmentFunction(ITable personTable) {
                 .build();
     }
 
+    private static int pipeShardsFromContext(Object value) {
+        return value == null ? 1 : Integer.parseInt(value.toString());
+    }
+
+    private static boolean flagFromContext(Object value) {
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
     public static String functionPath() {
-        return "../app/build/libs/" + functionFilename();
+        return functionPath(EnricherRuntime.JVM);
+    }
+
+    public static String functionPath(EnricherRuntime enricherRuntime) {
+        return "../app/build/libs/" + functionFilename(enricherRuntime);
     }
 
     public static String functionFilename() {
+        return functionFilename(EnricherRuntime.JVM);
+    }
+
+    public static String functionFilename(EnricherRuntime enricherRuntime) {
         return MicronautFunctionFile.builder()
                 .optimized()
-                .graalVMNative(false)
+                .graalVMNative(enricherRuntime == EnricherRuntime.NATIVE)
                 .version("0.1")
                 .archiveBaseName("app")
                 .buildTool(BuildTool.GRADLE)
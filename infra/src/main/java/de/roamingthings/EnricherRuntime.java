@@ -0,0 +1,20 @@
+package de.roamingthings;
+
+/**
+ * How the enrichment function is deployed. Selected with the CDK context value {@code enricherRuntime}, e.g.
+ * {@code cdk deploy -c enricherRuntime=native}.
+ */
+public enum EnricherRuntime {
+    /**
+     * The optimized JIT jar on the Java 17 runtime with SnapStart.
+     */
+    JVM,
+    /**
+     * The GraalVM native image on the {@code provided.al2} custom runtime.
+     */
+    NATIVE;
+
+    public static EnricherRuntime fromContext(Object value) {
+        return value == null ? JVM : valueOf(value.toString().toUpperCase());
+    }
+}
@@ -27,8 +27,11 @@
 
 public class EnrichedEventApiDestinationPipe extends Construct {
 
-    private static final Number DEFAULT_SOURCE_BATCH_SIZE = 1;
-    private static final Number DEFAULT_MAXIMUM_BATCHING_WINDOW_IN_SECONDS = 6;
+    private static final int DEFAULT_SOURCE_BATCH_SIZE = 1;
+    private static final int DEFAULT_MAXIMUM_BATCHING_WINDOW_IN_SECONDS = 6;
+    private static final int MAX_SOURCE_FILTERS = 5;
+
+    private final PipeSettings settings;
 
     private IQueue sourceQueue;
     private IQueue dlq;
@@ -43,9 +46,12 @@ public EnrichedEventApiDestinationPipe(Construct scope, String id, EnrichedEvent
         Objects.requireNonNull(props.enrichmentFunction, "'enrichment' must be provided");
         Objects.requireNonNull(props.apiDestination, "'apiDestination' must be provided");
         Objects.requireNonNull(props.removalPolicy, "'removalPolicy' must be provided");
-        Objects.requireNonNull(props.maxRetryCount, "'maxRetryCount' must be provided");
-        Objects.requireNonNull(props.visibilityTimeout, "'visibilityTimeout' must be provided");
-        Objects.requireNonNull(props.retryPeriod, "'retryPeriod' must be provided");
+        if (props.sourceFilters != null && props.sourceFilters.size() > MAX_SOURCE_FILTERS) {
+            throw new IllegalArgumentException("A pipe supports at most %d 'sourceFilters' but %d are provided".formatted(MAX_SOURCE_FILTERS, props.sourceFilters.size()));
+        }
+
+        settings = resolveSettings(props);
+        settings.validate(toJavaDuration(props.enrichmentTimeout), toJavaDuration(props.latencyBudget));
 
         createDlq(props);
         createSourceQueue(props);
@@ -53,6 +59,13 @@ public EnrichedEventApiDestinationPipe(Construct scope, String id, EnrichedEvent
         createPipe(props);
     }
 
+    /**
+     * The settings of the queue and the pipe after applying the profile and the explicit properties.
+     */
+    public PipeSettings getSettings() {
+        return settings;
+    }
+
     public IQueue getSourceQueue() {
         return sourceQueue;
     }
@@ -69,13 +82,45 @@ public CfnPipe getPipe() {
         return pipe;
     }
 
+    /**
+     * Derives the settings from the profile, if there is one, and lets explicitly set properties take precedence.
+     */
+    private static PipeSettings resolveSettings(EnrichedEventApiDestinationPipeProps props) {
+        if (props.profile == null) {
+            Objects.requireNonNull(props.maxRetryCount, "'maxRetryCount' must be provided");
+            Objects.requireNonNull(props.visibilityTimeout, "'visibilityTimeout' must be provided");
+            Objects.requireNonNull(props.retryPeriod, "'retryPeriod' must be provided");
+            return new PipeSettings(
+                    Objects.requireNonNullElse(props.sourceBatchSize, DEFAULT_SOURCE_BATCH_SIZE).intValue(),
+                    Objects.requireNonNullElse(props.sourceMaximumBatchingWindowInSeconds, DEFAULT_MAXIMUM_BATCHING_WINDOW_IN_SECONDS).longValue(),
+                    props.visibilityTimeout.toSeconds().longValue(),
+                    props.retryPeriod.toSeconds().longValue(),
+                    props.maxRetryCount.intValue());
+        }
+        Objects.requireNonNull(props.targetEventsPerSecond, "'targetEventsPerSecond' must be provided with a profile");
+        Objects.requireNonNull(props.latencyBudget, "'latencyBudget' must be provided with a profile");
+        Objects.requireNonNull(props.enrichmentTimeout, "'enrichmentTimeout' must be provided with a profile");
+        var derived = PipeSettings.derive(props.profile, props.targetEventsPerSecond.doubleValue(),
+                toJavaDuration(props.latencyBudget), toJavaDuration(props.enrichmentTimeout));
+        return new PipeSettings(
+                props.sourceBatchSize != null ? props.sourceBatchSize.intValue() : derived.sourceBatchSize(),
+                props.sourceMaximumBatchingWindowInSeconds != null ? props.sourceMaximumBatchingWindowInSeconds.longValue() : derived.maximumBatchingWindowInSeconds(),
+                props.visibilityTimeout != null ? props.visibilityTimeout.toSeconds().longValue() : derived.visibilityTimeoutInSeconds(),
+                props.retryPeriod != null ? props.retryPeriod.toSeconds().longValue() : derived.retentionPeriodInSeconds(),
+                props.maxRetryCount != null ? props.maxRetryCount.intValue() : derived.maxReceiveCount());
+    }
+
+    private static java.time.Duration toJavaDuration(Duration duration) {
+        return duration == null ? null : java.time.Duration.ofMillis(duration.toMilliseconds().longValue());
+    }
+
     private void createSourceQueue(EnrichedEventApiDestinationPipeProps props) {
         sourceQueue = Queue.Builder.create(this, "SourceQueue")
-                .visibilityTimeout(props.visibilityTimeout)
-                .retentionPeriod(props.retryPeriod)
+                .visibilityTimeout(Duration.seconds(settings.visibilityTimeoutInSeconds()))
+                .retentionPeriod(Duration.seconds(settings.retentionPeriodInSeconds()))
                 .removalPolicy(props.removalPolicy)
                 .deadLetterQueue(DeadLetterQueue.builder()
-                        .maxReceiveCount(props.maxRetryCount)
+                        .maxReceiveCount(settings.maxReceiveCount())
                         .queue(dlq)
                         .build())
                 .build();
@@ -96,17 +141,16 @@ private void createRule(EnrichedEventApiDestinationPipeProps props) {
     }
 
     private void createPipe(EnrichedEventApiDestinationPipeProps props) {
-        var sourceMaximumBatchingWindowInSeconds = Objects.requireNonNullElse(props.sourceMaximumBatchingWindowInSeconds, DEFAULT_MAXIMUM_BATCHING_WINDOW_IN_SECONDS);
         var targetHttpParameters = Objects.requireNonNullElse(props.targetHttpParameters, CfnPipe.PipeTargetHttpParametersProperty.builder().build());
         var pipeRole = createPipeRole(props);
-        var sourceBatchSize = Objects.requireNonNullElse(props.sourceBatchSize, DEFAULT_SOURCE_BATCH_SIZE);
         pipe = CfnPipe.Builder.create(this, "Pipe")
                 .source(sourceQueue.getQueueArn())
                 .sourceParameters(CfnPipe.PipeSourceParametersProperty.builder()
                         .sqsQueueParameters(CfnPipe.PipeSourceSqsQueueParametersProperty.builder()
-                                .batchSize(sourceBatchSize)
-                                .maximumBatchingWindowInSeconds(sourceMaximumBatchingWindowInSeconds)
+                                .batchSize(settings.sourceBatchSize())
+                                .maximumBatchingWindowInSeconds(settings.maximumBatchingWindowInSeconds())
                                 .build())
+                        .filterCriteria(createFilterCriteria(props.sourceFilters))
                         .build()
                 )
                 .enrichment(props.enrichmentFunction.getFunctionArn())
@@ -122,6 +166,19 @@ private void createPipe(EnrichedEventApiDestinationPipeProps props) {
                 .build();
     }
 
+    private static CfnPipe.FilterCriteriaProperty createFilterCriteria(List<PipeSourceFilter> sourceFilters) {
+        if (sourceFilters == null || sourceFilters.isEmpty()) {
+            return null;
+        }
+        return CfnPipe.FilterCriteriaProperty.builder()
+                .filters(sourceFilters.stream()
+                        .map(filter -> CfnPipe.FilterProperty.builder()
+                                .pattern(filter.toPattern())
+                                .build())
+                        .toList())
+                .build();
+    }
+
     private Role createPipeRole(EnrichedEventApiDestinationPipeProps props) {
         var sourcePolicy = createSourcePolicy(sourceQueue, dlq);
         var enrichmentPolicy = createEnrichmentPolicy(props.enrichmentFunction);
@@ -177,7 +234,7 @@ private static PolicyDocument createSourcePolicy(IQueue queue, IQueue dlq) {
                 .build();
     }
 
-    @Builder
+    @Builder(toBuilder = true)
     public static class EnrichedEventApiDestinationPipeProps {
         /**
          * The event bus that is the source for the pipe.
@@ -195,32 +252,63 @@ public static class EnrichedEventApiDestinationPipeProps {
          * The API destination that is the target for the pipe.
          */
         private final IApiDestination apiDestination;
+        /**
+         * The latency/throughput trade-off from which the queue and batching settings are derived.
+         * <p>
+         * Requires {@code targetEventsPerSecond}, {@code latencyBudget} and {@code enrichmentTimeout}. Explicitly set
+         * settings take precedence over the derived ones. Without a profile, {@code maxRetryCount},
+         * {@code visibilityTimeout} and {@code retryPeriod} must be provided.
+         */
+        private final PipeProfile profile;
+        /**
+         * The expected rate of events, used to size the batches of a profile.
+         */
+        private final Number targetEventsPerSecond;
+        /**
+         * The time an event may spend in batching and enrichment before it is sent to the API destination.
+         */
+        private final Duration latencyBudget;
+        /**
+         * The timeout of the enrichment function, used to derive and validate the visibility timeout.
+         */
+        private final Duration enrichmentTimeout;
         /**
          * The maximum number of times that an event can be retried after the first failure.
          */
         private final Number maxRetryCount;
         /**
          * The size of the batches that are sent to the pipe.
+         * <p>
+         * Default: 1, or derived from the profile
          */
         private final Number sourceBatchSize;
         /**
          * The maximum amount of time, in seconds, to wait for a full batch of events before sending the batch to the pipe.
+         * <p>
+         * Default: 6, or derived from the profile
          */
         private final Number sourceMaximumBatchingWindowInSeconds;
         /**
          * Timeout of processing a single event.
          * <p>
          * After dequeuing, the enrichment has this much time to handle the event before it becomes visible again for dequeueing by another enrichment.
-         * Default: Duration.seconds(30)
+         * Default: derived from the profile
          */
         private final Duration visibilityTimeout;
         /**
          * The duration of the retry period.
          * <p>
          * After the initial failure, the event is retried with exponential backoff, up to the duration specified by this property.
-         * Default: Duration.minutes(5)
+         * Default: derived from the profile
          */
         private final Duration retryPeriod;
+        /**
+         * The filters of the messages in the source queue, a message is enriched if it matches any of them. Messages
+         * that match none are deleted without invoking the enrichment. At most 5 filters are supported.
+         * <p>
+         * Default: all messages are enriched
+         */
+        private final List<PipeSourceFilter> sourceFilters;
         /**
          * The parameters to pass to the API destination.
          */
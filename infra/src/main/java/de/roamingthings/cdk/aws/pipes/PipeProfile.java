@@ -0,0 +1,42 @@
+package de.roamingthings.cdk.aws.pipes;
+
+/**
+ * Trade-off between latency and throughput of an {@link EnrichedEventApiDestinationPipe}. Together with a target
+ * rate and a latency budget, a profile derives the {@link PipeSettings} of the pipe.
+ */
+public enum PipeProfile {
+    /**
+     * The fixed settings of the stack before profiles existed: single messages, a batching window of 6 seconds, a
+     * visibility timeout of 30 seconds and no retry. The target rate and latency budget are ignored.
+     */
+    LEGACY(0.0, 1, 1),
+    /**
+     * No batching window, the pipe forwards whatever a single receive returns (up to 10 messages).
+     */
+    LOW_LATENCY(0.0, 10, 2),
+    /**
+     * Up to a fifth of the latency budget is spent batching, batches hold up to 100 messages.
+     */
+    BALANCED(0.2, 100, 3),
+    /**
+     * Up to half of the latency budget is spent batching, batches hold up to 1000 messages.
+     */
+    HIGH_THROUGHPUT(0.5, 1000, 5);
+
+    final double batchingShareOfBudget;
+    final int maxBatchSize;
+    final int maxReceiveCount;
+
+    PipeProfile(double batchingShareOfBudget, int maxBatchSize, int maxReceiveCount) {
+        this.batchingShareOfBudget = batchingShareOfBudget;
+        this.maxBatchSize = maxBatchSize;
+        this.maxReceiveCount = maxReceiveCount;
+    }
+
+    /**
+     * Without a value the {@link #LEGACY} settings are kept, the other profiles have to be chosen explicitly.
+     */
+    public static PipeProfile fromContext(Object value) {
+        return value == null ? LEGACY : valueOf(value.toString().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,110 @@
+package de.roamingthings.cdk.aws.pipes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * The queue and batching settings of an {@link EnrichedEventApiDestinationPipe}.
+ *
+ * @param maxReceiveCount how often a message is received before it is moved to the dead-letter queue
+ */
+public record PipeSettings(
+        int sourceBatchSize,
+        long maximumBatchingWindowInSeconds,
+        long visibilityTimeoutInSeconds,
+        long retentionPeriodInSeconds,
+        int maxReceiveCount) {
+
+    /**
+     * Batches of more than 10 messages need a batching window.
+     */
+    static final int MAX_BATCH_SIZE_WITHOUT_WINDOW = 10;
+    static final int MAX_BATCH_SIZE = 10_000;
+    static final long MAX_BATCHING_WINDOW_SECONDS = 300;
+    static final long MAX_VISIBILITY_TIMEOUT_SECONDS = Duration.ofHours(12).toSeconds();
+    static final long MIN_RETENTION_SECONDS = 60;
+    static final long MAX_RETENTION_SECONDS = Duration.ofDays(14).toSeconds();
+    static final long DEFAULT_RETENTION_SECONDS = Duration.ofMinutes(5).toSeconds();
+    /**
+     * The visibility timeout is derived as six times the enrichment timeout on top of the batching window, as
+     * recommended for Lambda functions consuming SQS queues.
+     */
+    static final int DERIVED_ENRICHMENT_TIMEOUTS = 6;
+    /**
+     * A batch must stay invisible while the enrichment is invoked and retried once, otherwise its messages are
+     * processed twice.
+     */
+    static final int MIN_ENRICHMENT_TIMEOUTS = 2;
+    /**
+     * The settings of {@link PipeProfile#LEGACY}.
+     */
+    static final PipeSettings LEGACY = new PipeSettings(1, 6, 30, DEFAULT_RETENTION_SECONDS, 1);
+
+    /**
+     * Derives the settings of a profile for the given rate and latency budget, where the latency budget covers the
+     * batching window and the enrichment.
+     */
+    public static PipeSettings derive(PipeProfile profile, double targetEventsPerSecond, Duration latencyBudget, Duration enrichmentTimeout) {
+        if (targetEventsPerSecond <= 0) {
+            throw new IllegalArgumentException("'targetEventsPerSecond' must be positive but is " + targetEventsPerSecond);
+        }
+        if (profile == PipeProfile.LEGACY) {
+            return LEGACY;
+        }
+        var batchingBudget = Math.max(latencyBudget.toSeconds() - enrichmentTimeout.toSeconds(), 0);
+        var window = Math.min((long) Math.floor(profile.batchingShareOfBudget * batchingBudget), MAX_BATCHING_WINDOW_SECONDS);
+        var batchSize = window == 0
+                ? Math.min(profile.maxBatchSize, MAX_BATCH_SIZE_WITHOUT_WINDOW)
+                : (int) Math.max(1, Math.min(profile.maxBatchSize, Math.ceil(targetEventsPerSecond * window)));
+        var visibilityTimeout = Math.min(window + DERIVED_ENRICHMENT_TIMEOUTS * enrichmentTimeout.toSeconds(), MAX_VISIBILITY_TIMEOUT_SECONDS);
+        var retention = Math.min(Math.max(DEFAULT_RETENTION_SECONDS, visibilityTimeout * (profile.maxReceiveCount + 1)), MAX_RETENTION_SECONDS);
+        return new PipeSettings(batchSize, window, visibilityTimeout, retention, profile.maxReceiveCount);
+    }
+
+    /**
+     * Rejects settings that do not fit together.
+     *
+     * @param enrichmentTimeout the timeout of the enrichment function, {@code null} if unknown
+     * @param latencyBudget     the latency budget of the pipe, {@code null} if there is none
+     * @throws IllegalArgumentException listing all inconsistencies
+     */
+    public void validate(Duration enrichmentTimeout, Duration latencyBudget) {
+        var violations = new ArrayList<String>();
+        if (sourceBatchSize < 1 || sourceBatchSize > MAX_BATCH_SIZE) {
+            violations.add("'sourceBatchSize' must be between 1 and %d but is %d".formatted(MAX_BATCH_SIZE, sourceBatchSize));
+        }
+        if (maximumBatchingWindowInSeconds < 0 || maximumBatchingWindowInSeconds > MAX_BATCHING_WINDOW_SECONDS) {
+            violations.add("'sourceMaximumBatchingWindowInSeconds' must be between 0 and %d but is %d".formatted(MAX_BATCHING_WINDOW_SECONDS, maximumBatchingWindowInSeconds));
+        }
+        if (sourceBatchSize > MAX_BATCH_SIZE_WITHOUT_WINDOW && maximumBatchingWindowInSeconds < 1) {
+            violations.add("'sourceBatchSize' of %d needs a batching window of at least 1 second".formatted(sourceBatchSize));
+        }
+        if (maxReceiveCount < 1 || maxReceiveCount > 1000) {
+            violations.add("'maxRetryCount' must be between 1 and 1000 but is " + maxReceiveCount);
+        }
+        if (visibilityTimeoutInSeconds > MAX_VISIBILITY_TIMEOUT_SECONDS) {
+            violations.add("'visibilityTimeout' must be at most %d seconds but is %d".formatted(MAX_VISIBILITY_TIMEOUT_SECONDS, visibilityTimeoutInSeconds));
+        }
+        if (retentionPeriodInSeconds < MIN_RETENTION_SECONDS || retentionPeriodInSeconds > MAX_RETENTION_SECONDS) {
+            violations.add("'retryPeriod' must be between %d and %d seconds but is %d".formatted(MIN_RETENTION_SECONDS, MAX_RETENTION_SECONDS, retentionPeriodInSeconds));
+        }
+        if (retentionPeriodInSeconds < visibilityTimeoutInSeconds * maxReceiveCount) {
+            violations.add(("'retryPeriod' of %d seconds expires messages before they are retried %d times with a visibility timeout of %d seconds")
+                    .formatted(retentionPeriodInSeconds, maxReceiveCount, visibilityTimeoutInSeconds));
+        }
+        if (enrichmentTimeout != null) {
+            var minVisibilityTimeout = maximumBatchingWindowInSeconds + MIN_ENRICHMENT_TIMEOUTS * enrichmentTimeout.toSeconds();
+            if (visibilityTimeoutInSeconds < minVisibilityTimeout) {
+                violations.add(("'visibilityTimeout' of %d seconds is shorter than the batching window plus %d enrichment timeouts (%d seconds), messages would be processed twice")
+                        .formatted(visibilityTimeoutInSeconds, MIN_ENRICHMENT_TIMEOUTS, minVisibilityTimeout));
+            }
+            if (latencyBudget != null && maximumBatchingWindowInSeconds + enrichmentTimeout.toSeconds() > latencyBudget.toSeconds()) {
+                violations.add("The batching window of %d seconds and the enrichment timeout of %d seconds exceed the latency budget of %d seconds"
+                        .formatted(maximumBatchingWindowInSeconds, enrichmentTimeout.toSeconds(), latencyBudget.toSeconds()));
+            }
+        }
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Inconsistent pipe settings:\n  " + String.join("\n  ", violations));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package de.roamingthings.cdk.aws.pipes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A filter of the messages in the source queue of a pipe that matches the EventBridge event in the message body by
+ * its {@code source} and {@code detail-type}.
+ * <p>
+ * The pipe deletes messages that match none of its filters from the queue without invoking the enrichment, so they
+ * neither cost an invocation nor count as failures.
+ *
+ * @param sources     the sources to match, empty matches any source
+ * @param detailTypes the detail types to match, empty matches any detail type
+ */
+public record PipeSourceFilter(List<String> sources, List<String> detailTypes) {
+
+    public PipeSourceFilter {
+        sources = List.copyOf(sources);
+        detailTypes = List.copyOf(detailTypes);
+        if (sources.isEmpty() && detailTypes.isEmpty()) {
+            throw new IllegalArgumentException("A source filter needs at least one source or detail type");
+        }
+    }
+
+    /**
+     * Matches the events of a detail type from a source.
+     */
+    public static PipeSourceFilter of(String source, String detailType) {
+        return new PipeSourceFilter(List.of(source), List.of(detailType));
+    }
+
+    /**
+     * Matches the events of a detail type from any source.
+     */
+    public static PipeSourceFilter ofDetailType(String detailType) {
+        return new PipeSourceFilter(List.of(), List.of(detailType));
+    }
+
+    /**
+     * The filter pattern of the pipe, e.g. {@code {"body":{"source":["a"],"detail-type":["b"]}}}.
+     */
+    public String toPattern() {
+        var fields = new ArrayList<String>();
+        if (!sources.isEmpty()) {
+            fields.add("\"source\":" + toJsonArray(sources));
+        }
+        if (!detailTypes.isEmpty()) {
+            fields.add("\"detail-type\":" + toJsonArray(detailTypes));
+        }
+        return "{\"body\":{" + String.join(",", fields) + "}}";
+    }
+
+    private static String toJsonArray(List<String> values) {
+        return values.stream()
+                .map(PipeSourceFilter::toJsonString)
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static String toJsonString(String value) {
+        var json = new StringBuilder("\"");
+        for (var c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u%04x".formatted((int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
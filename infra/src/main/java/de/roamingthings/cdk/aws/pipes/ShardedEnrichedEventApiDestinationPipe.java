@@ -0,0 +1,235 @@
+package de.roamingthings.cdk.aws.pipes;
+
+import de.roamingthings.cdk.aws.pipes.EnrichedEventApiDestinationPipe.EnrichedEventApiDestinationPipeProps;
+import lombok.Builder;
+import software.amazon.awscdk.services.events.ApiDestination;
+import software.amazon.awscdk.services.events.EventPattern;
+import software.amazon.awscdk.services.events.HttpMethod;
+import software.amazon.awscdk.services.events.IApiDestination;
+import software.amazon.awscdk.services.events.IConnection;
+import software.constructs.Construct;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Fans the events out to several {@link EnrichedEventApiDestinationPipe} lanes to scale past the rate limit of a
+ * single API destination.
+ * <p>
+ * Each lane has its own queue, dead-letter queue, pipe and API destination with its own rate limit, all lanes share
+ * the enrichment function. The events are partitioned by the first character of a key in the event detail, so all
+ * events of a key are delivered by the same lane. The rule of each lane matches the prefixes of its partition. Events
+ * without the key or whose key does not start with a character of the partition key alphabet are delivered by an
+ * additional overflow lane, so together the rules cover the whole key space.
+ */
+public class ShardedEnrichedEventApiDestinationPipe extends Construct {
+
+    static final String DEFAULT_PARTITION_KEY_ALPHABET = "0123456789abcdef";
+    private static final int DEFAULT_RATE_LIMIT_PER_SECOND_PER_SHARD = 5;
+
+    private final List<EnrichedEventApiDestinationPipe> lanes = new ArrayList<>();
+    private final List<IApiDestination> apiDestinations = new ArrayList<>();
+    private final EnrichedEventApiDestinationPipe overflowLane;
+
+    public ShardedEnrichedEventApiDestinationPipe(Construct scope, String id, ShardedEnrichedEventApiDestinationPipeProps props) {
+        super(scope, id);
+        Objects.requireNonNull(props.pipe, "'pipe' must be provided");
+        Objects.requireNonNull(props.shardCount, "'shardCount' must be provided");
+        Objects.requireNonNull(props.partitionKeyPath, "'partitionKeyPath' must be provided");
+        Objects.requireNonNull(props.connection, "'connection' must be provided");
+        Objects.requireNonNull(props.endpoint, "'endpoint' must be provided");
+        if (props.partitionKeyPath.size() < 2 || !"detail".equals(props.partitionKeyPath.get(0))) {
+            throw new IllegalArgumentException("'partitionKeyPath' must point into the event detail but is " + props.partitionKeyPath);
+        }
+        var alphabet = Objects.requireNonNullElse(props.partitionKeyAlphabet, DEFAULT_PARTITION_KEY_ALPHABET);
+        var partitions = partitionPrefixes(alphabet, props.shardCount.intValue());
+
+        for (int shard = 0; shard < partitions.size(); shard++) {
+            var apiDestination = createApiDestination("ApiDestination" + shard, props);
+            lanes.add(new EnrichedEventApiDestinationPipe(this, "Lane" + shard, props.pipe.toBuilder()
+                    .eventPattern(partitionedEventPattern(props.eventPattern, props.partitionKeyPath, partitions.get(shard)))
+                    .apiDestination(apiDestination)
+                    .build()));
+        }
+        var overflowApiDestination = createApiDestination("OverflowApiDestination", props);
+        overflowLane = new EnrichedEventApiDestinationPipe(this, "OverflowLane", props.pipe.toBuilder()
+                .eventPattern(overflowEventPattern(props.eventPattern, props.partitionKeyPath, partitions.stream().flatMap(List::stream).toList()))
+                .apiDestination(overflowApiDestination)
+                .build());
+    }
+
+    /**
+     * The lanes of the partitions, not including the {@link #getOverflowLane() overflow lane}.
+     */
+    public List<EnrichedEventApiDestinationPipe> getLanes() {
+        return List.copyOf(lanes);
+    }
+
+    /**
+     * The lane that delivers the events without a key or with a key outside the partition key alphabet.
+     */
+    public EnrichedEventApiDestinationPipe getOverflowLane() {
+        return overflowLane;
+    }
+
+    public List<IApiDestination> getApiDestinations() {
+        return List.copyOf(apiDestinations);
+    }
+
+    /**
+     * The shard that delivers the events of a key, or {@code -1} if the key is delivered by the overflow lane.
+     */
+    public static int shardOf(String key, String alphabet, int shardCount) {
+        if (key == null || key.isEmpty()) {
+            return -1;
+        }
+        var index = alphabet.indexOf(key.charAt(0));
+        if (index < 0) {
+            index = alphabet.indexOf(Character.toLowerCase(key.charAt(0)));
+        }
+        return index < 0 ? -1 : index % shardCount;
+    }
+
+    /**
+     * Assigns the characters of the alphabet round-robin to the shards. Letters are matched case-insensitively.
+     */
+    static List<List<String>> partitionPrefixes(String alphabet, int shardCount) {
+        if (shardCount < 1 || shardCount > alphabet.length()) {
+            throw new IllegalArgumentException("'shardCount' must be between 1 and %d but is %d".formatted(alphabet.length(), shardCount));
+        }
+        var partitions = new ArrayList<List<String>>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < alphabet.length(); i++) {
+            var prefix = alphabet.charAt(i);
+            var partition = partitions.get(shardOf(String.valueOf(prefix), alphabet, shardCount));
+            partition.add(String.valueOf(prefix));
+            if (Character.toUpperCase(prefix) != prefix) {
+                partition.add(String.valueOf(Character.toUpperCase(prefix)));
+            }
+        }
+        return partitions;
+    }
+
+    private IApiDestination createApiDestination(String id, ShardedEnrichedEventApiDestinationPipeProps props) {
+        var apiDestination = ApiDestination.Builder.create(this, id)
+                .connection(props.connection)
+                .endpoint(props.endpoint)
+                .httpMethod(Objects.requireNonNullElse(props.httpMethod, HttpMethod.POST))
+                .rateLimitPerSecond(Objects.requireNonNullElse(props.rateLimitPerSecondPerShard, DEFAULT_RATE_LIMIT_PER_SECOND_PER_SHARD))
+                .build();
+        apiDestinations.add(apiDestination);
+        return apiDestination;
+    }
+
+    static EventPattern partitionedEventPattern(EventPattern eventPattern, List<String> partitionKeyPath, List<String> prefixes) {
+        var prefixFilters = prefixes.stream()
+                .map(prefix -> Map.of("prefix", prefix))
+                .toList();
+        var detail = baseDetail(eventPattern);
+        putPath(detail, partitionKeyPath.subList(1, partitionKeyPath.size()), prefixFilters);
+        return baseBuilder(eventPattern).detail(detail).build();
+    }
+
+    /**
+     * Matches the events whose key is missing or does not start with any of the prefixes, the complement of the
+     * patterns of all partitions.
+     */
+    static EventPattern overflowEventPattern(EventPattern eventPattern, List<String> partitionKeyPath, List<String> prefixes) {
+        var keyPath = partitionKeyPath.subList(1, partitionKeyPath.size());
+        Map<String, Object> missingKey = new LinkedHashMap<>();
+        putPath(missingKey, keyPath, List.of(Map.of("exists", false)));
+        Map<String, Object> otherKey = new LinkedHashMap<>();
+        putPath(otherKey, keyPath, List.of(Map.of("anything-but", Map.of("prefix", prefixes))));
+        var detail = baseDetail(eventPattern);
+        detail.put("$or", List.of(missingKey, otherKey));
+        return baseBuilder(eventPattern).detail(detail).build();
+    }
+
+    private static EventPattern.Builder baseBuilder(EventPattern eventPattern) {
+        var builder = EventPattern.builder();
+        if (eventPattern != null) {
+            builder.version(eventPattern.getVersion())
+                    .id(eventPattern.getId())
+                    .detailType(eventPattern.getDetailType())
+                    .source(eventPattern.getSource())
+                    .account(eventPattern.getAccount())
+                    .time(eventPattern.getTime())
+                    .region(eventPattern.getRegion())
+                    .resources(eventPattern.getResources());
+        }
+        return builder;
+    }
+
+    private static Map<String, Object> baseDetail(EventPattern eventPattern) {
+        Map<String, Object> detail = new LinkedHashMap<>();
+        if (eventPattern != null && eventPattern.getDetail() != null) {
+            detail.putAll(eventPattern.getDetail());
+        }
+        return detail;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putPath(Map<String, Object> pattern, List<String> path, Object value) {
+        if (path.size() == 1) {
+            pattern.put(path.get(0), value);
+            return;
+        }
+        var existing = pattern.get(path.get(0));
+        Map<String, Object> nested = existing instanceof Map<?, ?> map
+                ? new LinkedHashMap<>((Map<String, Object>) map)
+                : new LinkedHashMap<>();
+        putPath(nested, path.subList(1, path.size()), value);
+        pattern.put(path.get(0), nested);
+    }
+
+    @Builder
+    public static class ShardedEnrichedEventApiDestinationPipeProps {
+        /**
+         * The properties of every lane. The event pattern and the API destination are set per lane.
+         */
+        private final EnrichedEventApiDestinationPipeProps pipe;
+        /**
+         * The event pattern to filter events sent to the pipe, the partition filter is added to its detail.
+         */
+        private final EventPattern eventPattern;
+        /**
+         * The number of lanes, at most the length of the partition key alphabet.
+         */
+        private final Number shardCount;
+        /**
+         * The path of the partition key in the event, e.g. {@code List.of("detail", "id")}.
+         */
+        private final List<String> partitionKeyPath;
+        /**
+         * The characters the partition key starts with.
+         * <p>
+         * Default: the hexadecimal digits
+         */
+        private final String partitionKeyAlphabet;
+        /**
+         * The connection shared by the API destinations of the lanes.
+         */
+        private final IConnection connection;
+        /**
+         * The endpoint of the API destinations.
+         */
+        private final String endpoint;
+        /**
+         * The HTTP method of the API destinations.
+         * <p>
+         * Default: HttpMethod.POST
+         */
+        private final HttpMethod httpMethod;
+        /**
+         * The rate limit of the API destination of each lane.
+         * <p>
+         * Default: 5
+         */
+        private final Number rateLimitPerSecondPerShard;
+    }
+}
@@ -0,0 +1,76 @@
+package de.roamingthings.cdk.aws.pipes;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipeSettingsTest {
+
+    static final Duration LATENCY_BUDGET = Duration.ofSeconds(30);
+    static final Duration ENRICHMENT_TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void should_derive_consistent_settings_for_each_profile() {
+        assertEquals(new PipeSettings(1, 6, 30, 300, 1),
+                PipeSettings.derive(PipeProfile.LEGACY, 5, LATENCY_BUDGET, ENRICHMENT_TIMEOUT));
+        assertEquals(new PipeSettings(10, 0, 60, 300, 2),
+                PipeSettings.derive(PipeProfile.LOW_LATENCY, 5, LATENCY_BUDGET, ENRICHMENT_TIMEOUT));
+        assertEquals(new PipeSettings(20, 4, 64, 300, 3),
+                PipeSettings.derive(PipeProfile.BALANCED, 5, LATENCY_BUDGET, ENRICHMENT_TIMEOUT));
+        assertEquals(new PipeSettings(50, 10, 70, 420, 5),
+                PipeSettings.derive(PipeProfile.HIGH_THROUGHPUT, 5, LATENCY_BUDGET, ENRICHMENT_TIMEOUT));
+
+        for (var profile : PipeProfile.values()) {
+            var settings = PipeSettings.derive(profile, 5, LATENCY_BUDGET, ENRICHMENT_TIMEOUT);
+            assertDoesNotThrow(() -> settings.validate(ENRICHMENT_TIMEOUT, LATENCY_BUDGET));
+        }
+    }
+
+    @Test
+    void should_keep_the_legacy_settings_without_an_explicit_profile() {
+        assertEquals(PipeProfile.LEGACY, PipeProfile.fromContext(null));
+        assertEquals(PipeProfile.HIGH_THROUGHPUT, PipeProfile.fromContext("high-throughput"));
+    }
+
+    @Test
+    void should_cap_the_batch_size_at_the_profile_maximum() {
+        assertEquals(100, PipeSettings.derive(PipeProfile.BALANCED, 1000, LATENCY_BUDGET, ENRICHMENT_TIMEOUT).sourceBatchSize());
+    }
+
+    @Test
+    void should_reject_a_visibility_timeout_shorter_than_the_enrichment() {
+        var settings = new PipeSettings(1, 6, 20, 300, 1);
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> settings.validate(ENRICHMENT_TIMEOUT, null));
+        assertTrue(exception.getMessage().contains("'visibilityTimeout' of 20 seconds"));
+    }
+
+    @Test
+    void should_reject_a_retention_that_expires_messages_before_their_retries() {
+        var settings = new PipeSettings(1, 0, 120, 300, 5);
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> settings.validate(ENRICHMENT_TIMEOUT, null));
+        assertTrue(exception.getMessage().contains("'retryPeriod' of 300 seconds"));
+    }
+
+    @Test
+    void should_reject_large_batches_without_batching_window() {
+        var settings = new PipeSettings(100, 0, 60, 300, 1);
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> settings.validate(null, null));
+        assertTrue(exception.getMessage().contains("needs a batching window"));
+    }
+
+    @Test
+    void should_reject_settings_exceeding_the_latency_budget() {
+        var settings = new PipeSettings(10, 25, 60, 300, 1);
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> settings.validate(ENRICHMENT_TIMEOUT, LATENCY_BUDGET));
+        assertTrue(exception.getMessage().contains("exceed the latency budget"));
+    }
+}
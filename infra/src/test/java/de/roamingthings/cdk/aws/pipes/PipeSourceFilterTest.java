@@ -0,0 +1,30 @@
+package de.roamingthings.cdk.aws.pipes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PipeSourceFilterTest {
+
+    @Test
+    void should_match_the_source_and_detail_type_of_the_message_body() {
+        var filter = PipeSourceFilter.of("de.roamingthings.person", "PersonCreated");
+
+        assertEquals("{\"body\":{\"source\":[\"de.roamingthings.person\"],\"detail-type\":[\"PersonCreated\"]}}", filter.toPattern());
+    }
+
+    @Test
+    void should_leave_out_an_empty_field_and_escape_the_values() {
+        var filter = PipeSourceFilter.ofDetailType("Person \"Created\"");
+
+        assertEquals("{\"body\":{\"detail-type\":[\"Person \\\"Created\\\"\"]}}", filter.toPattern());
+    }
+
+    @Test
+    void should_reject_a_filter_that_matches_everything() {
+        assertThrows(IllegalArgumentException.class, () -> new PipeSourceFilter(List.of(), List.of()));
+    }
+}
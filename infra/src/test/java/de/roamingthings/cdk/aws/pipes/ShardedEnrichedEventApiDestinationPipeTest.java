@@ -0,0 +1,175 @@
+package de.roamingthings.cdk.aws.pipes;
+
+import de.roamingthings.cdk.aws.pipes.EnrichedEventApiDestinationPipe.EnrichedEventApiDestinationPipeProps;
+import de.roamingthings.cdk.aws.pipes.ShardedEnrichedEventApiDestinationPipe.ShardedEnrichedEventApiDestinationPipeProps;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.RemovalPolicy;
+import software.amazon.awscdk.SecretValue;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.assertions.Match;
+import software.amazon.awscdk.assertions.Template;
+import software.amazon.awscdk.services.events.Authorization;
+import software.amazon.awscdk.services.events.Connection;
+import software.amazon.awscdk.services.events.EventBus;
+import software.amazon.awscdk.services.events.EventPattern;
+import software.amazon.awscdk.services.lambda.Code;
+import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.lambda.Runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static de.roamingthings.cdk.aws.pipes.ShardedEnrichedEventApiDestinationPipe.DEFAULT_PARTITION_KEY_ALPHABET;
+import static de.roamingthings.cdk.aws.pipes.ShardedEnrichedEventApiDestinationPipe.partitionPrefixes;
+import static de.roamingthings.cdk.aws.pipes.ShardedEnrichedEventApiDestinationPipe.shardOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedEnrichedEventApiDestinationPipeTest {
+
+    @Test
+    void should_assign_every_prefix_to_exactly_one_shard() {
+        var partitions = partitionPrefixes(DEFAULT_PARTITION_KEY_ALPHABET, 3);
+
+        assertEquals(List.of("0", "3", "6", "9", "c", "C", "f", "F"), partitions.get(0));
+        assertEquals(List.of("1", "4", "7", "a", "A", "d", "D"), partitions.get(1));
+        assertEquals(List.of("2", "5", "8", "b", "B", "e", "E"), partitions.get(2));
+    }
+
+    @Test
+    void should_route_a_key_to_the_shard_whose_prefixes_match_it() {
+        var partitions = partitionPrefixes(DEFAULT_PARTITION_KEY_ALPHABET, 4);
+
+        for (int i = 0; i < 100; i++) {
+            var key = UUID.randomUUID().toString();
+            var shard = shardOf(key, DEFAULT_PARTITION_KEY_ALPHABET, 4);
+            assertTrue(partitions.get(shard).stream().anyMatch(key::startsWith), key);
+            assertEquals(shard, shardOf(key.toUpperCase(), DEFAULT_PARTITION_KEY_ALPHABET, 4));
+        }
+    }
+
+    @Test
+    void should_not_route_keys_outside_the_alphabet() {
+        assertEquals(-1, shardOf("unknown", DEFAULT_PARTITION_KEY_ALPHABET, 2));
+        assertEquals(-1, shardOf("", DEFAULT_PARTITION_KEY_ALPHABET, 2));
+    }
+
+    @Test
+    void should_reject_more_shards_than_prefixes() {
+        assertThrows(IllegalArgumentException.class, () -> partitionPrefixes(DEFAULT_PARTITION_KEY_ALPHABET, 17));
+        assertThrows(IllegalArgumentException.class, () -> partitionPrefixes(DEFAULT_PARTITION_KEY_ALPHABET, 0));
+    }
+
+    @Test
+    void should_synthesize_a_lane_per_shard_and_an_overflow_lane() {
+        var template = Template.fromStack(shardedPipeStack(3));
+
+        template.resourceCountIs("AWS::Events::Rule", 4);
+        template.resourceCountIs("AWS::Events::ApiDestination", 4);
+        template.resourceCountIs("AWS::Pipes::Pipe", 4);
+        template.resourceCountIs("AWS::SQS::Queue", 8);
+        template.hasResourceProperties("AWS::Events::Rule", Map.of("EventPattern", Map.of(
+                "source", List.of("de.roamingthings.person"),
+                "detail-type", List.of("PersonCreated"),
+                "detail", Map.of("id", List.of(
+                        Map.of("prefix", "0"), Map.of("prefix", "3"), Map.of("prefix", "6"), Map.of("prefix", "9"),
+                        Map.of("prefix", "c"), Map.of("prefix", "C"), Map.of("prefix", "f"), Map.of("prefix", "F")))
+        )));
+        template.hasResourceProperties("AWS::Events::Rule", Map.of("EventPattern", Match.objectLike(Map.of(
+                "detail", Map.of("$or", List.of(
+                        Map.of("id", List.of(Map.of("exists", false))),
+                        Map.of("id", List.of(Map.of("anything-but", Map.of("prefix", Match.arrayWith(List.<Object>of("0", "f", "F")))))))
+                ))))));
+    }
+
+    @Test
+    void should_deliver_every_key_by_exactly_one_rule() {
+        var template = Template.fromStack(shardedPipeStack(4));
+        var detailPatterns = new ArrayList<Map<String, Object>>();
+        template.findResources("AWS::Events::Rule").values().forEach(rule ->
+                detailPatterns.add(detailOf(rule)));
+
+        var keys = new ArrayList<String>(Arrays.asList(null, "", "-1", "g123", "Z", "ü", " 0"));
+        for (var prefix : DEFAULT_PARTITION_KEY_ALPHABET.toCharArray()) {
+            keys.add(prefix + "42");
+            keys.add(Character.toUpperCase(prefix) + "42");
+        }
+        for (var key : keys) {
+            var matchingRules = detailPatterns.stream()
+                    .filter(detail -> matches(detail, key))
+                    .count();
+            assertEquals(1, matchingRules, "rules matching key '" + key + "'");
+        }
+    }
+
+    private static Stack shardedPipeStack(int shardCount) {
+        var stack = new Stack(new App(), "ShardedPipeStack");
+        var eventBus = EventBus.Builder.create(stack, "Bus").build();
+        var function = Function.Builder.create(stack, "Enrichment")
+                .runtime(Runtime.NODEJS_18_X)
+                .handler("index.handler")
+                .code(Code.fromInline("exports.handler = async (event) => event;"))
+                .build();
+        var connection = Connection.Builder.create(stack, "Connection")
+                .authorization(Authorization.basic("user", SecretValue.unsafePlainText("secret")))
+                .build();
+        new ShardedEnrichedEventApiDestinationPipe(stack, "Sharded", ShardedEnrichedEventApiDestinationPipeProps.builder()
+                .pipe(EnrichedEventApiDestinationPipeProps.builder()
+                        .sourceEventBus(eventBus)
+                        .enrichmentFunction(function)
+                        .maxRetryCount(1)
+                        .visibilityTimeout(Duration.seconds(30))
+                        .retryPeriod(Duration.minutes(5))
+                        .removalPolicy(RemovalPolicy.DESTROY)
+                        .build())
+                .eventPattern(EventPattern.builder()
+                        .source(List.of("de.roamingthings.person"))
+                        .detailType(List.of("PersonCreated"))
+                        .build())
+                .shardCount(shardCount)
+                .partitionKeyPath(List.of("detail", "id"))
+                .connection(connection)
+                .endpoint("https://example.org")
+                .build());
+        return stack;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> detailOf(Map<String, Object> rule) {
+        var properties = (Map<String, Object>) rule.get("Properties");
+        var eventPattern = (Map<String, Object>) properties.get("EventPattern");
+        var detail = (Map<String, Object>) eventPattern.get("detail");
+        assertNotNull(detail, "every rule filters on the detail");
+        return detail;
+    }
+
+    /**
+     * Evaluates the subset of the EventBridge pattern syntax used by the lanes against the {@code detail.id} key.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean matches(Map<String, Object> detail, String key) {
+        if (detail.containsKey("$or")) {
+            return ((List<Map<String, Object>>) detail.get("$or")).stream().anyMatch(alternative -> matches(alternative, key));
+        }
+        return ((List<Map<String, Object>>) detail.get("id")).stream().anyMatch(filter -> {
+            if (filter.containsKey("exists")) {
+                return (key != null) == (Boolean) filter.get("exists");
+            }
+            if (key == null) {
+                return false;
+            }
+            if (filter.containsKey("anything-but")) {
+                var prefixes = (List<String>) ((Map<String, Object>) filter.get("anything-but")).get("prefix");
+                return prefixes.stream().noneMatch(key::startsWith);
+            }
+            return key.startsWith((String) filter.get("prefix"));
+        });
+    }
+}
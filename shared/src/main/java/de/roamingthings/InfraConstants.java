@@ -3,4 +3,6 @@
 public interface InfraConstants {
     String PERSON_TABLE_NAME_EXPORT_NAME = "workbench-aws-eventbridge-pipes-person-table-name";
     String EVENT_BUS_NAME_EXPORT_NAME = "workbench-aws-eventbridge-pipes-event-bus-name";
+    String PERSON_CREATED_SOURCE = "de.roamingthings.person";
+    String PERSON_CREATED_DETAIL_TYPE = "PersonCreated";
 }